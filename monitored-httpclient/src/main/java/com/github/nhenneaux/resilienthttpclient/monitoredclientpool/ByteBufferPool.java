@@ -0,0 +1,66 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed size direct buffers, the buffers released beyond the maximum pooled count are left to the garbage collector.
+ */
+class ByteBufferPool {
+
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    // 4 MiB of direct memory kept at most
+    static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+
+    static final ByteBufferPool SHARED = new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final Queue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int pooledCount() {
+        return pooledCount.get();
+    }
+
+    /**
+     * @return an empty buffer ready to be written.
+     */
+    ByteBuffer acquire() {
+        final ByteBuffer byteBuffer = pooled.poll();
+        if (byteBuffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooledCount.decrementAndGet();
+        return byteBuffer;
+    }
+
+    void release(ByteBuffer byteBuffer) {
+        if (pooledCount.incrementAndGet() > maxPooledBuffers) {
+            pooledCount.decrementAndGet();
+            return;
+        }
+        byteBuffer.clear();
+        pooled.offer(byteBuffer);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPool{" +
+                "bufferSize=" + bufferSize +
+                ", maxPooledBuffers=" + maxPooledBuffers +
+                ", pooled=" + pooledCount +
+                '}';
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.net.Inet6Address;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Happy Eyeballs (RFC 8305) selection of a reachable client: TCP connections are attempted to the clients in turn, alternating the IPv6 and IPv4 addresses,
+ * the next attempt starting after the attempt delay or as soon as the previous one failed. The first client which connects wins and the other attempts are aborted.
+ * <p>
+ * The raced connections are only used to find a reachable address, they are closed right away and the request is then sent with the client of the winner.
+ * A black-holed address costs the attempt delay instead of the connect timeout of the HTTP client.
+ */
+class ConnectionRacer {
+
+    private static final Logger LOGGER = System.getLogger(ConnectionRacer.class.getName());
+
+    static final Duration DEFAULT_ATTEMPT_DELAY = Duration.ofMillis(250L);
+    // Same as the connect timeout of SingleHostHttpClientBuilder#newHttpClient
+    static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(2L);
+
+    private final long attemptDelayInNanoseconds;
+    private final long connectTimeoutInNanoseconds;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    ConnectionRacer(Duration attemptDelay) {
+        this(attemptDelay, TimingWheelScheduler.shared());
+    }
+
+    ConnectionRacer(Duration attemptDelay, ScheduledExecutorService scheduledExecutorService) {
+        this(attemptDelay, DEFAULT_CONNECT_TIMEOUT, scheduledExecutorService);
+    }
+
+    /**
+     * @param scheduledExecutorService the scheduler of the pool, starting the next attempts and aborting the attempts exceeding the connect timeout
+     */
+    ConnectionRacer(Duration attemptDelay, Duration connectTimeout, ScheduledExecutorService scheduledExecutorService) {
+        if (attemptDelay.isNegative() || attemptDelay.isZero()) {
+            throw new IllegalArgumentException("The connection attempt delay should be positive but was " + attemptDelay);
+        }
+        this.attemptDelayInNanoseconds = attemptDelay.toNanos();
+        this.connectTimeoutInNanoseconds = connectTimeout.toNanos();
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    /**
+     * @param candidates the clients to race, by order of preference
+     * @return the first client which accepted a TCP connection, or a failure with {@link HttpConnectTimeoutException} if none did.
+     */
+    CompletableFuture<SingleIpHttpClient> race(List<SingleIpHttpClient> candidates) {
+        if (candidates.isEmpty()) {
+            return CompletableFuture.failedFuture(new HttpConnectTimeoutException("There is no address to connect to."));
+        }
+        final Race race = new Race(interleaveAddressFamilies(candidates));
+        race.startNextAttempt();
+        return race.winner;
+    }
+
+    /**
+     * Alternate the address families, starting with the family of the preferred address, while keeping the order within each family.
+     */
+    static List<SingleIpHttpClient> interleaveAddressFamilies(List<SingleIpHttpClient> candidates) {
+        final boolean firstIsIpv6 = candidates.get(0).getInetAddress() instanceof Inet6Address;
+        final Iterator<SingleIpHttpClient> preferred = candidates.stream()
+                .filter(candidate -> (candidate.getInetAddress() instanceof Inet6Address) == firstIsIpv6)
+                .collect(Collectors.toList())
+                .iterator();
+        final Iterator<SingleIpHttpClient> other = candidates.stream()
+                .filter(candidate -> (candidate.getInetAddress() instanceof Inet6Address) != firstIsIpv6)
+                .collect(Collectors.toList())
+                .iterator();
+        final List<SingleIpHttpClient> interleaved = new ArrayList<>(candidates.size());
+        while (preferred.hasNext() || other.hasNext()) {
+            if (preferred.hasNext()) {
+                interleaved.add(preferred.next());
+            }
+            if (other.hasNext()) {
+                interleaved.add(other.next());
+            }
+        }
+        return interleaved;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionRacer{" +
+                "attemptDelay=" + Duration.ofNanos(attemptDelayInNanoseconds) +
+                ", connectTimeout=" + Duration.ofNanos(connectTimeoutInNanoseconds) +
+                '}';
+    }
+
+    private class Race {
+        private final List<SingleIpHttpClient> candidates;
+        private final CompletableFuture<SingleIpHttpClient> winner = new CompletableFuture<>();
+        private final AtomicInteger nextAttempt = new AtomicInteger();
+        private final AtomicInteger failedAttempts = new AtomicInteger();
+        private final Queue<AsynchronousSocketChannel> channels = new ConcurrentLinkedQueue<>();
+        private final Queue<ScheduledFuture<?>> timers = new ConcurrentLinkedQueue<>();
+
+        Race(List<SingleIpHttpClient> candidates) {
+            this.candidates = candidates;
+            winner.whenComplete((singleIpHttpClient, throwable) -> {
+                // The timers of the race would otherwise keep the channels until the connect timeout
+                timers.forEach(timer -> timer.cancel(false));
+                channels.forEach(ConnectionRacer::closeQuietly);
+            });
+        }
+
+        void startNextAttempt() {
+            final int index = nextAttempt.getAndIncrement();
+            if (index >= candidates.size() || winner.isDone()) {
+                return;
+            }
+            final SingleIpHttpClient candidate = candidates.get(index);
+            final AsynchronousSocketChannel channel;
+            try {
+                channel = AsynchronousSocketChannel.open();
+            } catch (IOException e) {
+                attemptFailed(candidate, e, new AtomicBoolean());
+                return;
+            }
+            channels.add(channel);
+            // The next attempt starts either after the delay or when this one fails, whichever comes first
+            final AtomicBoolean nextStarted = new AtomicBoolean();
+            try {
+                timers.add(scheduledExecutorService.schedule(() -> startNextAttemptOnce(nextStarted), attemptDelayInNanoseconds, TimeUnit.NANOSECONDS));
+                timers.add(scheduledExecutorService.schedule(() -> closeQuietly(channel), connectTimeoutInNanoseconds, TimeUnit.NANOSECONDS));
+            } catch (RejectedExecutionException e) {
+                // The pool is closed, the attempt cannot be bounded by the connect timeout
+                closeQuietly(channel);
+                attemptFailed(candidate, e, nextStarted);
+                return;
+            }
+            if (winner.isDone()) {
+                // Do not leak the channel and the timers of an attempt started while the race was won
+                timers.forEach(timer -> timer.cancel(false));
+                closeQuietly(channel);
+                return;
+            }
+            channel.connect(candidate.getSocketAddress(), null, new CompletionHandler<Void, Void>() {
+                @Override
+                public void completed(Void result, Void attachment) {
+                    closeQuietly(channel);
+                    if (winner.complete(candidate)) {
+                        LOGGER.log(Level.DEBUG, () -> "Connection race won by " + candidate.getSocketAddress());
+                    }
+                }
+
+                @Override
+                public void failed(Throwable exc, Void attachment) {
+                    closeQuietly(channel);
+                    attemptFailed(candidate, exc, nextStarted);
+                }
+            });
+        }
+
+        private void startNextAttemptOnce(AtomicBoolean nextStarted) {
+            if (nextStarted.compareAndSet(false, true)) {
+                startNextAttempt();
+            }
+        }
+
+        private void attemptFailed(SingleIpHttpClient candidate, Throwable throwable, AtomicBoolean nextStarted) {
+            if (winner.isDone()) {
+                return;
+            }
+            LOGGER.log(Level.DEBUG, () -> "Connection attempt to " + candidate.getSocketAddress() + " failed with `" + throwable + "`");
+            if (failedAttempts.incrementAndGet() == candidates.size()) {
+                final HttpConnectTimeoutException httpConnectTimeoutException = new HttpConnectTimeoutException("Cannot connect to the server, the following address were raced without success " + candidates.stream().map(SingleIpHttpClient::getInetAddress).collect(Collectors.toList()) + ".");
+                httpConnectTimeoutException.initCause(throwable);
+                winner.completeExceptionally(httpConnectTimeoutException);
+            } else {
+                startNextAttemptOnce(nextStarted);
+            }
+        }
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing to do, the connection was only used to check the address is reachable
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * A request sent as the given one but with another timeout or another body publisher.
+ */
+class ForwardingHttpRequest extends HttpRequest {
+
+    private final HttpRequest httpRequest;
+    private final Optional<BodyPublisher> bodyPublisher;
+    private final Optional<Duration> timeout;
+
+    private ForwardingHttpRequest(HttpRequest httpRequest, Optional<BodyPublisher> bodyPublisher, Optional<Duration> timeout) {
+        this.httpRequest = httpRequest;
+        this.bodyPublisher = bodyPublisher;
+        this.timeout = timeout;
+    }
+
+    static HttpRequest withTimeout(HttpRequest httpRequest, Duration timeout) {
+        return new ForwardingHttpRequest(httpRequest, httpRequest.bodyPublisher(), Optional.of(timeout));
+    }
+
+    static HttpRequest withBodyPublisher(HttpRequest httpRequest, BodyPublisher bodyPublisher) {
+        return new ForwardingHttpRequest(httpRequest, Optional.of(bodyPublisher), httpRequest.timeout());
+    }
+
+    @Override
+    public Optional<BodyPublisher> bodyPublisher() {
+        return bodyPublisher;
+    }
+
+    @Override
+    public String method() {
+        return httpRequest.method();
+    }
+
+    @Override
+    public Optional<Duration> timeout() {
+        return timeout;
+    }
+
+    @Override
+    public boolean expectContinue() {
+        return httpRequest.expectContinue();
+    }
+
+    @Override
+    public URI uri() {
+        return httpRequest.uri();
+    }
+
+    @Override
+    public Optional<HttpClient.Version> version() {
+        return httpRequest.version();
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return httpRequest.headers();
+    }
+
+    @Override
+    public String toString() {
+        return httpRequest.toString();
+    }
+}
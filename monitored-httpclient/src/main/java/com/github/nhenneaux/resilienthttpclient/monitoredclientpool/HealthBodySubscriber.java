@@ -0,0 +1,103 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthEvaluator;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Stream the body of a health check response to a {@link HealthEvaluator}, the body is the verdict.
+ * <p>
+ * At most {@link #MAX_BODY_PREFIX_BYTES} are kept, one more chunk is only requested while the evaluator is undecided
+ * and the subscription is cancelled as soon as the verdict is known, the rest of the body is never read.
+ */
+class HealthBodySubscriber implements HttpResponse.BodySubscriber<Boolean> {
+
+    static final int MAX_BODY_PREFIX_BYTES = 4 * 1024;
+
+    private final HealthEvaluator healthEvaluator;
+    private final HttpResponse.ResponseInfo responseInfo;
+    private final ByteBuffer bodyPrefix;
+    private final CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+
+    HealthBodySubscriber(HealthEvaluator healthEvaluator, HttpResponse.ResponseInfo responseInfo, int maxBodyPrefixBytes) {
+        this.healthEvaluator = healthEvaluator;
+        this.responseInfo = responseInfo;
+        this.bodyPrefix = ByteBuffer.allocate(maxBodyPrefixBytes);
+    }
+
+    static HttpResponse.BodyHandler<Boolean> bodyHandler(HealthEvaluator healthEvaluator) {
+        return responseInfo -> new HealthBodySubscriber(healthEvaluator, responseInfo, MAX_BODY_PREFIX_BYTES);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        // The status and the headers may be enough to decide
+        if (!decide(false, false)) {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        if (verdict.isDone()) {
+            return;
+        }
+        for (ByteBuffer byteBuffer : item) {
+            final int length = Math.min(byteBuffer.remaining(), bodyPrefix.remaining());
+            bodyPrefix.put(byteBuffer.slice().limit(length));
+        }
+        if (!decide(!bodyPrefix.hasRemaining(), false)) {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        verdict.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        decide(true, true);
+    }
+
+    @Override
+    public CompletionStage<Boolean> getBody() {
+        return verdict;
+    }
+
+    /**
+     * @return whether the verdict is known.
+     */
+    private boolean decide(boolean last, boolean bodyComplete) {
+        if (verdict.isDone()) {
+            return true;
+        }
+        HealthEvaluator.Verdict evaluated;
+        try {
+            evaluated = healthEvaluator.evaluate(responseInfo, bodyPrefix.duplicate().flip().asReadOnlyBuffer(), last);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            verdict.completeExceptionally(e);
+            return true;
+        }
+        if (evaluated == null || evaluated == HealthEvaluator.Verdict.UNDECIDED) {
+            if (!last) {
+                return false;
+            }
+            evaluated = HealthEvaluator.statusCode().evaluate(responseInfo, bodyPrefix, true);
+        }
+        if (!bodyComplete) {
+            subscription.cancel();
+        }
+        verdict.complete(evaluated == HealthEvaluator.Verdict.HEALTHY);
+        return true;
+    }
+}
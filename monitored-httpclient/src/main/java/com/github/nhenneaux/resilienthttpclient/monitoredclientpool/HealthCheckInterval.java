@@ -0,0 +1,57 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.time.Duration;
+
+/**
+ * Delay before the next health check of an address.
+ * <p>
+ * A fixed interval is always the configured period. An adaptive interval drops to a fraction of the period as soon as the health
+ * of the address changes, so that a failure is confirmed and a recovery detected quickly, then doubles after each health check
+ * with the same outcome up to a multiple of the period, so that long-stable and long-dead addresses cost fewer health checks.
+ */
+class HealthCheckInterval {
+
+    static final int ADAPTIVE_MIN_DIVISOR = 4;
+    static final int ADAPTIVE_MAX_MULTIPLIER = 8;
+
+    private final boolean adaptive;
+    private final long periodInNanoseconds;
+    private final long minInNanoseconds;
+    private final long maxInNanoseconds;
+    private Boolean lastHealthy;
+    private long currentInNanoseconds;
+
+    HealthCheckInterval(Duration period, boolean adaptive) {
+        this.adaptive = adaptive;
+        this.periodInNanoseconds = period.toNanos();
+        this.minInNanoseconds = Math.max(1L, periodInNanoseconds / ADAPTIVE_MIN_DIVISOR);
+        this.maxInNanoseconds = periodInNanoseconds * ADAPTIVE_MAX_MULTIPLIER;
+        this.currentInNanoseconds = periodInNanoseconds;
+    }
+
+    /**
+     * @param healthy the outcome of the last health check
+     * @return the delay before the next health check.
+     */
+    synchronized Duration next(boolean healthy) {
+        if (!adaptive) {
+            return Duration.ofNanos(periodInNanoseconds);
+        }
+        if (lastHealthy == null || lastHealthy != healthy) {
+            currentInNanoseconds = minInNanoseconds;
+        } else {
+            currentInNanoseconds = Math.min(2 * currentInNanoseconds, maxInNanoseconds);
+        }
+        lastHealthy = healthy;
+        return Duration.ofNanos(currentInNanoseconds);
+    }
+
+    @Override
+    public String toString() {
+        return "HealthCheckInterval{" +
+                "adaptive=" + adaptive +
+                ", period=" + Duration.ofNanos(periodInNanoseconds) +
+                ", current=" + Duration.ofNanos(currentInNanoseconds) +
+                '}';
+    }
+}
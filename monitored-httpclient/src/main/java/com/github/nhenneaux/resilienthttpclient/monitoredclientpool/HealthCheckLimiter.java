@@ -0,0 +1,111 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limit the number of health checks in flight without blocking any thread: a health check exceeding the limit is queued
+ * and sent as soon as another one completes.
+ * <p>
+ * The limiter is shared by all the clients of a pool.
+ */
+class HealthCheckLimiter {
+
+    static final int DEFAULT_MAX_CONCURRENT_HEALTH_CHECKS = 64;
+    static final HealthCheckLimiter UNLIMITED = new HealthCheckLimiter(Integer.MAX_VALUE);
+
+    private final int maxConcurrentHealthChecks;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    // Number of drain requests not handled yet, the queue is drained by a single caller at a time
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    HealthCheckLimiter(int maxConcurrentHealthChecks) {
+        if (maxConcurrentHealthChecks < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent health checks should be positive but was " + maxConcurrentHealthChecks);
+        }
+        this.maxConcurrentHealthChecks = maxConcurrentHealthChecks;
+    }
+
+    /**
+     * @param healthCheck send the health check, it should not block
+     * @return the outcome of the health check, once it was sent and completed.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> healthCheck) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        pending.offer(() -> {
+            final CompletableFuture<T> sent;
+            try {
+                sent = Objects.requireNonNull(healthCheck.get(), "The health check was not sent");
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            sent.whenComplete((value, throwable) -> {
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        drain();
+        return result;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * A health check completing synchronously releases its slot while it is drained, the nested drain only records the request
+     * and the enclosing loop sends the next health check, so that the stack does not grow with the queue.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            sendPending();
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void sendPending() {
+        while (!pending.isEmpty()) {
+            final int current = inFlight.get();
+            if (current >= maxConcurrentHealthChecks) {
+                return;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                final Runnable next = pending.poll();
+                if (next == null) {
+                    inFlight.decrementAndGet();
+                } else {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HealthCheckLimiter{" +
+                "maxConcurrentHealthChecks=" + maxConcurrentHealthChecks +
+                ", inFlight=" + inFlight +
+                ", pending=" + pending.size() +
+                '}';
+    }
+}
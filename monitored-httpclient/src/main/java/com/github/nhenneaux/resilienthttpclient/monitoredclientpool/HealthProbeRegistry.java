@@ -0,0 +1,146 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Share the health checks of the clients probing the same target, e.g. the pools of several virtual hosts behind the same load balancer.
+ * <p>
+ * The clients subscribe with the key of their probe. A probe sent by one subscriber is joined by the others while it is in flight,
+ * its result is published to every subscriber and reused by the ones checking again before it gets stale.
+ * The probe traffic is then divided by the number of subscribers. The registry entry is dropped with its last subscriber.
+ */
+class HealthProbeRegistry {
+
+    private static final System.Logger LOGGER = System.getLogger(HealthProbeRegistry.class.getName());
+    private static final HealthProbeRegistry SHARED = new HealthProbeRegistry();
+
+    private final ConcurrentMap<Object, SharedProbe<?>> probes = new ConcurrentHashMap<>();
+
+    static HealthProbeRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param key        identify the target of the probe, the subscribers with equal keys share their probes
+     * @param subscriber called with the result of each probe of the key
+     * @return the subscription to close once the subscriber stops checking the health.
+     */
+    @SuppressWarnings("unchecked")
+    <T> Subscription<T> subscribe(Object key, Subscriber<T> subscriber) {
+        final SharedProbe<T> sharedProbe = (SharedProbe<T>) probes.compute(Objects.requireNonNull(key), (ignored, existing) -> {
+            final SharedProbe<T> probe = existing == null ? new SharedProbe<>() : (SharedProbe<T>) existing;
+            probe.subscribers.add(subscriber);
+            return probe;
+        });
+        return new Subscription<>(this, key, sharedProbe, subscriber);
+    }
+
+    int subscriberCount(Object key) {
+        final SharedProbe<?> sharedProbe = probes.get(key);
+        return sharedProbe == null ? 0 : sharedProbe.subscribers.size();
+    }
+
+    private <T> void unsubscribe(Object key, Subscriber<T> subscriber) {
+        probes.computeIfPresent(key, (ignored, existing) -> {
+            existing.subscribers.remove(subscriber);
+            return existing.subscribers.isEmpty() ? null : existing;
+        });
+    }
+
+    @FunctionalInterface
+    interface Subscriber<T> {
+        /**
+         * @param result         the result of the probe, null when it failed
+         * @param failure        the failure of the probe, null when it succeeded
+         * @param startNanoTime the time at which the probe was sent
+         */
+        void onProbe(T result, Throwable failure, long startNanoTime);
+    }
+
+    static final class Subscription<T> implements AutoCloseable {
+        private final HealthProbeRegistry registry;
+        private final Object key;
+        private final SharedProbe<T> sharedProbe;
+        private final Subscriber<T> subscriber;
+
+        private Subscription(HealthProbeRegistry registry, Object key, SharedProbe<T> sharedProbe, Subscriber<T> subscriber) {
+            this.registry = registry;
+            this.key = key;
+            this.sharedProbe = sharedProbe;
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Join the probe in flight, reuse the last result when it is recent enough or send a new probe.
+         *
+         * @param sender                send the probe, it should not block
+         * @param maxAgeInNanoseconds the age up to which the last result is reused, zero to always join or send a probe
+         * @return completed once the result is published to the subscribers, it never fails.
+         */
+        CompletableFuture<Void> probe(Supplier<CompletableFuture<T>> sender, long maxAgeInNanoseconds) {
+            return sharedProbe.probe(sender, maxAgeInNanoseconds);
+        }
+
+        @Override
+        public void close() {
+            registry.unsubscribe(key, subscriber);
+        }
+    }
+
+    private static final class SharedProbe<T> {
+        private final List<Subscriber<T>> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+        private volatile boolean published;
+        private volatile long lastPublishedNanoTime;
+
+        private CompletableFuture<Void> probe(Supplier<CompletableFuture<T>> sender, long maxAgeInNanoseconds) {
+            while (true) {
+                final CompletableFuture<Void> current = inFlight.get();
+                if (current != null) {
+                    return current;
+                }
+                if (published && System.nanoTime() - lastPublishedNanoTime < maxAgeInNanoseconds) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                final CompletableFuture<Void> probe = new CompletableFuture<>();
+                if (inFlight.compareAndSet(null, probe)) {
+                    send(sender, probe);
+                    return probe;
+                }
+            }
+        }
+
+        private void send(Supplier<CompletableFuture<T>> sender, CompletableFuture<Void> probe) {
+            final long start = System.nanoTime();
+            CompletableFuture<T> sent;
+            try {
+                sent = Objects.requireNonNull(sender.get(), "The probe was not sent");
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((result, failure) -> {
+                // The result is published before the probe is done, the subscribers joining it read their updated status
+                for (Subscriber<T> subscriber : subscribers) {
+                    try {
+                        subscriber.onProbe(result, failure, start);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, () -> "A subscriber failed to handle the shared health probe", e);
+                    }
+                }
+                lastPublishedNanoTime = System.nanoTime();
+                published = true;
+                inFlight.set(null);
+                probe.complete(null);
+            });
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.time.Duration;
+
+/**
+ * Configure the hedging of idempotent GET requests: when the first client has not answered within the hedge delay,
+ * the same request is sent to another healthy client, the first response wins and the other request is cancelled.
+ * <p>
+ * The hedged requests are limited by a budget, a percentage of the requests, so that hedging cannot amplify the load during an incident.
+ *
+ * @see HttpClientPoolBuilder#withHedgingPolicy(HedgingPolicy)
+ */
+@SuppressWarnings("WeakerAccess")
+// Used outside library
+public final class HedgingPolicy {
+
+    private final Duration delay;
+    private final double percentile;
+    private final int budgetPercent;
+
+    private HedgingPolicy(Duration delay, double percentile, int budgetPercent) {
+        if (delay.isNegative()) {
+            throw new IllegalArgumentException("The hedge delay should be positive or zero but was " + delay);
+        }
+        if (budgetPercent < 1 || budgetPercent > 100) {
+            throw new IllegalArgumentException("The hedge budget should be a percentage between 1 and 100 but was " + budgetPercent);
+        }
+        this.delay = delay;
+        this.percentile = percentile;
+        this.budgetPercent = budgetPercent;
+    }
+
+    /**
+     * @param delay         the delay after which a request is hedged
+     * @param budgetPercent the maximum percentage of requests which are hedged
+     * @return a policy hedging the requests after a fixed delay.
+     */
+    public static HedgingPolicy fixedDelay(Duration delay, int budgetPercent) {
+        return new HedgingPolicy(delay, Double.NaN, budgetPercent);
+    }
+
+    /**
+     * @param percentile    the percentile of the observed response times after which a request is hedged, for example 95
+     * @param initialDelay  the delay used until enough response times are observed
+     * @param budgetPercent the maximum percentage of requests which are hedged
+     * @return a policy hedging the requests slower than the given percentile of the recent response times.
+     */
+    public static HedgingPolicy percentileDelay(double percentile, Duration initialDelay, int budgetPercent) {
+        if (!(percentile > 0D && percentile < 100D)) {
+            throw new IllegalArgumentException("The hedge percentile should be between 0 and 100 exclusive but was " + percentile);
+        }
+        return new HedgingPolicy(initialDelay, percentile, budgetPercent);
+    }
+
+    /**
+     * The fixed delay, or the initial delay for a percentile policy.
+     */
+    public Duration getDelay() {
+        return delay;
+    }
+
+    /**
+     * The percentile of the response times used as delay, {@code NaN} for a fixed delay.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * The maximum percentage of requests which are hedged.
+     */
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    boolean isPercentileDelay() {
+        return !Double.isNaN(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy{" +
+                "delay=" + delay +
+                ", percentile=" + percentile +
+                ", budgetPercent=" + budgetPercent +
+                '}';
+    }
+}
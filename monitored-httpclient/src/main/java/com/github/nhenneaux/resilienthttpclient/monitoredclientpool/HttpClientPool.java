@@ -2,17 +2,25 @@ package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.DnsLookupWrapper;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServiceEndpoint;
 
 import java.lang.System.Logger;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.http.HttpClient;
 import java.security.Security;
+import java.time.Duration;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -24,50 +32,187 @@ import static java.util.function.Predicate.not;
 /**
  * A HTTP clients pool which keeps internally a round robin list of HTTP clients.<br>
  * Each HTTP client represents a connection to the acquirer using a distinct IP address, taken from endpoint resolving.<br>
- * The number of distinct HTTP clients in this connection pool is equal to the number of different IP addresses for the given acquirer hostname.
+ * The number of distinct HTTP clients in this connection pool is equal to the number of different IP addresses for the given acquirer hostname.<br>
+ * When the pool resolves the SRV records of a service, there is a HTTP client for each distinct IP address and port of their targets.
  */
 public class HttpClientPool implements AutoCloseable {
 
     private static final Logger LOGGER = getLogger(HttpClientPool.class.getSimpleName());
+    /**
+     * The records with a shorter TTL, e.g. zero, are not resolved again more often than that.
+     */
+    static final Duration MIN_DNS_EXPIRY_REFRESH_DELAY = Duration.ofSeconds(1L);
 
     private final AtomicReference<RoundRobinPool> httpClientsCache;
 
     private final ServerConfiguration serverConfiguration;
+    private final String serviceRecordName;
     private final ScheduledFuture<?> scheduledFutureDnsRefresh;
+    private final DnsLookupWrapper.Subscription dnsSubscription;
+    private volatile ScheduledFuture<?> scheduledFutureDnsExpiryRefresh;
+    private volatile boolean closed;
+    private final RequestHedger requestHedger;
+    private final ConnectionRacer connectionRacer;
+    private final RequestRetrier requestRetrier;
+    private final ScheduledExecutorService scheduledExecutorService;
 
     protected HttpClientPool(
             final DnsLookupWrapper dnsLookupWrapper,
             final ScheduledExecutorService scheduledExecutorService,
             final ServerConfiguration serverConfiguration,
             final Function<InetAddress, HttpClient> singleHttpClientProvider
+    ) {
+        this(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, singleHttpClientProvider, LoadBalancingStrategy.roundRobin(), null, null, null, HealthCheckLimiter.DEFAULT_MAX_CONCURRENT_HEALTH_CHECKS);
+    }
+
+    /**
+     * @param hedgingPolicy        the hedging of the GET requests sent by {@link #resilientClient()}, {@code null} to disable hedging
+     * @param happyEyeballsDelay   the delay between the connection attempts raced by {@link #resilientClient()} to the addresses, {@code null} to try them in turn
+     * @param retryPolicy          the retries of the idempotent requests sent by {@link #resilientClient()}, {@code null} to only fail over on connection failures
+     * @param maxConcurrentHealthChecks the maximum number of health checks in flight for the whole pool, the others wait for one to complete
+     */
+    protected HttpClientPool(
+            final DnsLookupWrapper dnsLookupWrapper,
+            final ScheduledExecutorService scheduledExecutorService,
+            final ServerConfiguration serverConfiguration,
+            final Function<InetAddress, HttpClient> singleHttpClientProvider,
+            final LoadBalancingStrategy loadBalancingStrategy,
+            final HedgingPolicy hedgingPolicy,
+            final Duration happyEyeballsDelay,
+            final RetryPolicy retryPolicy,
+            final int maxConcurrentHealthChecks
+    ) {
+        this(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, socketAddress -> singleHttpClientProvider.apply(socketAddress.getAddress()), loadBalancingStrategy, hedgingPolicy, happyEyeballsDelay, retryPolicy, maxConcurrentHealthChecks, null);
+    }
+
+    /**
+     * @param singleHttpClientProvider the client sending the requests to the given IP address and port
+     * @param serviceRecordName        the name of the SRV records resolved instead of the address records of the hostname, e.g. {@code _https._tcp.example.com},
+     *                                 {@code null} to resolve the hostname
+     */
+    protected HttpClientPool(
+            final DnsLookupWrapper dnsLookupWrapper,
+            final ScheduledExecutorService scheduledExecutorService,
+            final ServerConfiguration serverConfiguration,
+            final Function<InetSocketAddress, HttpClient> singleHttpClientProvider,
+            final LoadBalancingStrategy loadBalancingStrategy,
+            final HedgingPolicy hedgingPolicy,
+            final Duration happyEyeballsDelay,
+            final RetryPolicy retryPolicy,
+            final int maxConcurrentHealthChecks,
+            final String serviceRecordName
     ) {
         this.serverConfiguration = serverConfiguration;
+        this.serviceRecordName = serviceRecordName;
         this.httpClientsCache = new AtomicReference<>();
+        this.requestHedger = Optional.ofNullable(hedgingPolicy).map(policy -> new RequestHedger(policy, scheduledExecutorService)).orElse(null);
+        this.connectionRacer = Optional.ofNullable(happyEyeballsDelay).map(attemptDelay -> new ConnectionRacer(attemptDelay, scheduledExecutorService)).orElse(null);
+        this.requestRetrier = Optional.ofNullable(retryPolicy).map(RequestRetrier::new).orElse(null);
+        this.scheduledExecutorService = scheduledExecutorService;
+        final HealthCheckLimiter healthCheckLimiter = new HealthCheckLimiter(maxConcurrentHealthChecks);
+
+        if (dnsLookupWrapper.isCachedByJvm()) {
+            checkDnsCacheSecurityProperties();
+        }
 
-        checkDnsCacheSecurityProperties();
-
+        final DnsRefresher dnsRefresher = new DnsRefresher(
+                dnsLookupWrapper,
+                singleHttpClientProvider,
+                scheduledExecutorService,
+                loadBalancingStrategy,
+                healthCheckLimiter
+        );
 
-        // We schedule a refresh of DNS lookup to catch this change
+        // We schedule a refresh of DNS lookup to catch this change, unless the DNS lookup wrapper notifies it
         // Existing HTTP clients for which InetAddress is still present in the list will be kept
         // HttpClients for which the ip has disappeared will be closed
         // For the new IPs new Http clients will be created
-        final long dnsLookupRefreshPeriodInSeconds = serverConfiguration.getDnsLookupRefreshPeriodInSeconds();
+        // When the changes are notified, the list is still reconciled at the same period to replace the clients exceeding the failure threshold
+        this.dnsSubscription = serviceRecordName != null ? null : dnsLookupWrapper.subscribe(serverConfiguration.getHostname(), dnsRefresher::apply).orElse(null);
+        final long dnsLookupRefreshPeriodInMilliseconds = serverConfiguration.getDnsLookupRefreshPeriod().toMillis();
+        final Runnable periodicRefresh = dnsSubscription != null ? dnsRefresher::reconcile : dnsRefresher;
         this.scheduledFutureDnsRefresh = scheduledExecutorService.scheduleAtFixedRate(
-                () -> refreshTheListWrappedInTryCatch(
-                        dnsLookupWrapper,
-                        serverConfiguration,
-                        httpClientsCache,
-                        singleHttpClientProvider,
-                        scheduledExecutorService
-                ),
-                dnsLookupRefreshPeriodInSeconds,
-                dnsLookupRefreshPeriodInSeconds,
-                TimeUnit.SECONDS
+                periodicRefresh,
+                dnsLookupRefreshPeriodInMilliseconds,
+                dnsLookupRefreshPeriodInMilliseconds,
+                TimeUnit.MILLISECONDS
         );
 
         // We invoke the same method here as in the scheduler. We don't want constructor to crush in case of a temporary issue.
         // However, for misconfiguration problems it will re-throw an exception and crush the constructor.
-        refreshTheListWrappedInTryCatch(dnsLookupWrapper, serverConfiguration, httpClientsCache, singleHttpClientProvider, scheduledExecutorService);
+        awaitFirstDnsRefresh(dnsRefresher.refresh());
+        awaitFirstHealthChecks();
+    }
+
+    /**
+     * When the resolver knows the TTL of the records and they expire before the next periodic refresh, the name is resolved again at their expiry.
+     * The DNS lookup refresh period remains the maximum time between two lookups.
+     */
+    private void scheduleRefreshOnExpiry(
+            final DnsLookupWrapper dnsLookupWrapper,
+            final ScheduledExecutorService scheduledExecutorService,
+            final DnsRefresher dnsRefresher
+    ) {
+        final Optional<Duration> remainingTimeToLive = dnsLookupWrapper.getRemainingTimeToLive(lookupName());
+        if (closed || dnsSubscription != null || remainingTimeToLive.isEmpty()) {
+            return;
+        }
+        final long delayInMilliseconds = Math.max(MIN_DNS_EXPIRY_REFRESH_DELAY.toMillis(), remainingTimeToLive.get().toMillis());
+        if (delayInMilliseconds >= serverConfiguration.getDnsLookupRefreshPeriod().toMillis()) {
+            return;
+        }
+        final ScheduledFuture<?> previousExpiryRefresh = scheduledFutureDnsExpiryRefresh;
+        if (previousExpiryRefresh != null) {
+            previousExpiryRefresh.cancel(false);
+        }
+        scheduledFutureDnsExpiryRefresh = scheduledExecutorService.schedule(dnsRefresher, delayInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private String lookupName() {
+        return serviceRecordName != null ? serviceRecordName : serverConfiguration.getHostname();
+    }
+
+    /**
+     * The pool is only usable once the name is resolved, the lookups are bounded by the timeout of the {@link DnsLookupWrapper}.
+     */
+    private static void awaitFirstDnsRefresh(final CompletableFuture<Void> firstDnsRefresh) {
+        try {
+            firstDnsRefresh.join();
+        } catch (CompletionException e) {
+            if (isMisconfiguration(e.getCause())) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * An invalid name or a wrapper which cannot resolve the SRV records is a misconfiguration, it fails the pool instead of being retried.
+     */
+    private static boolean isMisconfiguration(final Throwable throwable) {
+        return throwable instanceof IllegalArgumentException || throwable instanceof UnsupportedOperationException;
+    }
+
+    /**
+     * The health checks are sent in the background, the pool waits for the first ones so that it can be used right after it is built.
+     * The addresses checked later join the rotation as soon as they are healthy.
+     */
+    private void awaitFirstHealthChecks() {
+        final CompletableFuture<?>[] firstHealthChecks = client().getList().stream()
+                .map(SingleIpHttpClient::getFirstHealthCheck)
+                .toArray(CompletableFuture[]::new);
+        final long healthReadTimeoutInMilliseconds = serverConfiguration.getHealthReadTimeoutInMilliseconds() >= 0 ? serverConfiguration.getHealthReadTimeoutInMilliseconds() : ServerConfiguration.DEFAULT_HEALTH_READ_TIMEOUT_IN_MILLISECONDS;
+        final long timeoutInMilliseconds = healthReadTimeoutInMilliseconds + ConnectionRacer.DEFAULT_CONNECT_TIMEOUT.toMillis();
+        try {
+            CompletableFuture.allOf(firstHealthChecks).get(timeoutInMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.WARNING, () -> "The first health checks of " + serverConfiguration.getHostname() + " are not completed after " + timeoutInMilliseconds + " ms, the addresses will join the pool once healthy.");
+        } catch (ExecutionException e) {
+            // The health checks never fail, an unhealthy address is only left out of the rotation
+            LOGGER.log(Level.WARNING, () -> "Unexpected failure of the first health checks of " + serverConfiguration.getHostname(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public static HttpClientPoolBuilder builder(final ServerConfiguration serverConfiguration) {
@@ -91,14 +236,16 @@ public class HttpClientPool implements AutoCloseable {
     }
 
     private static void refreshTheListWrappedInTryCatch(
-            final DnsLookupWrapper dnsLookupWrapper,
+            final List<ServiceEndpoint> updatedLookup,
             final ServerConfiguration serverConfiguration,
             final AtomicReference<RoundRobinPool> httpClientsCache,
-            final Function<InetAddress, HttpClient> singleHttpClientProvider,
-            final ScheduledExecutorService scheduledExecutorService
+            final Function<InetSocketAddress, HttpClient> singleHttpClientProvider,
+            final ScheduledExecutorService scheduledExecutorService,
+            final LoadBalancingStrategy loadBalancingStrategy,
+            final HealthCheckLimiter healthCheckLimiter
     ) {
         try {
-            refreshTheList(dnsLookupWrapper, serverConfiguration, httpClientsCache, singleHttpClientProvider, scheduledExecutorService);
+            refreshTheList(updatedLookup, serverConfiguration, httpClientsCache, singleHttpClientProvider, scheduledExecutorService, loadBalancingStrategy, healthCheckLimiter);
         } catch (IllegalArgumentException e) {
             //  IllegalArgumentException means a misconfiguration and has to be re-thrown immediately
             throw e;
@@ -108,11 +255,13 @@ public class HttpClientPool implements AutoCloseable {
     }
 
     private static void refreshTheList(
-            final DnsLookupWrapper dnsLookupWrapper,
+            final List<ServiceEndpoint> updatedLookup,
             final ServerConfiguration serverConfiguration,
             final AtomicReference<RoundRobinPool> httpClientsCache,
-            final Function<InetAddress, HttpClient> singleHttpClientProvider,
-            final ScheduledExecutorService scheduledExecutorService
+            final Function<InetSocketAddress, HttpClient> singleHttpClientProvider,
+            final ScheduledExecutorService scheduledExecutorService,
+            final LoadBalancingStrategy loadBalancingStrategy,
+            final HealthCheckLimiter healthCheckLimiter
     ) {
         final List<SingleIpHttpClient> oldListOfClients = Optional.ofNullable(httpClientsCache.get())
                 .orElse(RoundRobinPool.EMPTY)
@@ -120,7 +269,6 @@ public class HttpClientPool implements AutoCloseable {
 
         final String hostname = serverConfiguration.getHostname();
 
-        final Set<InetAddress> updatedLookup = dnsLookupWrapper.getInetAddressesByDnsLookUp(hostname);
         if (updatedLookup.isEmpty()) {
             if (oldListOfClients.isEmpty()) {
                 LOGGER.log(Level.ERROR, "The DNS lookup has returned an empty list of IPs. There is no client in the pool.");
@@ -131,17 +279,18 @@ public class HttpClientPool implements AutoCloseable {
         }
 
         final List<SingleIpHttpClient> refreshedSingleIpHttpClients = updatedLookup.stream()
-                .map(inetAddress ->
+                .map(serviceEndpoint ->
                         useOldClientOrCreateNew(
                                 singleHttpClientProvider,
-                                inetAddress,
+                                serviceEndpoint,
                                 oldListOfClients,
                                 serverConfiguration,
-                                scheduledExecutorService
+                                scheduledExecutorService,
+                                healthCheckLimiter
                         )
                 ).collect(Collectors.toUnmodifiableList());
 
-        httpClientsCache.set(new RoundRobinPool(refreshedSingleIpHttpClients));
+        httpClientsCache.set(new RoundRobinPool(refreshedSingleIpHttpClients, loadBalancingStrategy));
 
         // Close those clients whose inet address is not present anymore
         oldListOfClients.stream()
@@ -161,26 +310,31 @@ public class HttpClientPool implements AutoCloseable {
     }
 
     private static SingleIpHttpClient useOldClientOrCreateNew(
-            final Function<InetAddress, HttpClient> singleHttpClientProvider,
-            final InetAddress inetAddress,
+            final Function<InetSocketAddress, HttpClient> singleHttpClientProvider,
+            final ServiceEndpoint serviceEndpoint,
             final List<SingleIpHttpClient> oldListOfClients,
             final ServerConfiguration serverConfiguration,
-            final ScheduledExecutorService scheduledExecutorService
+            final ScheduledExecutorService scheduledExecutorService,
+            final HealthCheckLimiter healthCheckLimiter
     ) {
-        // Try to find the client with the same inetAddress and requires no refreshing in the old list and reuse it or build a new one
-        return oldListOfClients.stream()
-                .filter(oldClient -> oldClient.getInetAddress().getHostAddress().equals(inetAddress.getHostAddress()))
-                .filter(oldClient -> healthyFailureCount(oldClient, serverConfiguration))
-                .findAny()
-                .orElseGet(() -> {
-                    LOGGER.log(Level.INFO, () -> "New IP found or too many failure for address `" + inetAddress.getHostAddress() + "` and hostname `" + serverConfiguration.getHostname() + "`, creating a new HttpClient");
-                    return new SingleIpHttpClient(
-                            singleHttpClientProvider.apply(inetAddress),
-                            inetAddress,
-                            serverConfiguration,
-                            scheduledExecutorService
-                    );
-                });
+        // Try to find the client with the same inetAddress and port and requires no refreshing in the old list and reuse it or build a new one
+        final InetSocketAddress socketAddress = serviceEndpoint.getSocketAddress();
+        final Optional<SingleIpHttpClient> oldClient = oldListOfClients.stream()
+                .filter(client -> client.getSocketAddress().equals(socketAddress))
+                .filter(client -> healthyFailureCount(client, serverConfiguration))
+                .findAny();
+        if (oldClient.isPresent()) {
+            oldClient.get().updateServiceRecord(serviceEndpoint.getPriority(), serviceEndpoint.getWeight());
+            return oldClient.get();
+        }
+        LOGGER.log(Level.INFO, () -> "New IP found or too many failure for address `" + socketAddress.getAddress().getHostAddress() + "` with port `" + socketAddress.getPort() + "` and hostname `" + serverConfiguration.getHostname() + "`, creating a new HttpClient");
+        return new SingleIpHttpClient(
+                singleHttpClientProvider.apply(socketAddress),
+                serviceEndpoint,
+                serverConfiguration,
+                scheduledExecutorService,
+                healthCheckLimiter
+        );
     }
 
     private void checkDnsCacheSecurityProperties() {
@@ -193,7 +347,8 @@ public class HttpClientPool implements AutoCloseable {
 
     /**
      * Take the next HTTP client from the pool.<br>
-     * Please note that it uses a round-robin internally. So once it reaches the end of the list it starts returning items from the beginning and so on.
+     * Please note that it uses a round-robin by default. So once it reaches the end of the list it starts returning items from the beginning and so on.
+     * Another {@link LoadBalancingStrategy} can be configured with {@link HttpClientPoolBuilder#withLoadBalancingStrategy(LoadBalancingStrategy)}.
      */
     public Optional<SingleIpHttpClient> getNextHttpClient() {
         return client().next();
@@ -207,9 +362,24 @@ public class HttpClientPool implements AutoCloseable {
      * <b>Monitored</b> each IP connection to the server is monitored in HTTP
      * <p>
      * <b>Load balanced</b>  the traffic is load balanced on DNS records
+     * <p>
+     * <b>Hedged</b> if a {@link HedgingPolicy} is configured, a slow GET request is sent again to another IP
+     * <p>
+     * <b>Happy Eyeballs</b> if enabled, the connections to the IPs are raced on failover instead of waiting for the connect timeout of each IP
+     * <p>
+     * <b>Retried</b> if a {@link RetryPolicy} is configured, an idempotent request failing after the connection is retried on another IP
      */
     public HttpClient resilientClient() {
-        return new ResilientClient(this::client);
+        return new ResilientClient(this::client, requestHedger, connectionRacer, requestRetrier, TimeUnit.MILLISECONDS.toNanos(serverConfiguration.getRequestDeadlineInMilliseconds()), scheduledExecutorService);
+    }
+
+    /**
+     * Return a resilient client, as {@link #resilientClient()}, bounding each request and all its failover attempts by the given deadline
+     * instead of {@link ServerConfiguration#getRequestDeadlineInMilliseconds()}.
+     * The client is cheap to create, it can be created for each call.
+     */
+    public HttpClient resilientClient(Duration requestDeadline) {
+        return new ResilientClient(this::client, requestHedger, connectionRacer, requestRetrier, -1L, scheduledExecutorService).withRequestDeadline(requestDeadline);
     }
 
     private RoundRobinPool client() {
@@ -257,7 +427,129 @@ public class HttpClientPool implements AutoCloseable {
 
     @Override
     public void close() {
-        scheduledFutureDnsRefresh.cancel(true);
+        closed = true;
+        Optional.ofNullable(dnsSubscription).ifPresent(DnsLookupWrapper.Subscription::close);
+        Optional.ofNullable(scheduledFutureDnsRefresh).ifPresent(scheduledFuture -> scheduledFuture.cancel(true));
+        Optional.ofNullable(scheduledFutureDnsExpiryRefresh).ifPresent(scheduledFuture -> scheduledFuture.cancel(true));
         client().getList().forEach(SingleIpHttpClient::close);
     }
+
+    /**
+     * Resolve the name and refresh the list of clients once the lookup completes.
+     * The lookup does not run on the scheduler, a slow DNS server does not delay the health checks scheduled with the refreshes.
+     */
+    private final class DnsRefresher implements Runnable {
+        private final DnsLookupWrapper dnsLookupWrapper;
+        private final Function<InetSocketAddress, HttpClient> singleHttpClientProvider;
+        private final ScheduledExecutorService scheduledExecutorService;
+        private final LoadBalancingStrategy loadBalancingStrategy;
+        private final HealthCheckLimiter healthCheckLimiter;
+        private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+
+        private DnsRefresher(
+                final DnsLookupWrapper dnsLookupWrapper,
+                final Function<InetSocketAddress, HttpClient> singleHttpClientProvider,
+                final ScheduledExecutorService scheduledExecutorService,
+                final LoadBalancingStrategy loadBalancingStrategy,
+                final HealthCheckLimiter healthCheckLimiter
+        ) {
+            this.dnsLookupWrapper = dnsLookupWrapper;
+            this.singleHttpClientProvider = singleHttpClientProvider;
+            this.scheduledExecutorService = scheduledExecutorService;
+            this.loadBalancingStrategy = loadBalancingStrategy;
+            this.healthCheckLimiter = healthCheckLimiter;
+        }
+
+        @Override
+        public void run() {
+            refresh();
+        }
+
+        /**
+         * Refresh the list of clients with the addresses of a notified lookup.
+         */
+        private void apply(final Set<InetAddress> updatedLookup) {
+            applyEndpoints(endpoints(updatedLookup));
+        }
+
+        /**
+         * Refresh the list of clients with its current endpoints, without a lookup, when the changes of the addresses are notified.
+         * The clients exceeding the failure threshold are replaced as on each lookup.
+         */
+        private void reconcile() {
+            final List<ServiceEndpoint> currentEndpoints = client().getList().stream()
+                    .map(singleIpHttpClient -> new ServiceEndpoint(singleIpHttpClient.getSocketAddress(), singleIpHttpClient.getPriority(), singleIpHttpClient.getWeight()))
+                    .collect(Collectors.toUnmodifiableList());
+            if (!currentEndpoints.isEmpty()) {
+                applyEndpoints(currentEndpoints);
+            }
+        }
+
+        /**
+         * Refresh the list of clients with the endpoints of a lookup, either the one of this refresher or a notified one.
+         */
+        private synchronized void applyEndpoints(final List<ServiceEndpoint> updatedLookup) {
+            if (closed) {
+                return;
+            }
+            refreshTheListWrappedInTryCatch(updatedLookup, serverConfiguration, httpClientsCache, singleHttpClientProvider, scheduledExecutorService, loadBalancingStrategy, healthCheckLimiter);
+        }
+
+        /**
+         * The addresses of the hostname are all reached with the port of the configuration, with the same priority and weight.
+         */
+        private List<ServiceEndpoint> endpoints(final Set<InetAddress> addresses) {
+            final int port = SingleIpHttpClient.serverPort(serverConfiguration);
+            return addresses.stream()
+                    .map(inetAddress -> new ServiceEndpoint(new InetSocketAddress(inetAddress, port), 0, 1))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+
+        private CompletableFuture<List<ServiceEndpoint>> lookup() {
+            if (serviceRecordName != null) {
+                return Objects.requireNonNull(dnsLookupWrapper.getServiceEndpointsByDnsLookUpAsync(serviceRecordName), "The DNS lookup was not started");
+            }
+            return Objects.requireNonNull(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname()), "The DNS lookup was not started")
+                    .thenApply(this::endpoints);
+        }
+
+        /**
+         * @return completed once the list is refreshed, failed only with an {@link IllegalArgumentException} or an {@link UnsupportedOperationException} for a misconfiguration.
+         * The refresh in flight is returned instead of starting another lookup.
+         */
+        private CompletableFuture<Void> refresh() {
+            final CompletableFuture<Void> refreshed = new CompletableFuture<>();
+            final CompletableFuture<Void> previous = inFlight.compareAndExchange(null, refreshed);
+            if (previous != null) {
+                LOGGER.log(Level.DEBUG, () -> "The DNS lookup of " + lookupName() + " is still in flight, skipping this refresh.");
+                return previous;
+            }
+            CompletableFuture<List<ServiceEndpoint>> lookup;
+            try {
+                lookup = lookup();
+            } catch (RuntimeException e) {
+                lookup = CompletableFuture.failedFuture(e);
+            }
+            lookup.whenComplete((updatedLookup, failure) -> {
+                try {
+                    if (failure == null) {
+                        applyEndpoints(updatedLookup);
+                    } else {
+                        final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                        if (isMisconfiguration(cause)) {
+                            throw (RuntimeException) cause;
+                        }
+                        LOGGER.log(Level.ERROR, () -> "Error while refreshing list of IP clients: " + cause.getMessage(), cause);
+                    }
+                    scheduleRefreshOnExpiry(dnsLookupWrapper, scheduledExecutorService, this);
+                    inFlight.set(null);
+                    refreshed.complete(null);
+                } catch (RuntimeException e) {
+                    inFlight.set(null);
+                    refreshed.completeExceptionally(e);
+                }
+            });
+            return refreshed;
+        }
+    }
 }
@@ -1,12 +1,15 @@
 package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.CachingDnsLookupWrapper;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.DnsLookupWrapper;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.NioDnsResolver;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.SingleHostHttpClientBuilder;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.http.HttpClient;
-import java.util.concurrent.Executors;
+import java.time.Duration;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
@@ -20,6 +23,14 @@ public class HttpClientPoolBuilder {
     private ScheduledExecutorService scheduledExecutorService;
     private Function<InetAddress, HttpClient> singleHostHttpClientFunction;
     private HttpClient.Version version;
+    private LoadBalancingStrategy loadBalancingStrategy;
+    private HedgingPolicy hedgingPolicy;
+    private Duration happyEyeballsDelay;
+    private RetryPolicy retryPolicy;
+    private int maxConcurrentHealthChecks = HealthCheckLimiter.DEFAULT_MAX_CONCURRENT_HEALTH_CHECKS;
+    private String serviceRecordName;
+    private Duration slowStartWindow;
+    private SlowStartRamp slowStartRamp;
 
     HttpClientPoolBuilder(final ServerConfiguration serverConfiguration) {
         this.serverConfiguration = serverConfiguration;
@@ -38,16 +49,44 @@ public class HttpClientPoolBuilder {
         return this;
     }
 
+    /**
+     * Adds the DNS cache shared by all the pools of the process, the pools resolving the same name share its lookups
+     * and are notified when its addresses change instead of polling them.
+     * The pools still reconcile their clients at the DNS lookup refresh period, without a lookup, to replace the ones exceeding the failure threshold.
+     */
+    public HttpClientPoolBuilder withSharedDnsCache() {
+        this.dnsLookupWrapper = CachingDnsLookupWrapper.shared();
+        return this;
+    }
+
+    /**
+     * Resolve the SRV records of the given name, see RFC 2782, instead of the address records of the hostname of the configuration, which stays the name of the TLS certificate and of the Host header.
+     * There is a client for each IP address and port of the targets of the records, the port of the configuration is not used.
+     * <ul>
+     *     <li>The clients of the records with the lowest priority take all the traffic, the other priorities only take over when none of them is healthy</li>
+     *     <li>The traffic is spread with the weights of the records, unless another load balancing strategy is configured</li>
+     *     <li>The records are resolved by the {@link NioDnsResolver#shared() shared NioDnsResolver}, unless another {@link DnsLookupWrapper} resolving them is configured</li>
+     * </ul>
+     *
+     * @param serviceRecordName the name of the SRV records, e.g. {@code _https._tcp.example.com}
+     * @see WeightProvider#serviceRecordWeights()
+     */
+    public HttpClientPoolBuilder withDnsServiceRecords(final String serviceRecordName) {
+        this.serviceRecordName = serviceRecordName;
+        return this;
+    }
+
     public HttpClientPoolBuilder withScheduledExecutorService(final ScheduledExecutorService scheduledExecutorService) {
         this.scheduledExecutorService = scheduledExecutorService;
         return this;
     }
 
     /**
-     * Adds a default single-thread scheduled executor
+     * Adds the default scheduled executor, a timing wheel shared by all the pools of the process with a single daemon timer thread and a few daemon worker threads.
+     * The first periodic health check of each address is delayed by a random jitter so that the health checks do not burst on the same tick, the DNS refreshes are not delayed.
      */
     public HttpClientPoolBuilder withDefaultScheduledExecutorService() {
-        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        this.scheduledExecutorService = TimingWheelScheduler.shared();
         return this;
     }
 
@@ -59,6 +98,79 @@ public class HttpClientPoolBuilder {
         return this;
     }
 
+    /**
+     * Select the client of the next request with the given strategy, round-robin by default.
+     *
+     * @see LoadBalancingStrategy#roundRobin()
+     * @see LoadBalancingStrategy#leastOutstandingRequests()
+     * @see LoadBalancingStrategy#peakEwma()
+     * @see LoadBalancingStrategy#smoothWeightedRoundRobin(WeightProvider)
+     */
+    public HttpClientPoolBuilder withLoadBalancingStrategy(final LoadBalancingStrategy loadBalancingStrategy) {
+        this.loadBalancingStrategy = loadBalancingStrategy;
+        return this;
+    }
+
+    /**
+     * Ramp up the weight of each IP during the given window after it became healthy, see {@link WeightProvider#withSlowStart(WeightProvider, Duration, SlowStartRamp)}.
+     * The ramp only applies to a weighted strategy: the pool is balanced by {@link LoadBalancingStrategy#smoothWeightedRoundRobin(WeightProvider)} with equal weights,
+     * or with the weights of the SRV records, unless another smooth weighted round-robin is configured.
+     * Building the pool fails when another load balancing strategy is configured, or when its weights already ramp up with a slow start.
+     */
+    public HttpClientPoolBuilder withSlowStart(final Duration slowStartWindow, final SlowStartRamp slowStartRamp) {
+        this.slowStartWindow = slowStartWindow;
+        this.slowStartRamp = slowStartRamp;
+        return this;
+    }
+
+    /**
+     * Hedge the GET requests sent by the resilient client with the given policy, no hedging by default.
+     *
+     * @see HedgingPolicy#fixedDelay(java.time.Duration, int)
+     * @see HedgingPolicy#percentileDelay(double, java.time.Duration, int)
+     */
+    public HttpClientPoolBuilder withHedgingPolicy(final HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+        return this;
+    }
+
+    /**
+     * Race the TCP connections to the IPs as in Happy Eyeballs (RFC 8305) on the first request to an IP and on failover,
+     * alternating IPv6 and IPv4 and starting the next attempt after the default delay of 250 ms, instead of waiting for the connect timeout of each IP in turn.
+     */
+    public HttpClientPoolBuilder withHappyEyeballs() {
+        return withHappyEyeballs(ConnectionRacer.DEFAULT_ATTEMPT_DELAY);
+    }
+
+    /**
+     * @param connectionAttemptDelay the delay before racing a connection to the next IP, RFC 8305 recommends 250 ms
+     * @see #withHappyEyeballs()
+     */
+    public HttpClientPoolBuilder withHappyEyeballs(final Duration connectionAttemptDelay) {
+        this.happyEyeballsDelay = connectionAttemptDelay;
+        return this;
+    }
+
+    /**
+     * Retry the idempotent requests sent by the resilient client on another IP with the given policy, no retry by default.
+     * The connection failures are failed over to the other IPs whatever the policy.
+     *
+     * @see RetryPolicy#of(int, int)
+     */
+    public HttpClientPoolBuilder withRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Limit the number of health checks in flight for the whole pool, 64 by default.
+     * The health checks are sent asynchronously, the ones exceeding the limit are sent as soon as another one completes without blocking the scheduler.
+     */
+    public HttpClientPoolBuilder withMaxConcurrentHealthChecks(final int maxConcurrentHealthChecks) {
+        this.maxConcurrentHealthChecks = maxConcurrentHealthChecks;
+        return this;
+    }
+
     public HttpClientPoolBuilder withSingleHostHttpClient(final Function<InetAddress, HttpClient> singleHostHttpClientFunction) {
         this.singleHostHttpClientFunction = singleHostHttpClientFunction;
         return this;
@@ -67,23 +179,56 @@ public class HttpClientPoolBuilder {
 
     public HttpClientPool build() {
         if (dnsLookupWrapper == null) {
-            withDefaultDnsLookupWrapper();
+            if (serviceRecordName == null) {
+                withDefaultDnsLookupWrapper();
+            } else {
+                withDnsLookupWrapper(NioDnsResolver.shared());
+            }
         }
         if (scheduledExecutorService == null) {
             withDefaultScheduledExecutorService();
         }
-        final Function<InetAddress, HttpClient> singleHttpClientProvider;
-        if (singleHostHttpClientFunction == null) {
-            singleHttpClientProvider = inetAddress -> SingleHostHttpClientBuilder.newHttpClient(serverConfiguration.getHostname(), inetAddress, version);
+        if (loadBalancingStrategy == null) {
+            final WeightProvider weightProvider = serviceRecordName == null ? WeightProvider.equalWeights() : WeightProvider.serviceRecordWeights();
+            withLoadBalancingStrategy(serviceRecordName == null && slowStartWindow == null ? LoadBalancingStrategy.roundRobin() : LoadBalancingStrategy.smoothWeightedRoundRobin(weightProvider));
+        }
+        final Function<InetSocketAddress, HttpClient> singleHttpClientProvider;
+        if (singleHostHttpClientFunction != null) {
+            if (serviceRecordName != null) {
+                throw new IllegalArgumentException("The single host HTTP clients cannot be customized with SRV records, the clients built from an IP address do not target the port of the records.");
+            }
+            singleHttpClientProvider = socketAddress -> singleHostHttpClientFunction.apply(socketAddress.getAddress());
+        } else if (serviceRecordName == null) {
+            singleHttpClientProvider = socketAddress -> SingleHostHttpClientBuilder.newHttpClient(serverConfiguration.getHostname(), socketAddress.getAddress(), version);
         } else {
-            singleHttpClientProvider = inetAddress -> singleHostHttpClientFunction.apply(inetAddress);
+            singleHttpClientProvider = socketAddress -> SingleHostHttpClientBuilder.newHttpClient(serverConfiguration.getHostname(), socketAddress, version);
         }
 
         return new HttpClientPool(
                 dnsLookupWrapper,
                 scheduledExecutorService,
                 serverConfiguration,
-                singleHttpClientProvider
+                singleHttpClientProvider,
+                withSlowStart(loadBalancingStrategy),
+                hedgingPolicy,
+                happyEyeballsDelay,
+                retryPolicy,
+                maxConcurrentHealthChecks,
+                serviceRecordName
         );
     }
+
+    private LoadBalancingStrategy withSlowStart(final LoadBalancingStrategy loadBalancingStrategy) {
+        if (slowStartWindow == null) {
+            return loadBalancingStrategy;
+        }
+        if (!(loadBalancingStrategy instanceof SmoothWeightedRoundRobinStrategy)) {
+            throw new IllegalArgumentException("The slow start only ramps up the weights of the smooth weighted round-robin, it cannot be applied to " + loadBalancingStrategy + ".");
+        }
+        final WeightProvider weightProvider = ((SmoothWeightedRoundRobinStrategy) loadBalancingStrategy).getWeightProvider();
+        if (weightProvider instanceof SlowStartWeightProvider) {
+            throw new IllegalArgumentException("The weights of " + loadBalancingStrategy + " already ramp up with a slow start, it cannot be applied twice.");
+        }
+        return LoadBalancingStrategy.smoothWeightedRoundRobin(WeightProvider.withSlowStart(weightProvider, slowStartWindow, slowStartRamp));
+    }
 }
@@ -0,0 +1,33 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Select the healthy client with the least requests in flight.
+ * The scan starts at a random position so that ties are spread among the clients instead of always favoring the first one.
+ */
+class LeastOutstandingRequestsStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public int select(List<SingleIpHttpClient> healthyClients) {
+        final int size = healthyClients.size();
+        final int start = ThreadLocalRandom.current().nextInt(size);
+        int selected = start;
+        int leastInFlightRequests = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final int index = (start + i) % size;
+            final int inFlightRequests = healthyClients.get(index).getInFlightRequests();
+            if (inFlightRequests < leastInFlightRequests) {
+                leastInFlightRequests = inFlightRequests;
+                selected = index;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public String toString() {
+        return "LeastOutstandingRequestsStrategy{}";
+    }
+}
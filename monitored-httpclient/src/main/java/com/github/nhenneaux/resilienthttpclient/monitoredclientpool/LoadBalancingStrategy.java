@@ -0,0 +1,51 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.List;
+
+/**
+ * Select the client used to send the next request among the healthy clients of a pool.
+ * <p>
+ * The selection is called for each request, so it has to be thread-safe, lock-free and cheap.
+ * The same instance is reused when the pool is refreshed after a DNS lookup.
+ */
+@SuppressWarnings("WeakerAccess")
+// Used outside library
+public interface LoadBalancingStrategy {
+
+    /**
+     * @return a strategy selecting the healthy clients in turn.
+     */
+    static LoadBalancingStrategy roundRobin() {
+        return new RoundRobinStrategy();
+    }
+
+    /**
+     * @return a strategy selecting the healthy client with the least requests in flight.
+     */
+    static LoadBalancingStrategy leastOutstandingRequests() {
+        return new LeastOutstandingRequestsStrategy();
+    }
+
+    /**
+     * @return a strategy sampling two healthy clients at random and selecting the one with the lowest product of requests in flight and peak exponentially weighted moving average of the response time.
+     */
+    static LoadBalancingStrategy peakEwma() {
+        return new PeakEwmaStrategy();
+    }
+
+    /**
+     * @param weightProvider the weight of each client, read again when the healthy clients change and at least every second
+     * @return a strategy selecting the healthy clients in proportion of their weight, interleaving the selections as in nginx smooth weighted round-robin.
+     */
+    static LoadBalancingStrategy smoothWeightedRoundRobin(WeightProvider weightProvider) {
+        return new SmoothWeightedRoundRobinStrategy(weightProvider);
+    }
+
+    /**
+     * Select the next client.
+     *
+     * @param healthyClients the healthy clients of the pool, never empty, with constant time access
+     * @return the index of the selected client in the given list
+     */
+    int select(List<SingleIpHttpClient> healthyClients);
+}
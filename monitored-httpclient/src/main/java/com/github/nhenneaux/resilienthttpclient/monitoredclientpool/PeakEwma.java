@@ -0,0 +1,68 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exponentially weighted moving average of the response time which immediately follows an increase (the peak) and slowly decays otherwise.
+ * The average also decays while no response is observed, so that a client penalized by a single slow response is eventually selected again.
+ */
+class PeakEwma {
+
+    static final long DEFAULT_DECAY_TIME_IN_NANOSECONDS = TimeUnit.SECONDS.toNanos(10);
+
+    private final double decayTimeInNanoseconds;
+    private final AtomicReference<Sample> sample;
+
+    PeakEwma() {
+        this(DEFAULT_DECAY_TIME_IN_NANOSECONDS);
+    }
+
+    PeakEwma(long decayTimeInNanoseconds) {
+        this.decayTimeInNanoseconds = decayTimeInNanoseconds;
+        this.sample = new AtomicReference<>(new Sample(0D, System.nanoTime()));
+    }
+
+    /**
+     * Record a response time.
+     */
+    void observe(long responseTimeInNanoseconds) {
+        final long now = System.nanoTime();
+        sample.updateAndGet(previous -> {
+            final double decayed = previous.decayedAt(now, decayTimeInNanoseconds);
+            if (responseTimeInNanoseconds > decayed) {
+                return new Sample(responseTimeInNanoseconds, now);
+            }
+            final double weight = Math.exp(-(now - previous.timestamp) / decayTimeInNanoseconds);
+            return new Sample(previous.average * weight + responseTimeInNanoseconds * (1D - weight), now);
+        });
+    }
+
+    /**
+     * @return the current average in nanoseconds, 0 if no response time was recorded.
+     */
+    double get() {
+        return sample.get().decayedAt(System.nanoTime(), decayTimeInNanoseconds);
+    }
+
+    @Override
+    public String toString() {
+        return "PeakEwma{" +
+                "averageInMilliseconds=" + get() / TimeUnit.MILLISECONDS.toNanos(1) +
+                '}';
+    }
+
+    private static class Sample {
+        private final double average;
+        private final long timestamp;
+
+        Sample(double average, long timestamp) {
+            this.average = average;
+            this.timestamp = timestamp;
+        }
+
+        double decayedAt(long now, double decayTimeInNanoseconds) {
+            return average * Math.exp(-Math.max(0L, now - timestamp) / decayTimeInNanoseconds);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: sample two distinct healthy clients at random and select the one with the lowest cost.
+ * The cost is the peak exponentially weighted moving average of the response time multiplied by the requests in flight.
+ * <p>
+ * A client without any recorded response time costs only its requests in flight, so that new clients are quickly measured.
+ */
+class PeakEwmaStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public int select(List<SingleIpHttpClient> healthyClients) {
+        final int size = healthyClients.size();
+        if (size == 1) {
+            return 0;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        // Pick the second among the other clients so that both choices are distinct
+        final int second = (first + 1 + random.nextInt(size - 1)) % size;
+        return cost(healthyClients.get(first)) <= cost(healthyClients.get(second)) ? first : second;
+    }
+
+    private static double cost(SingleIpHttpClient singleIpHttpClient) {
+        return (singleIpHttpClient.getResponseTimeEwmaInNanoseconds() + 1D) * (singleIpHttpClient.getInFlightRequests() + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "PeakEwmaStrategy{}";
+    }
+}
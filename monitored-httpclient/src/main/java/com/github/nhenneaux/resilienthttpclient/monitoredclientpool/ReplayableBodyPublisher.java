@@ -0,0 +1,325 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Body publisher which can be sent again by the retries of a request, whatever the wrapped body publisher.
+ * <p>
+ * The body is captured into pooled direct buffers while it is sent by the first attempt and the next attempts replay read-only views of these buffers, without copying them.
+ * A body larger than the maximum buffered size is not captured, it is sent once and the request is then not retried on another address.
+ * A file body is memory-mapped and can always be replayed.
+ * <p>
+ * A second attempt cannot be sent while the first one is still capturing the body, it fails with an {@link IOException} instead of sending a partial body.
+ * <p>
+ * The body is only captured for the requests retried by a {@link RetryPolicy}. The failover on a connection failure sends the body publisher of the request again as is,
+ * the body of a refused connection was not sent, and only the GET requests without body are hedged.
+ */
+public final class ReplayableBodyPublisher implements HttpRequest.BodyPublisher {
+
+    public static final long DEFAULT_MAX_BUFFERED_BYTES = 1024L * 1024L;
+    // A mapping is limited to Integer.MAX_VALUE bytes, a larger file is mapped in several regions
+    static final long MAX_MAPPED_REGION_BYTES = 1024L * 1024L * 1024L;
+
+    private enum State {
+        NOT_SUBSCRIBED, RECORDING, RECORDED, CONSUMED, RELEASED
+    }
+
+    private final HttpRequest.BodyPublisher bodyPublisher;
+    private final long contentLength;
+    private final long maxBufferedBytes;
+    private final ByteBufferPool byteBufferPool;
+    private final AtomicReference<State> state;
+    private final List<ByteBuffer> buffers;
+    // One reference held by the owner of the publisher and one by each replay in progress
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ReplayableBodyPublisher(HttpRequest.BodyPublisher bodyPublisher, long contentLength, long maxBufferedBytes, ByteBufferPool byteBufferPool, State state, List<ByteBuffer> buffers) {
+        this.bodyPublisher = bodyPublisher;
+        this.contentLength = contentLength;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.byteBufferPool = byteBufferPool;
+        this.state = new AtomicReference<>(state);
+        this.buffers = buffers;
+    }
+
+    public static ReplayableBodyPublisher of(HttpRequest.BodyPublisher bodyPublisher) {
+        return of(bodyPublisher, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+
+    /**
+     * @param bodyPublisher    the body to capture while it is sent the first time
+     * @param maxBufferedBytes the maximum size of the captured body, a larger body is sent only once
+     */
+    public static ReplayableBodyPublisher of(HttpRequest.BodyPublisher bodyPublisher, long maxBufferedBytes) {
+        return of(bodyPublisher, maxBufferedBytes, ByteBufferPool.SHARED);
+    }
+
+    static ReplayableBodyPublisher of(HttpRequest.BodyPublisher bodyPublisher, long maxBufferedBytes, ByteBufferPool byteBufferPool) {
+        if (maxBufferedBytes < 0) {
+            throw new IllegalArgumentException("The maximum buffered size should be positive but was " + maxBufferedBytes);
+        }
+        return new ReplayableBodyPublisher(bodyPublisher, bodyPublisher.contentLength(), maxBufferedBytes, byteBufferPool, State.NOT_SUBSCRIBED, new ArrayList<>());
+    }
+
+    /**
+     * Map the file in memory, its content is read by the operating system when it is sent and it can be replayed by each attempt.
+     * The file should not be modified while the request is sent.
+     */
+    public static ReplayableBodyPublisher ofFile(Path path) throws IOException {
+        return ofFile(path, MAX_MAPPED_REGION_BYTES);
+    }
+
+    static ReplayableBodyPublisher ofFile(Path path, long maxMappedRegionBytes) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = fileChannel.size();
+            final List<ByteBuffer> chunks = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += maxMappedRegionBytes) {
+                final int regionSize = (int) Math.min(maxMappedRegionBytes, size - offset);
+                final MappedByteBuffer region = fileChannel.map(FileChannel.MapMode.READ_ONLY, offset, regionSize);
+                for (int position = 0; position < regionSize; position += ByteBufferPool.DEFAULT_BUFFER_SIZE) {
+                    chunks.add(region.duplicate().position(position).limit(Math.min(regionSize, position + ByteBufferPool.DEFAULT_BUFFER_SIZE)).slice());
+                }
+            }
+            return new ReplayableBodyPublisher(null, size, size, null, State.RECORDED, chunks);
+        }
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return {@code true} if the body was not sent yet or if it was fully captured, so that another attempt can send it.
+     */
+    public boolean isReplayable() {
+        final State current = state.get();
+        return current == State.NOT_SUBSCRIBED || current == State.RECORDED;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (state.get() == State.RECORDED && retain()) {
+            new Replay(subscriber).start();
+        } else if (state.compareAndSet(State.NOT_SUBSCRIBED, State.RECORDING)) {
+            if (contentLength > maxBufferedBytes) {
+                state.set(State.CONSUMED);
+                bodyPublisher.subscribe(subscriber);
+            } else {
+                bodyPublisher.subscribe(new Recorder(subscriber));
+            }
+        } else {
+            subscriber.onSubscribe(new EmptySubscription());
+            subscriber.onError(new IOException("The request body cannot be sent again, it is " + state.get() + "."));
+        }
+    }
+
+    /**
+     * Give back the buffers of the captured body to the pool once the replays in progress are completed.
+     */
+    void release() {
+        if (released.compareAndSet(false, true)) {
+            releaseReference();
+        }
+    }
+
+    private boolean retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void releaseReference() {
+        if (references.decrementAndGet() == 0) {
+            final State previous = state.getAndSet(State.RELEASED);
+            if (previous != State.RECORDING) {
+                releaseBuffers();
+            }
+        }
+    }
+
+    private synchronized void releaseBuffers() {
+        if (byteBufferPool != null) {
+            buffers.forEach(byteBufferPool::release);
+        }
+        buffers.clear();
+    }
+
+    private synchronized void record(ByteBuffer item) {
+        final ByteBuffer source = item.duplicate();
+        while (source.hasRemaining()) {
+            ByteBuffer current = buffers.isEmpty() ? null : buffers.get(buffers.size() - 1);
+            if (current == null || !current.hasRemaining()) {
+                current = byteBufferPool.acquire();
+                buffers.add(current);
+            }
+            final int length = Math.min(current.remaining(), source.remaining());
+            current.put(source.duplicate().limit(source.position() + length));
+            source.position(source.position() + length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayableBodyPublisher{" +
+                "contentLength=" + contentLength +
+                ", maxBufferedBytes=" + maxBufferedBytes +
+                ", state=" + state +
+                '}';
+    }
+
+    private class Recorder implements Flow.Subscriber<ByteBuffer> {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private long recordedBytes;
+
+        Recorder(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    // The body was only partially sent, it cannot be replayed
+                    abort();
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            if (state.get() == State.RECORDING) {
+                recordedBytes += item.remaining();
+                if (recordedBytes > maxBufferedBytes) {
+                    abort();
+                } else {
+                    record(item);
+                }
+            }
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            abort();
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (ReplayableBodyPublisher.this) {
+                buffers.forEach(ByteBuffer::flip);
+            }
+            if (!state.compareAndSet(State.RECORDING, State.RECORDED) && state.get() == State.RELEASED) {
+                // Released by the owner while the body was sent
+                releaseBuffers();
+            }
+            subscriber.onComplete();
+        }
+
+        private void abort() {
+            if (state.compareAndSet(State.RECORDING, State.CONSUMED) || state.get() == State.RELEASED) {
+                releaseBuffers();
+            }
+        }
+    }
+
+    private class Replay implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final List<ByteBuffer> replayed;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger drains = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private int index;
+
+        Replay(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+            synchronized (ReplayableBodyPublisher.this) {
+                this.replayed = List.copyOf(buffers);
+            }
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (finish()) {
+                    subscriber.onError(new IllegalArgumentException("The requested number of items should be positive but was " + n));
+                }
+                return;
+            }
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            finish();
+        }
+
+        private void drain() {
+            if (drains.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                while (!done.get() && index < replayed.size() && demand.get() > 0) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(replayed.get(index++).asReadOnlyBuffer());
+                }
+                if (index == replayed.size() && finish()) {
+                    subscriber.onComplete();
+                }
+            } while (drains.decrementAndGet() != 0);
+        }
+
+        private boolean finish() {
+            if (done.compareAndSet(false, true)) {
+                releaseReference();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class EmptySubscription implements Flow.Subscription {
+        @Override
+        public void request(long n) {
+            // Nothing to publish
+        }
+
+        @Override
+        public void cancel() {
+            // Nothing to cancel
+        }
+    }
+}
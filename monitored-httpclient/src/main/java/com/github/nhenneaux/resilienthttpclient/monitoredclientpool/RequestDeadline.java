@@ -0,0 +1,133 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The end-to-end deadline of a request, shared by all its attempts: failover, retries and hedged requests.
+ * Each attempt is sent with a request timeout shrunk to the remaining time, and no attempt is started once the deadline has passed.
+ */
+class RequestDeadline {
+
+    private final long deadline;
+    private final Duration budget;
+
+    private RequestDeadline(Duration budget) {
+        this.budget = budget;
+        this.deadline = System.nanoTime() + budget.toNanos();
+    }
+
+    /**
+     * @param budgetInNanoseconds the time allowed to the request, negative for no deadline
+     * @return the deadline starting now or {@code null} for a negative budget.
+     */
+    static RequestDeadline start(long budgetInNanoseconds) {
+        return budgetInNanoseconds < 0 ? null : new RequestDeadline(Duration.ofNanos(budgetInNanoseconds));
+    }
+
+    long remainingInNanoseconds() {
+        return deadline - System.nanoTime();
+    }
+
+    boolean isExceeded() {
+        return remainingInNanoseconds() <= 0;
+    }
+
+    DeadlineExceededException exceeded(HttpRequest request) {
+        return new DeadlineExceededException("The deadline of " + budget.toMillis() + " ms is exceeded for the request " + request);
+    }
+
+    /**
+     * @return the request with a timeout which is the lowest of its own timeout and the remaining time.
+     */
+    HttpRequest shrink(HttpRequest request) {
+        final Duration remaining = Duration.ofNanos(Math.max(1L, remainingInNanoseconds()));
+        final Duration timeout = request.timeout()
+                .filter(requestTimeout -> requestTimeout.compareTo(remaining) < 0)
+                .orElse(remaining);
+        return ForwardingHttpRequest.withTimeout(request, timeout);
+    }
+
+    /**
+     * Send the request shrunk to the remaining time or fail immediately if the deadline is exceeded.
+     */
+    <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, Function<HttpRequest, CompletableFuture<HttpResponse<T>>> send) {
+        if (isExceeded()) {
+            return CompletableFuture.failedFuture(exceeded(request));
+        }
+        return send.apply(shrink(request));
+    }
+
+    /**
+     * @param scheduledExecutorService the scheduler of the pool, the timer is cancelled as soon as the given future completes
+     * @return a future failing with {@link DeadlineExceededException} if the given one is not completed before the deadline,
+     * cancelling it cancels the given one.
+     */
+    <T> CompletableFuture<HttpResponse<T>> bound(HttpRequest request, CompletableFuture<HttpResponse<T>> httpResponseFuture, ScheduledExecutorService scheduledExecutorService) {
+        final CompletableFuture<HttpResponse<T>> bounded = new CompletableFuture<>();
+        final ScheduledFuture<?> deadlineTimer = scheduleDeadline(request, httpResponseFuture, bounded, scheduledExecutorService);
+        httpResponseFuture.whenComplete((httpResponse, throwable) -> {
+            if (deadlineTimer != null) {
+                deadlineTimer.cancel(false);
+            }
+            if (throwable != null) {
+                bounded.completeExceptionally(throwable);
+            } else if (!bounded.complete(httpResponse)) {
+                ResilientClient.discardBody(httpResponse);
+            }
+        });
+        bounded.whenComplete((httpResponse, throwable) -> {
+            if (bounded.isCancelled()) {
+                httpResponseFuture.cancel(true);
+            }
+        });
+        return bounded;
+    }
+
+    /**
+     * @return the timer failing the bounded future at the deadline, {@code null} if the future is already completed or the scheduler is shut down,
+     * the attempts are then only bounded by their shrunk timeout.
+     */
+    private <T> ScheduledFuture<?> scheduleDeadline(HttpRequest request, CompletableFuture<HttpResponse<T>> httpResponseFuture, CompletableFuture<HttpResponse<T>> bounded, ScheduledExecutorService scheduledExecutorService) {
+        if (httpResponseFuture.isDone()) {
+            return null;
+        }
+        final Runnable failAtDeadline = () -> {
+            if (bounded.completeExceptionally(exceeded(request))) {
+                httpResponseFuture.cancel(true);
+            }
+        };
+        try {
+            return scheduledExecutorService.schedule(failAtDeadline, Math.max(0L, remainingInNanoseconds()), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestDeadline{" +
+                "budget=" + budget +
+                ", remaining=" + Duration.ofNanos(remainingInNanoseconds()) +
+                '}';
+    }
+
+    /**
+     * Thrown when the deadline of a request is exceeded, it is not a failure of the client and it is not retried.
+     */
+    static class DeadlineExceededException extends HttpTimeoutException {
+        private static final long serialVersionUID = 1L;
+
+        DeadlineExceededException(String message) {
+            super(message);
+        }
+    }
+}
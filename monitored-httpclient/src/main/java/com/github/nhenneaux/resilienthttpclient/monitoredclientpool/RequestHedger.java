@@ -0,0 +1,226 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Send an idempotent request to a first client and, if it has not answered within the hedge delay, to a second client.
+ * The first response wins and the other request is cancelled, the hedged requests are limited by the budget of the {@link HedgingPolicy}.
+ * <p>
+ * The state, the budget and the observed response times, is shared by all the resilient clients of a pool.
+ */
+class RequestHedger {
+
+    // Number of hedged requests which can be sent in a burst when the budget is full
+    static final int MAX_HEDGED_BURST = 10;
+
+    private final HedgingPolicy hedgingPolicy;
+    private final TokenBucket budget;
+    private final ResponseTimePercentile responseTimePercentile;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    RequestHedger(HedgingPolicy hedgingPolicy) {
+        this(hedgingPolicy, TimingWheelScheduler.shared());
+    }
+
+    /**
+     * @param scheduledExecutorService the scheduler of the pool, sending the hedged requests once the hedge delay has elapsed
+     */
+    RequestHedger(HedgingPolicy hedgingPolicy, ScheduledExecutorService scheduledExecutorService) {
+        this.hedgingPolicy = hedgingPolicy;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.budget = new TokenBucket(hedgingPolicy.getBudgetPercent(), MAX_HEDGED_BURST);
+        this.responseTimePercentile = hedgingPolicy.isPercentileDelay() ? new ResponseTimePercentile(hedgingPolicy.getPercentile()) : null;
+    }
+
+    /**
+     * Only GET requests are hedged, they are idempotent and do not have a body.
+     */
+    static boolean isHedgeable(HttpRequest request) {
+        return "GET".equalsIgnoreCase(request.method());
+    }
+
+    long hedgeDelayInNanoseconds() {
+        if (responseTimePercentile != null) {
+            final long percentile = responseTimePercentile.get();
+            if (percentile >= 0) {
+                return percentile;
+            }
+        }
+        return hedgingPolicy.getDelay().toNanos();
+    }
+
+    <T> CompletableFuture<HttpResponse<T>> send(Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool) {
+        return send(send, roundRobinPool, null);
+    }
+
+    /**
+     * @param connectionRacer race the connections of each attempt on failover, {@code null} to try the addresses in turn
+     */
+    <T> CompletableFuture<HttpResponse<T>> send(Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool, ConnectionRacer connectionRacer) {
+        budget.deposit();
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
+        final AtomicInteger pendingAttempts = new AtomicInteger(1);
+        final AtomicReference<Attempt<T>> hedge = new AtomicReference<>();
+
+        final SingleIpHttpClient firstClient = ResilientClient.singleIpHttpClient(roundRobinPool);
+        final Attempt<T> primary = new Attempt<>(send, connectionRacer);
+        primary.start(roundRobinPool, firstClient)
+                .whenComplete((httpResponse, throwable) -> {
+                    observe(response, start, throwable);
+                    complete(response, pendingAttempts, httpResponse, throwable, hedge.get());
+                });
+
+        final Runnable sendHedge = () -> {
+            if (response.isDone()) {
+                return;
+            }
+            final Optional<SingleIpHttpClient> hedgeClient = otherClient(roundRobinPool, firstClient);
+            if (hedgeClient.isEmpty() || !budget.tryWithdraw() || !incrementIfPending(pendingAttempts)) {
+                return;
+            }
+            final Attempt<T> hedgeAttempt = new Attempt<>(send, connectionRacer);
+            hedge.set(hedgeAttempt);
+            hedgeAttempt.start(roundRobinPool, hedgeClient.get())
+                    .whenComplete((httpResponse, throwable) -> complete(response, pendingAttempts, httpResponse, throwable, primary));
+            if (response.isDone()) {
+                // The primary attempt completed while the hedged request was sent
+                hedgeAttempt.cancel();
+            }
+        };
+        final ScheduledFuture<?> hedgeTimer = scheduleHedge(sendHedge);
+
+        response.whenComplete((httpResponse, throwable) -> {
+            if (hedgeTimer != null) {
+                // The timer is not kept until the hedge delay once the response is known
+                hedgeTimer.cancel(false);
+            }
+            if (response.isCancelled()) {
+                primary.cancel();
+                Optional.ofNullable(hedge.get()).ifPresent(Attempt::cancel);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * @return the timer sending the hedged request, {@code null} if the scheduler is shut down, the request is then not hedged.
+     */
+    private ScheduledFuture<?> scheduleHedge(Runnable sendHedge) {
+        try {
+            return scheduledExecutorService.schedule(sendHedge, hedgeDelayInNanoseconds(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Observe the response time of the primary attempt whether it won or not, the estimator would otherwise only see the fastest of the hedged requests and its percentile would drift down.
+     * A primary attempt cancelled because the hedged request won took at least until then, it is observed as such.
+     */
+    private void observe(CompletableFuture<?> response, long start, Throwable throwable) {
+        if (responseTimePercentile != null && (throwable == null || (isCancellation(throwable) && !response.isCancelled()))) {
+            responseTimePercentile.observe(System.nanoTime() - start);
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<HttpResponse<T>> response, AtomicInteger pendingAttempts, HttpResponse<T> httpResponse, Throwable throwable, Attempt<T> other) {
+        if (throwable == null) {
+            if (response.complete(httpResponse)) {
+                Optional.ofNullable(other).ifPresent(Attempt::cancel);
+            } else {
+                ResilientClient.discardBody(httpResponse);
+            }
+        } else if (pendingAttempts.decrementAndGet() == 0) {
+            // Both attempts failed, or the only one
+            response.completeExceptionally(throwable);
+        }
+    }
+
+    private static boolean incrementIfPending(AtomicInteger pendingAttempts) {
+        int current = pendingAttempts.get();
+        while (current > 0) {
+            if (pendingAttempts.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = pendingAttempts.get();
+        }
+        return false;
+    }
+
+    private static Optional<SingleIpHttpClient> otherClient(RoundRobinPool roundRobinPool, SingleIpHttpClient firstClient) {
+        final int healthyCount = roundRobinPool.healthyCount();
+        for (int i = 0; i < healthyCount; i++) {
+            final Optional<SingleIpHttpClient> next = roundRobinPool.next();
+            if (next.isEmpty()) {
+                return next;
+            }
+            if (next.get() != firstClient) {
+                return next;
+            }
+        }
+        return Optional.empty();
+    }
+
+    static boolean isCancellation(Throwable throwable) {
+        return throwable instanceof CancellationException || (throwable != null && throwable.getCause() instanceof CancellationException);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestHedger{" +
+                "hedgingPolicy=" + hedgingPolicy +
+                ", budget=" + budget +
+                ", responseTimePercentile=" + responseTimePercentile +
+                '}';
+    }
+
+    /**
+     * One of the hedged requests, including its failover to other clients on connection failures.
+     * It keeps the future of the request in flight so that cancelling the attempt cancels the exchange.
+     */
+    private static class Attempt<T> {
+
+        private final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send;
+        private final ConnectionRacer connectionRacer;
+        private final AtomicReference<CompletableFuture<HttpResponse<T>>> inFlight = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        Attempt(Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, ConnectionRacer connectionRacer) {
+            this.send = send;
+            this.connectionRacer = connectionRacer;
+        }
+
+        CompletableFuture<HttpResponse<T>> start(RoundRobinPool roundRobinPool, SingleIpHttpClient singleIpHttpClient) {
+            return ResilientClient.handleConnectTimeout(this::sendUnlessCancelled, roundRobinPool, singleIpHttpClient, new ArrayList<>(), connectionRacer);
+        }
+
+        private CompletableFuture<HttpResponse<T>> sendUnlessCancelled(HttpClient httpClient) {
+            if (cancelled) {
+                // Do not fail over to another client once the other attempt won
+                return CompletableFuture.failedFuture(new CancellationException("The hedged request lost the race"));
+            }
+            final CompletableFuture<HttpResponse<T>> httpResponseFuture = send.apply(httpClient);
+            inFlight.set(httpResponseFuture);
+            return httpResponseFuture;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Optional.ofNullable(inFlight.get()).ifPresent(httpResponseFuture -> httpResponseFuture.cancel(true));
+        }
+    }
+}
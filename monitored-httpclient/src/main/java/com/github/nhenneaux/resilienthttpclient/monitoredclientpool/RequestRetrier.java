@@ -0,0 +1,124 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.lang.System.Logger;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Retry an idempotent request on another client when it failed as configured in the {@link RetryPolicy}.
+ * The retries are limited by a budget: every request earns the configured percentage of a retry.
+ * <p>
+ * The budget is shared by all the resilient clients of a pool.
+ */
+class RequestRetrier {
+
+    private static final Logger LOGGER = System.getLogger(RequestRetrier.class.getName());
+
+    // Number of retries which can be sent in a burst when the budget is full
+    static final int MAX_RETRY_BURST = 10;
+
+    private final RetryPolicy retryPolicy;
+    private final TokenBucket budget;
+
+    RequestRetrier(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        this.budget = new TokenBucket(retryPolicy.getBudgetPercent(), MAX_RETRY_BURST);
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @param send            send the request with the given client
+     * @param roundRobinPool  the pool of the clients to retry on
+     * @param firstAttempt    the first attempt, sending the request with the given function
+     * @param connectionRacer race the connections of the retries on failover, {@code null} to try the addresses in turn
+     * @param replayable      whether the request can still be sent again, it cannot once a body which was not captured was sent
+     */
+    <T> CompletableFuture<HttpResponse<T>> send(
+            Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
+            RoundRobinPool roundRobinPool,
+            Function<Function<HttpClient, CompletableFuture<HttpResponse<T>>>, CompletableFuture<HttpResponse<T>>> firstAttempt,
+            ConnectionRacer connectionRacer,
+            BooleanSupplier replayable
+    ) {
+        budget.deposit();
+        final AtomicReference<HttpClient> lastHttpClient = new AtomicReference<>();
+        final Function<HttpClient, CompletableFuture<HttpResponse<T>>> trackedSend = httpClient -> {
+            lastHttpClient.set(httpClient);
+            return send.apply(httpClient);
+        };
+        return retryIfNeeded(firstAttempt.apply(trackedSend), trackedSend, roundRobinPool, lastHttpClient, connectionRacer, replayable, 0);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> retryIfNeeded(
+            CompletableFuture<HttpResponse<T>> attempt,
+            Function<HttpClient, CompletableFuture<HttpResponse<T>>> trackedSend,
+            RoundRobinPool roundRobinPool,
+            AtomicReference<HttpClient> lastHttpClient,
+            ConnectionRacer connectionRacer,
+            BooleanSupplier replayable,
+            int retries
+    ) {
+        // The retry is composed, as the failover, so that the thread completing the failed attempt is never blocked
+        return attempt
+                .handle((httpResponse, throwable) -> {
+                    if (!shouldRetry(httpResponse, throwable, retries) || !replayable.getAsBoolean()) {
+                        return attempt;
+                    }
+                    final Optional<SingleIpHttpClient> otherClient = otherClient(roundRobinPool, lastHttpClient.get());
+                    if (otherClient.isEmpty() || !budget.tryWithdraw()) {
+                        return attempt;
+                    }
+                    LOGGER.log(Level.DEBUG, () -> "Retrying on " + otherClient.get().getInetAddress() + " the request which failed with " + Optional.ofNullable(httpResponse).map(HttpResponse::statusCode).map(String::valueOf).orElseGet(throwable::toString));
+                    ResilientClient.discardBody(httpResponse);
+                    final CompletableFuture<HttpResponse<T>> retry = ResilientClient.handleConnectTimeout(trackedSend, roundRobinPool, otherClient.get(), new ArrayList<>(), connectionRacer);
+                    return retryIfNeeded(retry, trackedSend, roundRobinPool, lastHttpClient, connectionRacer, replayable, retries + 1);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private boolean shouldRetry(HttpResponse<?> httpResponse, Throwable throwable, int retries) {
+        if (retries >= retryPolicy.getMaxRetries()) {
+            return false;
+        }
+        if (throwable == null) {
+            return httpResponse != null && retryPolicy.isRetryable(httpResponse.statusCode());
+        }
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        // Connection failures were already failed over to all the clients, a cancelled request or a request out of time should not be sent again
+        return !ResilientClient.isConnectException(cause)
+                && !RequestHedger.isCancellation(throwable)
+                && !ResilientClient.isDeadlineExceeded(throwable)
+                && retryPolicy.isRetryable(cause);
+    }
+
+    private static Optional<SingleIpHttpClient> otherClient(RoundRobinPool roundRobinPool, HttpClient failedHttpClient) {
+        final int healthyCount = roundRobinPool.healthyCount();
+        for (int i = 0; i < healthyCount; i++) {
+            final Optional<SingleIpHttpClient> next = roundRobinPool.next();
+            if (next.isEmpty() || next.get().getHttpClient() != failedHttpClient) {
+                return next;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestRetrier{" +
+                "retryPolicy=" + retryPolicy +
+                ", budget=" + budget +
+                '}';
+    }
+}
@@ -7,12 +7,13 @@ import java.lang.System.Logger;
 import java.net.Authenticator;
 import java.net.ConnectException;
 import java.net.CookieHandler;
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ProxySelector;
 import java.net.http.HttpClient;
 import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.net.http.WebSocket;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -20,7 +21,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -31,196 +38,474 @@ class ResilientClient extends HttpClient {
     private static final Logger LOGGER = System.getLogger(ResilientClient.class.getName());
     private static final Set<Class<?>> CONNECT_EXCEPTION_CLASS = Set.of(HttpConnectTimeoutException.class, ConnectException.class);
     private final Supplier<RoundRobinPool> roundRobinPoolSupplier;
+    private final RequestHedger requestHedger;
+    private final ConnectionRacer connectionRacer;
+    private final RequestRetrier requestRetrier;
+    private final long requestDeadlineInNanoseconds;
+    private final ScheduledExecutorService scheduledExecutorService;
 
     ResilientClient(Supplier<RoundRobinPool> roundRobinPoolSupplier) {
+        this(roundRobinPoolSupplier, null, null, null, -1L);
+    }
+
+    ResilientClient(Supplier<RoundRobinPool> roundRobinPoolSupplier, RequestHedger requestHedger, ConnectionRacer connectionRacer, RequestRetrier requestRetrier, long requestDeadlineInNanoseconds) {
+        this(roundRobinPoolSupplier, requestHedger, connectionRacer, requestRetrier, requestDeadlineInNanoseconds, TimingWheelScheduler.shared());
+    }
+
+    /**
+     * @param requestHedger                hedge the GET requests, {@code null} to disable hedging
+     * @param connectionRacer              race the connections to the addresses on the first request to a client and on failover, {@code null} to try them in turn
+     * @param requestRetrier               retry the idempotent requests on another client, {@code null} to only fail over on connection failures
+     * @param requestDeadlineInNanoseconds the end-to-end deadline of each request including all its attempts, negative for no deadline
+     * @param scheduledExecutorService     the scheduler of the pool, failing the asynchronous requests at their deadline
+     */
+    ResilientClient(Supplier<RoundRobinPool> roundRobinPoolSupplier, RequestHedger requestHedger, ConnectionRacer connectionRacer, RequestRetrier requestRetrier, long requestDeadlineInNanoseconds, ScheduledExecutorService scheduledExecutorService) {
         this.roundRobinPoolSupplier = roundRobinPoolSupplier;
+        this.requestHedger = requestHedger;
+        this.connectionRacer = connectionRacer;
+        this.requestRetrier = requestRetrier;
+        this.requestDeadlineInNanoseconds = requestDeadlineInNanoseconds;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    /**
+     * @return a client sending the requests with the given end-to-end deadline, sharing the pool and the configuration of this one.
+     */
+    ResilientClient withRequestDeadline(Duration requestDeadline) {
+        return new ResilientClient(roundRobinPoolSupplier, requestHedger, connectionRacer, requestRetrier, requestDeadline.toNanos(), scheduledExecutorService);
     }
 
     @Override
     public Optional<CookieHandler> cookieHandler() {
-        return httpClient().cookieHandler();
+        return metadataClient().cookieHandler();
     }
 
-    private static SingleIpHttpClient singleIpHttpClient(RoundRobinPool roundRobinPool) {
+    static SingleIpHttpClient singleIpHttpClient(RoundRobinPool roundRobinPool) {
         return roundRobinPool.next().orElseThrow(() -> new IllegalStateException("There is no healthy connection to send the request"));
     }
 
     static <T> CompletableFuture<HttpResponse<T>> handleConnectTimeout(Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool) {
+        return handleConnectTimeout(send, roundRobinPool, null);
+    }
+
+    /**
+     * @param connectionRacer race the connections to the addresses on the first request to a client and on failover, {@code null} to try them in turn
+     */
+    static <T> CompletableFuture<HttpResponse<T>> handleConnectTimeout(Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool, ConnectionRacer connectionRacer) {
         final SingleIpHttpClient firstClient = singleIpHttpClient(roundRobinPool);
-        return handleConnectTimeout(send, roundRobinPool, firstClient, new ArrayList<>());
+        return handleConnectTimeout(send, roundRobinPool, firstClient, new ArrayList<>(), connectionRacer);
 
     }
 
     @Override
     public Optional<Duration> connectTimeout() {
-        return httpClient().connectTimeout();
+        return metadataClient().connectTimeout();
     }
 
     @Override
     public Redirect followRedirects() {
-        return httpClient().followRedirects();
+        return metadataClient().followRedirects();
     }
 
     @Override
     public Optional<ProxySelector> proxy() {
-        return httpClient().proxy();
+        return metadataClient().proxy();
     }
 
     @Override
     public SSLContext sslContext() {
-        return httpClient().sslContext();
+        return metadataClient().sslContext();
     }
 
     @Override
     public SSLParameters sslParameters() {
-        return httpClient().sslParameters();
+        return metadataClient().sslParameters();
     }
 
     @Override
     public Optional<Authenticator> authenticator() {
-        return httpClient().authenticator();
+        return metadataClient().authenticator();
     }
 
     @Override
     public Version version() {
-        return httpClient().version();
+        return metadataClient().version();
     }
 
     @Override
     public Optional<Executor> executor() {
-        return httpClient().executor();
+        return metadataClient().executor();
     }
 
-    @SuppressWarnings("squid:S3864")// Usage of peek method is correct here
-    private static <T> CompletableFuture<HttpResponse<T>> handleConnectTimeout(
+    static <T> CompletableFuture<HttpResponse<T>> handleConnectTimeout(
             Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
             RoundRobinPool roundRobinPool,
             SingleIpHttpClient firstClient,
-            List<InetAddress> triedAddress
+            List<InetSocketAddress> triedAddress,
+            ConnectionRacer connectionRacer
     ) {
-        final long healthyNodes = roundRobinPool.getList().stream().filter(SingleIpHttpClient::isHealthy).count();
-        if (triedAddress.size() >= healthyNodes) {
-            final CompletableFuture<HttpResponse<T>> httpResponseCompletableFuture = new CompletableFuture<>();
-            httpResponseCompletableFuture.completeExceptionally(new HttpConnectTimeoutException("Cannot connect to the server, the following address were tried without success " + triedAddress + "."));
-            return httpResponseCompletableFuture;
+        // A client made unhealthy by its failed attempt leaves the pool, the failover goes on while other clients were not tried
+        if (triedAddress.size() >= roundRobinPool.failoverCount() && roundRobinPool.failoverItems().stream().allMatch(singleIpHttpClient -> triedAddress.contains(singleIpHttpClient.getSocketAddress()))) {
+            return connectFailure(triedAddress);
+        }
+
+        if (connectionRacer != null && (!triedAddress.isEmpty() || !firstClient.isConnectionVerified())) {
+            // Race the connections to the remaining addresses instead of waiting for the connect timeout of each one in turn
+            return connectionRacer.race(untriedClients(roundRobinPool, firstClient, triedAddress))
+                    .handle((singleIpHttpClient, throwable) -> {
+                        if (throwable != null) {
+                            return CompletableFuture.<HttpResponse<T>>failedFuture(throwable);
+                        }
+                        return sendTo(send, roundRobinPool, firstClient, triedAddress, connectionRacer, singleIpHttpClient);
+                    })
+                    .thenCompose(Function.identity());
         }
 
         return Optional.of(firstClient)
                 .filter(ignored -> triedAddress.isEmpty())
-                .or(roundRobinPool::next)
-                .stream()
-                .peek(singleIpHttpClient -> triedAddress.add(singleIpHttpClient.getInetAddress()))
-                .map(singleIpHttpClient -> new ClientWithResponseFuture<>(singleIpHttpClient, send.apply(singleIpHttpClient.getHttpClient())))
-                .map(clientWithResponseFuture -> addExceptionHandlerFuture(send, roundRobinPool, firstClient, triedAddress, clientWithResponseFuture))
-                .map(ResilientClient::addCounterRefresherFuture)
-                .findAny()
-                .orElseThrow(() -> new IllegalStateException("Cannot connect to the server, the following address were tried without success " + triedAddress + "."));
-    }
-
-    private static <T> ClientWithResponseFuture<T> addExceptionHandlerFuture(final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
-                                                                             final RoundRobinPool roundRobinPool,
-                                                                             final SingleIpHttpClient firstClient,
-                                                                             final List<InetAddress> triedAddress,
-                                                                             final ClientWithResponseFuture<T> clientWithResponseFuture) {
-
-        final CompletableFuture<HttpResponse<T>> httpResponseCompletableFuture = clientWithResponseFuture.httpResponseFuture
-                .exceptionally(throwable -> {
-                    if (Optional.ofNullable(throwable.getCause())
-                            .map(Object::getClass)
-                            .filter(CONNECT_EXCEPTION_CLASS::contains)
-                            .isPresent()
-                    ) {
-                        return handleConnectTimeout(send, roundRobinPool, firstClient, triedAddress).join();
-                    }
+                .or(() -> nextUntriedClient(roundRobinPool, triedAddress))
+                .map(singleIpHttpClient -> sendTo(send, roundRobinPool, firstClient, triedAddress, connectionRacer, singleIpHttpClient))
+                .orElseGet(() -> connectFailure(triedAddress));
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> connectFailure(List<InetSocketAddress> triedAddress) {
+        final CompletableFuture<HttpResponse<T>> httpResponseCompletableFuture = new CompletableFuture<>();
+        httpResponseCompletableFuture.completeExceptionally(new HttpConnectTimeoutException("Cannot connect to the server, the following address were tried without success " + triedAddress + "."));
+        return httpResponseCompletableFuture;
+    }
+
+    /**
+     * The client selected by the load balancing strategy when it was not tried yet, the first healthy client not tried yet otherwise,
+     * so that the failover moves on to the next priority tier once all the clients of the preferred one were tried.
+     */
+    private static Optional<SingleIpHttpClient> nextUntriedClient(RoundRobinPool roundRobinPool, List<InetSocketAddress> triedAddress) {
+        return roundRobinPool.next()
+                .filter(singleIpHttpClient -> !triedAddress.contains(singleIpHttpClient.getSocketAddress()))
+                .or(() -> roundRobinPool.failoverItems().stream()
+                        .filter(singleIpHttpClient -> !triedAddress.contains(singleIpHttpClient.getSocketAddress()))
+                        .findFirst());
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> sendTo(
+            Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
+            RoundRobinPool roundRobinPool,
+            SingleIpHttpClient firstClient,
+            List<InetSocketAddress> triedAddress,
+            ConnectionRacer connectionRacer,
+            SingleIpHttpClient singleIpHttpClient
+    ) {
+        triedAddress.add(singleIpHttpClient.getSocketAddress());
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture = sendWithInFlightTracking(send, singleIpHttpClient);
+        return addExceptionHandlerFuture(send, roundRobinPool, firstClient, triedAddress, connectionRacer, singleIpHttpClient, httpResponseFuture);
+    }
 
-                    if (throwable instanceof Error) {
-                        throw (Error) throwable;
+    /**
+     * The healthy clients not tried yet, starting with the first client when it was not tried, by order of preference for a connection race.
+     * The clients of the other priority tiers come after the ones of the preferred tier.
+     */
+    private static List<SingleIpHttpClient> untriedClients(RoundRobinPool roundRobinPool, SingleIpHttpClient firstClient, List<InetSocketAddress> triedAddress) {
+        final List<SingleIpHttpClient> untriedClients = new ArrayList<>();
+        if (!triedAddress.contains(firstClient.getSocketAddress())) {
+            untriedClients.add(firstClient);
+        }
+        for (SingleIpHttpClient singleIpHttpClient : roundRobinPool.failoverItems()) {
+            if (singleIpHttpClient != firstClient && !triedAddress.contains(singleIpHttpClient.getSocketAddress())) {
+                untriedClients.add(singleIpHttpClient);
+            }
+        }
+        return untriedClients;
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> sendWithInFlightTracking(
+            final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
+            final SingleIpHttpClient singleIpHttpClient
+    ) {
+        final long start = singleIpHttpClient.requestStarted();
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture;
+        try {
+            httpResponseFuture = send.apply(singleIpHttpClient.getHttpClient());
+        } catch (RuntimeException e) {
+            singleIpHttpClient.requestFailed();
+            throw e;
+        }
+        // Side branch so that the request is completed, and its response time measured, before a possible failover to another client
+        httpResponseFuture.whenComplete((httpResponse, throwable) -> {
+            if (throwable == null && httpResponse != null) {
+                singleIpHttpClient.requestCompleted(start);
+            } else {
+                singleIpHttpClient.requestFailed();
+            }
+        });
+        return httpResponseFuture;
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> addExceptionHandlerFuture(final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send,
+                                                                                    final RoundRobinPool roundRobinPool,
+                                                                                    final SingleIpHttpClient firstClient,
+                                                                                    final List<InetSocketAddress> triedAddress,
+                                                                                    final ConnectionRacer connectionRacer,
+                                                                                    final SingleIpHttpClient singleIpHttpClient,
+                                                                                    final CompletableFuture<HttpResponse<T>> httpResponseFuture) {
+
+        // The failover is composed instead of joined so that the thread completing the failed attempt is never blocked by the next attempt
+        return httpResponseFuture
+                .handle((httpResponse, throwable) -> {
+                    // The outcome of this attempt is recorded against its own client, the failover attempts record theirs
+                    refreshCounters(singleIpHttpClient, httpResponse, throwable);
+                    if (throwable == null) {
+                        return CompletableFuture.completedFuture(httpResponse);
                     }
-                    if (throwable instanceof RuntimeException) {
-                        throw (RuntimeException) throwable;
+                    if (isConnectException(throwable.getCause())) {
+                        singleIpHttpClient.connectionFailed();
+                        return handleConnectTimeout(send, roundRobinPool, firstClient, triedAddress, connectionRacer);
                     }
-                    throw new IllegalStateException(throwable);
-                });
 
-        return clientWithResponseFuture.withResponseFuture(httpResponseCompletableFuture);
+                    if (throwable instanceof Error || throwable instanceof RuntimeException) {
+                        return CompletableFuture.<HttpResponse<T>>failedFuture(throwable);
+                    }
+                    return CompletableFuture.<HttpResponse<T>>failedFuture(new IllegalStateException(throwable));
+                })
+                .thenCompose(Function.identity());
     }
 
-    private static <T> CompletableFuture<HttpResponse<T>> addCounterRefresherFuture(final ClientWithResponseFuture<T> clientWithResponseFuture) {
-        return clientWithResponseFuture.httpResponseFuture
-                .whenComplete((httpResponse, throwable) -> {
-                    if (throwable != null || httpResponse == null) {
-                        clientWithResponseFuture.singleIpHttpClient.incrementFailureCount();
-                    } else {
-                        clientWithResponseFuture.singleIpHttpClient.refreshFailureCountWithStatusCode(httpResponse.statusCode());
-                    }
-                });
+    static boolean isDeadlineExceeded(Throwable throwable) {
+        return throwable instanceof RequestDeadline.DeadlineExceededException || (throwable != null && throwable.getCause() instanceof RequestDeadline.DeadlineExceededException);
+    }
+
+    static boolean isConnectException(Throwable throwable) {
+        return Optional.ofNullable(throwable)
+                .map(Object::getClass)
+                .filter(CONNECT_EXCEPTION_CLASS::contains)
+                .isPresent();
+    }
+
+    /**
+     * Release the body of a response which is not given to the caller, it may hold the connection, for example an input stream.
+     */
+    static void discardBody(HttpResponse<?> discardedResponse) {
+        if (discardedResponse != null && discardedResponse.body() instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) discardedResponse.body()).close();
+            } catch (Exception e) {
+                LOGGER.log(Level.DEBUG, () -> "Cannot close the body of the discarded response " + discardedResponse, e);
+            }
+        }
     }
 
-    private HttpClient httpClient() {
-        return singleIpHttpClient(roundRobinPoolSupplier.get()).getHttpClient();
+    private static void refreshCounters(final SingleIpHttpClient singleIpHttpClient, final HttpResponse<?> httpResponse, final Throwable throwable) {
+        if (RequestHedger.isCancellation(throwable) || isDeadlineExceeded(throwable)) {
+            // A hedged request cancelled because the other one won, or a request not sent because of its deadline, is not a failure of the client
+            return;
+        }
+        if (throwable != null || httpResponse == null) {
+            singleIpHttpClient.incrementFailureCount();
+            singleIpHttpClient.trafficFailed();
+        } else {
+            singleIpHttpClient.refreshFailureCountWithStatusCode(httpResponse.statusCode());
+            singleIpHttpClient.refreshLoadShedding(httpResponse);
+            singleIpHttpClient.trafficResponded(httpResponse.statusCode());
+        }
+    }
+
+    /**
+     * The configuration is shared by all the clients of the pool, reading it neither moves the round-robin position nor checks the health.
+     */
+    private HttpClient metadataClient() {
+        return roundRobinPoolSupplier.get()
+                .getMetadataClient()
+                .orElseThrow(() -> new IllegalStateException("There is no connection in the pool to read the client configuration"));
     }
 
     @Override
     public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        if (isHedged(request) || isRetried(request)) {
+            return sendAsyncAndWait(request, responseBodyHandler);
+        }
         final RoundRobinPool roundRobinPool = roundRobinPoolSupplier.get();
         final SingleIpHttpClient firstClient = roundRobinPool.next().orElseThrow(() -> new IllegalStateException("There is no healthy connection to send the request in the pool " + roundRobinPool));
-        final long healthyNodes = roundRobinPool.getList().stream().filter(SingleIpHttpClient::isHealthy).count();
-        final List<InetAddress> tried = new ArrayList<>();
+        final int healthyNodes = roundRobinPool.failoverCount();
+        final List<InetSocketAddress> tried = new ArrayList<>();
 
 
+        final RequestDeadline deadline = RequestDeadline.start(requestDeadlineInNanoseconds);
+
         SingleIpHttpClient client = firstClient;
+        if (connectionRacer != null && !firstClient.isConnectionVerified()) {
+            client = raceConnections(roundRobinPool, firstClient, tried, request, deadline);
+        }
         while (tried.size() < healthyNodes) {
+            final HttpRequest attemptRequest = attemptRequest(request, deadline);
+            final SingleIpHttpClient currentClient = client;
+            final long start = currentClient.requestStarted();
+            boolean responded = false;
             try {
-                final HttpResponse<T> httpResponse = client.getHttpClient().send(request, responseBodyHandler);
+                final HttpResponse<T> httpResponse = currentClient.getHttpClient().send(attemptRequest, responseBodyHandler);
+                responded = true;
 
-                client.refreshFailureCountWithStatusCode(httpResponse.statusCode());
+                currentClient.refreshFailureCountWithStatusCode(httpResponse.statusCode());
+                currentClient.refreshLoadShedding(httpResponse);
+                currentClient.trafficResponded(httpResponse.statusCode());
                 return httpResponse;
             } catch (HttpConnectTimeoutException | ConnectException e) {
-                client.incrementFailureCount();
-
-                var finalClient = client;
-                LOGGER.log(Level.WARNING, () -> "Got a connect timeout when trying to connect to " + finalClient.getInetAddress() + ", already tried " + tried);
-                tried.add(finalClient.getInetAddress());
-                final Optional<SingleIpHttpClient> nextClient = roundRobinPool.next();
+                currentClient.incrementFailureCount();
+                currentClient.connectionFailed();
+                currentClient.trafficFailed();
+
+                LOGGER.log(Level.WARNING, () -> "Got a connect timeout when trying to connect to " + currentClient.getSocketAddress() + ", already tried " + tried);
+                tried.add(currentClient.getSocketAddress());
+                if (connectionRacer != null) {
+                    if (tried.size() >= healthyNodes) {
+                        break;
+                    }
+                    client = raceConnections(roundRobinPool, firstClient, tried, request, deadline);
+                    continue;
+                }
+                final Optional<SingleIpHttpClient> nextClient = nextUntriedClient(roundRobinPool, tried);
                 if (nextClient.isEmpty()) {
                     final HttpConnectTimeoutException httpConnectTimeoutException = new HttpConnectTimeoutException("Cannot connect to the HTTP server, tried to connect to the following IP " + tried + " to send the HTTP request " + request);
                     httpConnectTimeoutException.initCause(e);
                     throw httpConnectTimeoutException;
                 }
                 client = nextClient.get();
+            } finally {
+                if (responded) {
+                    currentClient.requestCompleted(start);
+                } else {
+                    currentClient.requestFailed();
+                }
             }
         }
         throw new HttpConnectTimeoutException("Cannot connect to the HTTP server, tried to connect to the following IP " + tried + " to send the HTTP request " + request);
     }
 
+    /**
+     * @return the request of the next attempt, with a timeout shrunk to the remaining time of the deadline if any.
+     */
+    private static HttpRequest attemptRequest(HttpRequest request, RequestDeadline deadline) throws HttpTimeoutException {
+        if (deadline == null) {
+            return request;
+        }
+        if (deadline.isExceeded()) {
+            throw deadline.exceeded(request);
+        }
+        return deadline.shrink(request);
+    }
+
+    private SingleIpHttpClient raceConnections(RoundRobinPool roundRobinPool, SingleIpHttpClient firstClient, List<InetSocketAddress> tried, HttpRequest request, RequestDeadline deadline) throws IOException, InterruptedException {
+        final CompletableFuture<SingleIpHttpClient> race = connectionRacer.race(untriedClients(roundRobinPool, firstClient, tried));
+        try {
+            if (deadline == null) {
+                return race.get();
+            }
+            return race.get(Math.max(0L, deadline.remainingInNanoseconds()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            race.cancel(true);
+            throw deadline.exceeded(request);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     @Override
     public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
-        return handleConnectTimeout(httpclient -> httpclient.sendAsync(request, responseBodyHandler), roundRobinPoolSupplier.get());
+        final RoundRobinPool roundRobinPool = roundRobinPoolSupplier.get();
+        final RequestDeadline deadline = RequestDeadline.start(requestDeadlineInNanoseconds);
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture;
+        if (isRetried(request)) {
+            httpResponseFuture = sendRetried(request, responseBodyHandler, roundRobinPool, deadline);
+        } else {
+            final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send = withDeadline(request, deadline, (httpclient, attemptRequest) -> httpclient.sendAsync(attemptRequest, responseBodyHandler));
+            httpResponseFuture = firstAttempt(request, send, roundRobinPool);
+        }
+        return deadline == null ? httpResponseFuture : deadline.bound(request, httpResponseFuture, scheduledExecutorService);
 
     }
 
-    @Override
-    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
-        return handleConnectTimeout(httpclient -> httpclient.sendAsync(request, responseBodyHandler, pushPromiseHandler), roundRobinPoolSupplier.get());
+    /**
+     * The body of a retried request is captured while it is sent so that the retries can replay it, a body which cannot be replayed is not retried.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendRetried(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, RoundRobinPool roundRobinPool, RequestDeadline deadline) {
+        final HttpRequest.BodyPublisher bodyPublisher = request.bodyPublisher().filter(publisher -> publisher.contentLength() != 0).orElse(null);
+        if (bodyPublisher == null || bodyPublisher instanceof ReplayableBodyPublisher) {
+            final BooleanSupplier replayable = bodyPublisher == null ? () -> true : ((ReplayableBodyPublisher) bodyPublisher)::isReplayable;
+            final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send = withDeadline(request, deadline, (httpclient, attemptRequest) -> httpclient.sendAsync(attemptRequest, responseBodyHandler));
+            return requestRetrier.send(send, roundRobinPool, trackedSend -> firstAttempt(request, trackedSend, roundRobinPool), connectionRacer, replayable);
+        }
+        final ReplayableBodyPublisher replayableBody = ReplayableBodyPublisher.of(bodyPublisher);
+        final HttpRequest replayableRequest = ForwardingHttpRequest.withBodyPublisher(request, replayableBody);
+        final Function<HttpClient, CompletableFuture<HttpResponse<T>>> send = withDeadline(replayableRequest, deadline, (httpclient, attemptRequest) -> httpclient.sendAsync(attemptRequest, responseBodyHandler));
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture = requestRetrier.send(send, roundRobinPool, trackedSend -> firstAttempt(replayableRequest, trackedSend, roundRobinPool), connectionRacer, replayableBody::isReplayable);
+        // The captured body is given back to the pool once no attempt can be sent anymore
+        httpResponseFuture.whenComplete((httpResponse, throwable) -> replayableBody.release());
+        return httpResponseFuture;
     }
 
-    @Override
-    public WebSocket.Builder newWebSocketBuilder() {
-        return httpClient().newWebSocketBuilder();
+    /**
+     * Send each attempt with a timeout shrunk to the remaining time of the deadline, if any, and fail without sending once the deadline is exceeded.
+     */
+    private static <T> Function<HttpClient, CompletableFuture<HttpResponse<T>>> withDeadline(HttpRequest request, RequestDeadline deadline, BiFunction<HttpClient, HttpRequest, CompletableFuture<HttpResponse<T>>> send) {
+        if (deadline == null) {
+            return httpClient -> send.apply(httpClient, request);
+        }
+        return httpClient -> deadline.send(request, attemptRequest -> send.apply(httpClient, attemptRequest));
     }
 
-    private static class ClientWithResponseFuture<T> {
+    private <T> CompletableFuture<HttpResponse<T>> firstAttempt(HttpRequest request, Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool) {
+        if (isHedged(request)) {
+            return requestHedger.send(send, roundRobinPool, connectionRacer);
+        }
+        return handleConnectTimeout(send, roundRobinPool, connectionRacer);
+    }
 
-        private final SingleIpHttpClient singleIpHttpClient;
-        private final CompletableFuture<HttpResponse<T>> httpResponseFuture;
+    private boolean isHedged(HttpRequest request) {
+        return requestHedger != null && RequestHedger.isHedgeable(request);
+    }
 
-        ClientWithResponseFuture(final SingleIpHttpClient singleIpHttpClient, final CompletableFuture<HttpResponse<T>> httpResponseFuture) {
-            this.singleIpHttpClient = singleIpHttpClient;
-            this.httpResponseFuture = httpResponseFuture;
-        }
+    private boolean isRetried(HttpRequest request) {
+        return requestRetrier != null && requestRetrier.getRetryPolicy().isIdempotent(request);
+    }
 
-        ClientWithResponseFuture<T> withResponseFuture(final CompletableFuture<HttpResponse<T>> httpResponseFuture) {
-            return new ClientWithResponseFuture<>(this.singleIpHttpClient, httpResponseFuture);
+    /**
+     * The hedged and retried requests are sent asynchronously to compose the attempts, the calling thread waits for the outcome.
+     */
+    private <T> HttpResponse<T> sendAsyncAndWait(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture = sendAsync(request, responseBodyHandler);
+        try {
+            return httpResponseFuture.get();
+        } catch (InterruptedException e) {
+            httpResponseFuture.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
         }
     }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        final RequestDeadline deadline = RequestDeadline.start(requestDeadlineInNanoseconds);
+        final CompletableFuture<HttpResponse<T>> httpResponseFuture = handleConnectTimeout(withDeadline(request, deadline, (httpclient, attemptRequest) -> httpclient.sendAsync(attemptRequest, responseBodyHandler, pushPromiseHandler)), roundRobinPoolSupplier.get(), connectionRacer);
+        return deadline == null ? httpResponseFuture : deadline.bound(request, httpResponseFuture, scheduledExecutorService);
+    }
+
+    /**
+     * The web socket builder does not rewrite the URI to the address of a client, it connects to the URI given to it,
+     * so it is built from the shared configuration without moving the round-robin position.
+     */
+    @Override
+    public WebSocket.Builder newWebSocketBuilder() {
+        return metadataClient().newWebSocketBuilder();
+    }
 }
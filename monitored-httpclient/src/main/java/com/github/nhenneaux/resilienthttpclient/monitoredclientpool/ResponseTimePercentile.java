@@ -0,0 +1,77 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile of the most recent response times, kept in a fixed-size ring.
+ * The percentile is computed again at most every {@link #REFRESH_PERIOD_IN_NANOSECONDS} so that reading it is cheap on the request path.
+ */
+class ResponseTimePercentile {
+
+    static final int SAMPLE_SIZE = 256;
+    // Below this number of samples the percentile is not significant
+    static final int MIN_SAMPLES = 20;
+    static final long REFRESH_PERIOD_IN_NANOSECONDS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double percentile;
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLE_SIZE);
+    private final AtomicInteger recorded = new AtomicInteger();
+    private volatile Computed computed = new Computed(-1L, System.nanoTime(), 0);
+
+    ResponseTimePercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    void observe(long responseTimeInNanoseconds) {
+        final int index = recorded.getAndIncrement() & Integer.MAX_VALUE;
+        samples.set(index % SAMPLE_SIZE, responseTimeInNanoseconds);
+    }
+
+    /**
+     * @return the percentile in nanoseconds or -1 when not enough response times were observed.
+     */
+    long get() {
+        final Computed current = computed;
+        final int count = recorded.get();
+        final long now = System.nanoTime();
+        if (count == current.count || (current.value >= 0 && now - current.computedAt < REFRESH_PERIOD_IN_NANOSECONDS)) {
+            return current.value;
+        }
+        final int size = Math.min(count, SAMPLE_SIZE);
+        if (size < MIN_SAMPLES) {
+            return -1L;
+        }
+        final long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        final long value = sorted[(int) Math.min(size - 1L, (long) Math.ceil(percentile / 100D * size) - 1L)];
+        // Concurrent computations are harmless, the last one wins
+        computed = new Computed(value, now, count);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseTimePercentile{" +
+                "percentile=" + percentile +
+                ", valueInNanoseconds=" + computed.value +
+                '}';
+    }
+
+    private static class Computed {
+        private final long value;
+        private final long computedAt;
+        private final int count;
+
+        Computed(long value, long computedAt, int count) {
+            this.value = value;
+            this.computedAt = computedAt;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Parser of the Retry-After header (RFC 9110 section 10.2.3) which is either a number of seconds or an HTTP date.
+ */
+final class RetryAfter {
+
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private RetryAfter() {
+    }
+
+    /**
+     * @param headers the headers of a response
+     * @param now     the current time to compute the delay of an HTTP date
+     * @return the delay before the server accepts requests again, empty if the header is missing or invalid.
+     */
+    static Optional<Duration> parse(HttpHeaders headers, Instant now) {
+        return headers.firstValue(RETRY_AFTER_HEADER).flatMap(value -> parse(value.trim(), now));
+    }
+
+    static Optional<Duration> parse(String value, Instant now) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            try {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value)));
+            } catch (NumberFormatException e) {
+                // Too many seconds, ignored as any invalid value
+                return Optional.empty();
+            }
+        }
+        try {
+            final Instant retryAt = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            final Duration delay = Duration.between(now, retryAt);
+            return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Configure the retries, on another IP, of the idempotent requests failing after the connection was established:
+ * connection or stream resets, HTTP/2 GOAWAY, request timeouts, or responses such as 502, 503 and 504 from a draining server or 429 from a server shedding load.
+ * The connection failures are already failed over to the other IPs, whatever the method and whatever this policy.
+ * <p>
+ * The retries are limited by a budget, a percentage of the requests, so that retries cannot cause a retry storm under load.
+ *
+ * @see HttpClientPoolBuilder#withRetryPolicy(RetryPolicy)
+ */
+@SuppressWarnings("WeakerAccess")
+// Used outside library
+public final class RetryPolicy {
+
+    /**
+     * The idempotent methods as defined in RFC 9110.
+     */
+    public static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+    /**
+     * A request with this header is considered idempotent whatever its method.
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final Set<Integer> DEFAULT_RETRYABLE_STATUS_CODES = Set.of(429, 502, 503, 504);
+    public static final Set<Class<? extends Throwable>> DEFAULT_RETRYABLE_EXCEPTIONS = Set.of(IOException.class);
+
+    private final int maxRetries;
+    private final int budgetPercent;
+    private final Set<String> idempotentMethods;
+    private final Set<Integer> retryableStatusCodes;
+    private final Set<Class<? extends Throwable>> retryableExceptions;
+
+    private RetryPolicy(int maxRetries, int budgetPercent, Set<String> idempotentMethods, Set<Integer> retryableStatusCodes, Set<Class<? extends Throwable>> retryableExceptions) {
+        if (maxRetries < 1) {
+            throw new IllegalArgumentException("The maximum number of retries should be positive but was " + maxRetries);
+        }
+        if (budgetPercent < 1 || budgetPercent > 100) {
+            throw new IllegalArgumentException("The retry budget should be a percentage between 1 and 100 but was " + budgetPercent);
+        }
+        this.maxRetries = maxRetries;
+        this.budgetPercent = budgetPercent;
+        this.idempotentMethods = idempotentMethods.stream().map(method -> method.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        this.retryableStatusCodes = Set.copyOf(retryableStatusCodes);
+        this.retryableExceptions = Set.copyOf(retryableExceptions);
+    }
+
+    /**
+     * @param maxRetries    the maximum number of retries of a request
+     * @param budgetPercent the maximum ratio of retries to requests, in percent
+     * @return a policy retrying the idempotent methods on I/O errors and on 429, 502, 503 and 504 responses.
+     */
+    public static RetryPolicy of(int maxRetries, int budgetPercent) {
+        return new RetryPolicy(maxRetries, budgetPercent, IDEMPOTENT_METHODS, DEFAULT_RETRYABLE_STATUS_CODES, DEFAULT_RETRYABLE_EXCEPTIONS);
+    }
+
+    /**
+     * @param idempotentMethods the methods which can be retried, {@link #IDEMPOTENT_METHODS} by default, to add for example a POST known to be idempotent
+     * @return a copy of this policy with the given methods.
+     */
+    public RetryPolicy withIdempotentMethods(Set<String> idempotentMethods) {
+        return new RetryPolicy(maxRetries, budgetPercent, idempotentMethods, retryableStatusCodes, retryableExceptions);
+    }
+
+    /**
+     * @param retryableStatusCodes the response status codes which are retried, {@link #DEFAULT_RETRYABLE_STATUS_CODES} by default
+     * @return a copy of this policy with the given status codes.
+     */
+    public RetryPolicy withRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        return new RetryPolicy(maxRetries, budgetPercent, idempotentMethods, retryableStatusCodes, retryableExceptions);
+    }
+
+    /**
+     * @param retryableExceptions the exceptions, and their subclasses, which are retried, {@link #DEFAULT_RETRYABLE_EXCEPTIONS} by default
+     * @return a copy of this policy with the given exceptions.
+     */
+    public RetryPolicy withRetryableExceptions(Set<Class<? extends Throwable>> retryableExceptions) {
+        return new RetryPolicy(maxRetries, budgetPercent, idempotentMethods, retryableStatusCodes, retryableExceptions);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    public Set<String> getIdempotentMethods() {
+        return idempotentMethods;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public Set<Class<? extends Throwable>> getRetryableExceptions() {
+        return retryableExceptions;
+    }
+
+    /**
+     * @return whether the request is idempotent, either by its method or by its {@link #IDEMPOTENCY_KEY_HEADER} header.
+     */
+    boolean isIdempotent(HttpRequest request) {
+        return idempotentMethods.contains(request.method().toUpperCase(Locale.ROOT))
+                || request.headers().firstValue(IDEMPOTENCY_KEY_HEADER).isPresent();
+    }
+
+    boolean isRetryable(int statusCode) {
+        return retryableStatusCodes.contains(statusCode);
+    }
+
+    boolean isRetryable(Throwable throwable) {
+        return retryableExceptions.stream().anyMatch(retryableException -> retryableException.isInstance(throwable));
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxRetries=" + maxRetries +
+                ", budgetPercent=" + budgetPercent +
+                ", idempotentMethods=" + idempotentMethods +
+                ", retryableStatusCodes=" + retryableStatusCodes +
+                ", retryableExceptions=" + retryableExceptions +
+                '}';
+    }
+}
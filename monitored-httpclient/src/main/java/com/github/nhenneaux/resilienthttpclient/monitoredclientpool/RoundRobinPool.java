@@ -1,47 +1,107 @@
 package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 
+import java.net.http.HttpClient;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.RandomAccess;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import static java.util.function.Predicate.not;
-
 /**
- * A round-robin accessor for a list with a health check for each item.
+ * An accessor for a list with a health check for each item, the next item is selected by a {@link LoadBalancingStrategy}, round-robin by default.
+ * <p>
+ * The healthy items are kept in a precomputed snapshot which is only republished when the health of an item changes,
+ * so that {@link #next()} does neither allocate nor filter the list.
+ * <p>
+ * Only the healthy items with the most preferred priority are selected, the items of the other priority tiers of the SRV records take over when none of them is healthy.
  */
 class RoundRobinPool {
     static final RoundRobinPool EMPTY = new RoundRobinPool(Collections.emptyList());
 
     private final List<SingleIpHttpClient> list;
-    private final AtomicInteger position = new AtomicInteger(-1);
+    private final HttpClient metadataClient;
+    private final LoadBalancingStrategy loadBalancingStrategy;
+    private volatile HealthySnapshot healthySnapshot;
 
 
     /**
-     * Create a new instance with a list that has constant time access as defined in {@link RandomAccess}
+     * Create a new instance with a list that has constant time access as defined in {@link RandomAccess} and a round-robin selection.
      *
      * @param list a list of service instance.
      */
     RoundRobinPool(final List<SingleIpHttpClient> list) {
+        this(list, LoadBalancingStrategy.roundRobin());
+    }
+
+    /**
+     * Create a new instance with a list that has constant time access as defined in {@link RandomAccess}
+     *
+     * @param list                  a list of service instance.
+     * @param loadBalancingStrategy the strategy selecting the next healthy instance.
+     */
+    RoundRobinPool(final List<SingleIpHttpClient> list, final LoadBalancingStrategy loadBalancingStrategy) {
         this.list = List.copyOf(list);
+        this.loadBalancingStrategy = loadBalancingStrategy;
+        // All the clients are built by the same provider, the first one exposes the configuration of the whole pool
+        this.metadataClient = this.list.isEmpty() ? null : this.list.get(0).getHttpClient();
+        this.list.forEach(client -> client.onHealthChange(this::refreshHealthyItems));
+        this.healthySnapshot = new HealthySnapshot(this.list, SingleIpHttpClient::isHealthy);
+    }
+
+    /**
+     * Recompute the snapshot of the healthy items, called when the health of an item changes or when it is ejected or readmitted.
+     */
+    synchronized void refreshHealthyItems() {
+        healthySnapshot = new HealthySnapshot(list, SingleIpHttpClient::isHealthy);
     }
 
 
     /**
-     * @return an empty optional if the list is empty, the next element of the list (if the last index is reached, the first element is returned) otherwise
+     * @return an empty optional if there is no healthy element, the next healthy element of the list selected by the load balancing strategy otherwise
      */
     Optional<SingleIpHttpClient> next() {
-        final Optional<List<SingleIpHttpClient>> activeList = Optional.of(
-                list.stream()
-                        .filter(SingleIpHttpClient::isHealthy)
-                        .collect(Collectors.toUnmodifiableList())
-        );
+        final HealthySnapshot snapshot = healthySnapshot;
+        if (snapshot.items.isEmpty()) {
+            return Optional.empty();
+        }
+        return snapshot.optionalItems[loadBalancingStrategy.select(snapshot.items)];
+    }
+
+    /**
+     * @return the number of healthy elements in the current snapshot.
+     */
+    int healthyCount() {
+        return healthySnapshot.items.size();
+    }
 
-        return activeList
-                .filter(not(List::isEmpty))
-                .map(healthyItems -> healthyItems.get(position.updateAndGet(v -> (v + 1) % healthyItems.size())));
+    /**
+     * @return the healthy elements of the current snapshot, unmodifiable.
+     */
+    List<SingleIpHttpClient> healthyItems() {
+        return healthySnapshot.items;
+    }
+
+    /**
+     * @return the number of healthy elements which a request can fail over to, whatever their priority.
+     */
+    int failoverCount() {
+        return healthySnapshot.failoverItems.size();
+    }
+
+    /**
+     * @return the healthy elements which a request can fail over to, the ones with the most preferred priority first, unmodifiable.
+     */
+    List<SingleIpHttpClient> failoverItems() {
+        return healthySnapshot.failoverItems;
+    }
+
+    /**
+     * @return an empty optional if the list is empty, a client exposing the configuration shared by all the clients of the pool otherwise
+     */
+    Optional<HttpClient> getMetadataClient() {
+        return Optional.ofNullable(metadataClient);
     }
 
     List<SingleIpHttpClient> getList() {
@@ -52,7 +112,41 @@ class RoundRobinPool {
     public String toString() {
         return "GenericRoundRobinListWithHealthCheck{" +
                 "list=" + list +
-                ", position=" + position +
+                ", healthyItems=" + healthySnapshot.items +
+                ", loadBalancingStrategy=" + loadBalancingStrategy +
                 '}';
     }
-}
\ No newline at end of file
+
+    private static class HealthySnapshot {
+        private final List<SingleIpHttpClient> items;
+        private final List<SingleIpHttpClient> failoverItems;
+        // Optional instances are built once per snapshot, not for each selection
+        private final Optional<SingleIpHttpClient>[] optionalItems;
+
+        @SuppressWarnings("unchecked")
+        HealthySnapshot(List<SingleIpHttpClient> list, Predicate<SingleIpHttpClient> isHealthy) {
+            final List<SingleIpHttpClient> healthy = list.stream()
+                    .filter(isHealthy)
+                    .collect(Collectors.toUnmodifiableList());
+            final List<SingleIpHttpClient> notEjected = healthy.stream()
+                    .filter(item -> !item.isEjected())
+                    .collect(Collectors.toUnmodifiableList());
+            // When all the healthy items shed load, the load is spread on all of them rather than failing every request
+            final List<SingleIpHttpClient> available = notEjected.isEmpty() ? healthy : notEjected;
+            final int preferredPriority = available.stream()
+                    .mapToInt(SingleIpHttpClient::getPriority)
+                    .min()
+                    .orElse(0);
+            this.items = available.stream()
+                    .filter(item -> item.getPriority() == preferredPriority)
+                    .collect(Collectors.toUnmodifiableList());
+            // The other priority tiers are only tried once the connections to the preferred one failed
+            this.failoverItems = available.stream()
+                    .sorted(Comparator.comparingInt(SingleIpHttpClient::getPriority))
+                    .collect(Collectors.toUnmodifiableList());
+            this.optionalItems = items.stream()
+                    .map(Optional::of)
+                    .toArray(Optional[]::new);
+        }
+    }
+}
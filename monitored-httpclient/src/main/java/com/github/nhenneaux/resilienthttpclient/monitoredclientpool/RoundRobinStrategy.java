@@ -0,0 +1,21 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.List;
+
+/**
+ * Select the healthy clients in turn.
+ */
+class RoundRobinStrategy implements LoadBalancingStrategy {
+
+    private final StripedCounter position = new StripedCounter();
+
+    @Override
+    public int select(List<SingleIpHttpClient> healthyClients) {
+        return position.getAndIncrement() % healthyClients.size();
+    }
+
+    @Override
+    public String toString() {
+        return "RoundRobinStrategy{}";
+    }
+}
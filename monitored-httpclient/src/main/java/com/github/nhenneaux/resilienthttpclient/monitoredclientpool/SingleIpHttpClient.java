@@ -1,9 +1,13 @@
 package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthCheckMode;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthEvaluator;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServiceEndpoint;
 
 import java.lang.System.Logger;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -12,10 +16,16 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -27,13 +37,44 @@ public class SingleIpHttpClient implements AutoCloseable {
 
     private static final Logger LOGGER = System.getLogger(SingleIpHttpClient.class.getName());
 
+    // Upper bound of the time an address shedding load is taken out of rotation, whatever its Retry-After header
+    static final Duration MAX_LOAD_SHEDDING_EJECTION = Duration.ofMinutes(5L);
+    // First delay before probing an unhealthy address again, doubled after each failed probe up to the health check period
+    static final Duration INITIAL_RECOVERY_BACKOFF = Duration.ofMillis(500L);
+    // Consecutive failures of the live traffic after which an address is unhealthy without waiting for its next health check
+    static final int PASSIVE_FAILURE_THRESHOLD = 5;
+
     private final HttpClient httpClient;
     private final InetAddress inetAddress;
     private final URI healthUri;
+    private final InetSocketAddress socketAddress;
     private final AtomicBoolean healthy;
-    private final Future<?> scheduledFuture;
+    private volatile Future<?> scheduledFuture;
     private final ServerConfiguration serverConfiguration;
     private final AtomicInteger failedResponseCount;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final PeakEwma responseTime = new PeakEwma();
+    private final HealthCheckLimiter healthCheckLimiter;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final HealthProbeRegistry.Subscription<HealthProbeResult> sharedHealthProbe;
+    private final AtomicBoolean healthCheckInFlight = new AtomicBoolean();
+    private final AtomicBoolean recoveryProbeScheduled = new AtomicBoolean();
+    private final CompletableFuture<Boolean> firstHealthCheck;
+    private volatile long recoveryBackoffInNanoseconds = INITIAL_RECOVERY_BACKOFF.toNanos();
+    private volatile boolean closed;
+    private final AtomicInteger consecutiveTrafficFailures = new AtomicInteger();
+    private volatile boolean trafficSucceeded;
+    private volatile long lastTrafficSuccess;
+    private volatile long healthySince;
+    private volatile boolean connectionVerified;
+    private volatile boolean ejected;
+    private volatile long ejectedUntil;
+    private ScheduledFuture<?> endOfEjection;
+    private volatile ScheduledFuture<?> recoveryProbe;
+    private volatile int priority;
+    private volatile int weight = 1;
+    private volatile Runnable healthChangeListener = () -> {
+    };
 
     /**
      * Create a new instance of the client and schedule a task to refresh is healthiness.
@@ -48,21 +89,87 @@ public class SingleIpHttpClient implements AutoCloseable {
             InetAddress inetAddress,
             ServerConfiguration serverConfiguration,
             ScheduledExecutorService scheduledExecutorService
+    ) {
+        this(httpClient, inetAddress, serverConfiguration, scheduledExecutorService, HealthCheckLimiter.UNLIMITED);
+    }
+
+    /**
+     * Create a new instance of the client and schedule a task to refresh is healthiness, the health checks are sent asynchronously without blocking the scheduler.
+     *
+     * @param healthCheckLimiter the limit of concurrent health checks shared by the clients of a pool
+     */
+    SingleIpHttpClient(
+            HttpClient httpClient,
+            InetAddress inetAddress,
+            ServerConfiguration serverConfiguration,
+            ScheduledExecutorService scheduledExecutorService,
+            HealthCheckLimiter healthCheckLimiter
+    ) {
+        this(httpClient, inetAddress, serverConfiguration.getPort(), serverConfiguration, scheduledExecutorService, healthCheckLimiter);
+    }
+
+    /**
+     * Create a new instance of the client for an endpoint of a SRV record, the health checks are sent to its port.
+     *
+     * @param httpClient      the underlying HTTP client, sending the requests to the port of the endpoint
+     * @param serviceEndpoint the target address and port with the priority and the weight of its record
+     */
+    SingleIpHttpClient(
+            HttpClient httpClient,
+            ServiceEndpoint serviceEndpoint,
+            ServerConfiguration serverConfiguration,
+            ScheduledExecutorService scheduledExecutorService,
+            HealthCheckLimiter healthCheckLimiter
+    ) {
+        this(httpClient, serviceEndpoint.getSocketAddress().getAddress(), uriPort(serviceEndpoint.getSocketAddress().getPort(), serverConfiguration), serverConfiguration, scheduledExecutorService, healthCheckLimiter);
+        updateServiceRecord(serviceEndpoint.getPriority(), serviceEndpoint.getWeight());
+    }
+
+    private SingleIpHttpClient(
+            HttpClient httpClient,
+            InetAddress inetAddress,
+            int port,
+            ServerConfiguration serverConfiguration,
+            ScheduledExecutorService scheduledExecutorService,
+            HealthCheckLimiter healthCheckLimiter
     ) {
         this.httpClient = Objects.requireNonNull(httpClient);
         this.inetAddress = Objects.requireNonNull(inetAddress);
-        this.healthUri = healthUri(Objects.requireNonNull(serverConfiguration));
+        this.healthUri = healthUri(Objects.requireNonNull(serverConfiguration), port);
+        this.socketAddress = new InetSocketAddress(inetAddress, port(healthUri));
         this.serverConfiguration = serverConfiguration;
         this.healthy = new AtomicBoolean();
         this.failedResponseCount = new AtomicInteger(0);
-
-        final long connectionHealthCheckPeriodInSeconds = serverConfiguration.getConnectionHealthCheckPeriodInSeconds();
-        this.scheduledFuture = scheduledExecutorService.scheduleAtFixedRate(
-                this::checkHealthStatus,
-                0L,
-                connectionHealthCheckPeriodInSeconds,
-                TimeUnit.SECONDS
-        );
+        this.healthCheckLimiter = Objects.requireNonNull(healthCheckLimiter);
+        this.scheduledExecutorService = Objects.requireNonNull(scheduledExecutorService);
+        // The health checks are shared with the clients of the other pools probing the same target, unless the requests are customized
+        this.sharedHealthProbe = serverConfiguration.getRequestTransformer() == null ?
+                HealthProbeRegistry.shared().subscribe(healthProbeKey(), this::onHealthCheck) :
+                null;
+
+        // The first health check is sent right away, the client joins the rotation of its pool once it is healthy
+        this.firstHealthCheck = singleFlightHealthCheck(0L);
+        if (serverConfiguration.isAdaptiveHealthCheck()) {
+            final HealthCheckInterval healthCheckInterval = new HealthCheckInterval(serverConfiguration.getConnectionHealthCheckPeriod(), true);
+            this.scheduledFuture = CompletableFuture.completedFuture(null);
+            firstHealthCheck.thenAccept(healthyStatus -> scheduleAdaptiveHealthCheck(scheduledExecutorService, healthCheckInterval, healthCheckInterval.next(healthyStatus)));
+        } else {
+            final long connectionHealthCheckPeriodInMilliseconds = serverConfiguration.getConnectionHealthCheckPeriod().toMillis();
+            // The timing wheel spreads the health checks of the addresses created together over their period
+            this.scheduledFuture = scheduledExecutorService instanceof TimingWheelScheduler ?
+                    ((TimingWheelScheduler) scheduledExecutorService).scheduleAtFixedRateWithJitter(
+                            this::scheduledHealthCheck,
+                            connectionHealthCheckPeriodInMilliseconds,
+                            connectionHealthCheckPeriodInMilliseconds,
+                            TimeUnit.MILLISECONDS
+                    ) :
+                    scheduledExecutorService.scheduleAtFixedRate(
+                            this::scheduledHealthCheck,
+                            connectionHealthCheckPeriodInMilliseconds,
+                            connectionHealthCheckPeriodInMilliseconds,
+                            TimeUnit.MILLISECONDS
+                    );
+        }
     }
 
     /**
@@ -79,62 +186,311 @@ public class SingleIpHttpClient implements AutoCloseable {
     ) {
         this.httpClient = Objects.requireNonNull(httpClient);
         this.inetAddress = Objects.requireNonNull(inetAddress);
-        this.healthUri = healthUri(Objects.requireNonNull(serverConfiguration));
+        this.healthUri = healthUri(Objects.requireNonNull(serverConfiguration), serverConfiguration.getPort());
+        this.socketAddress = new InetSocketAddress(inetAddress, port(healthUri));
         this.serverConfiguration = serverConfiguration;
         this.healthy = new AtomicBoolean();
         this.failedResponseCount = new AtomicInteger(0);
+        this.healthCheckLimiter = HealthCheckLimiter.UNLIMITED;
+        // There is no periodic health check, the shared scheduler only takes this client back in rotation
+        this.scheduledExecutorService = TimingWheelScheduler.shared();
+        this.sharedHealthProbe = null;
 
         this.scheduledFuture = CompletableFuture.completedFuture(null);
         checkHealthStatus();
+        this.firstHealthCheck = CompletableFuture.completedFuture(healthy.get());
     }
 
-    private URI healthUri(ServerConfiguration serverConfiguration) {
+    private URI healthUri(ServerConfiguration serverConfiguration, int port) {
         try {
-            return new URL(serverConfiguration.getProtocol(), serverConfiguration.getHostname(), serverConfiguration.getPort(), serverConfiguration.getHealthPath()).toURI();
+            return new URL(serverConfiguration.getProtocol(), serverConfiguration.getHostname(), port, serverConfiguration.getHealthPath()).toURI();
         } catch (URISyntaxException | MalformedURLException e) {
             throw new IllegalArgumentException("Cannot build health URI from " + serverConfiguration, e);
         }
     }
 
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return defaultPort(uri.getScheme());
+    }
+
+    private static int defaultPort(String protocol) {
+        return "https".equals(protocol) ? 443 : 80;
+    }
+
+    /**
+     * The port of the configuration is kept in the health URI when it is the one of the endpoint, the health checks are then shared with the clients resolved from address records.
+     */
+    private static int uriPort(int endpointPort, ServerConfiguration serverConfiguration) {
+        return endpointPort == serverPort(serverConfiguration) ? serverConfiguration.getPort() : endpointPort;
+    }
+
     /**
-     * If called and the previous health status was unhealthy, then a new health check is performed.
+     * @return the port of the server, the default port of the protocol when none is configured.
+     */
+    static int serverPort(ServerConfiguration serverConfiguration) {
+        return serverConfiguration.getPort() != ServerConfiguration.DEFAULT_PORT ? serverConfiguration.getPort() : defaultPort(serverConfiguration.getProtocol());
+    }
+
+    /**
+     * The health status of the last health check, it never sends a request.
+     * An unhealthy client is probed again in the background, at most once at a time, with an exponential backoff.
      */
     public boolean isHealthy() {
-        if (!healthy.get()) {
-            checkHealthStatus();
-        }
         return healthy.get();
     }
 
+    /**
+     * The first health check of this client, completed with its status once checked.
+     */
+    CompletableFuture<Boolean> getFirstHealthCheck() {
+        return firstHealthCheck;
+    }
+
     /**
      * Determine whether this client is able to reach the given IP address through HTTP protocol and get a valid HTTP response, i.e. with status between 200 and 499.
+     * The calling thread waits for the outcome.
      */
     void checkHealthStatus() {
-        final long start = System.nanoTime();
+        checkHealthStatusAsync().join();
+    }
+
+    /**
+     * The live traffic proves the health of a busy address, it is only probed once it has been idle for a health check period.
+     */
+    private void scheduledHealthCheck() {
+        if (isIdle()) {
+            singleFlightHealthCheck(sharedResultMaxAge(serverConfiguration.getConnectionHealthCheckPeriod()));
+        }
+    }
+
+    /**
+     * A shared health check result is reused when it was published during the last three quarters of the delay between the health checks of this client,
+     * so that the subscribers of a probe send about one health check per period altogether.
+     */
+    private static long sharedResultMaxAge(Duration healthCheckDelay) {
+        return healthCheckDelay.toNanos() / 4 * 3;
+    }
+
+    /**
+     * The clients share a health check when they send the same request, with the same read timeout and HTTP version, and evaluate its response the same way.
+     * The TLS configuration is not part of the key since the clients built for the same hostname trust the same certificates,
+     * a client with a custom trust or custom requests should use a request transformer to check its health on its own.
+     */
+    Object healthProbeKey() {
+        if (serverConfiguration.getHealthCheckMode() == HealthCheckMode.TCP_CONNECT) {
+            return List.of(HealthCheckMode.TCP_CONNECT, socketAddress);
+        }
+        // The same evaluator instance gives the same verdict, e.g. a constant shared by the pools, the version and the evaluator may be null
+        return Arrays.asList(
+                HealthCheckMode.HTTP,
+                socketAddress,
+                healthUri,
+                serverConfiguration.getHealthReadTimeoutInMilliseconds(),
+                httpClient.version(),
+                serverConfiguration.getHealthEvaluator()
+        );
+    }
+
+    /**
+     * Each adaptive health check schedules the next one with a delay depending on its outcome, a busy address counts as healthy.
+     */
+    private void scheduleAdaptiveHealthCheck(ScheduledExecutorService scheduledExecutorService, HealthCheckInterval healthCheckInterval, Duration delay) {
+        if (closed) {
+            return;
+        }
         try {
-            final HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder().uri(healthUri);
-            if (serverConfiguration.getHealthReadTimeoutInMilliseconds() >= 0) {
-                httpRequestBuilder.timeout(Duration.ofMillis(serverConfiguration.getHealthReadTimeoutInMilliseconds()));
-            }
+            scheduledFuture = scheduledExecutorService.schedule(
+                    () -> (isIdle() ? singleFlightHealthCheck(sharedResultMaxAge(delay)) : CompletableFuture.completedFuture(Boolean.TRUE))
+                            .thenAccept(healthyStatus -> scheduleAdaptiveHealthCheck(scheduledExecutorService, healthCheckInterval, healthCheckInterval.next(healthyStatus))),
+                    delay.toNanos(),
+                    TimeUnit.NANOSECONDS
+            );
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.DEBUG, () -> "The health checks of " + inetAddress + " are stopped since the scheduler is shut down.");
+        }
+        if (closed) {
+            scheduledFuture.cancel(true);
+        }
+    }
 
-            final Consumer<HttpRequest.Builder> requestTransformer = serverConfiguration.getRequestTransformer();
-            if (requestTransformer != null) {
-                requestTransformer.accept(httpRequestBuilder);
-            }
+    /**
+     * Whether no request sent to this client succeeded during the last health check period.
+     */
+    boolean isIdle() {
+        return !trafficSucceeded || System.nanoTime() - lastTrafficSuccess >= serverConfiguration.getConnectionHealthCheckPeriod().toNanos();
+    }
 
-            final int statusCode = httpClient.sendAsync(httpRequestBuilder.build(), HttpResponse.BodyHandlers.discarding())
-                    .thenApply(HttpResponse::statusCode)
-                    .join();
+    /**
+     * Called for each response of the live traffic, a success postpones the next health check
+     * and consecutive failures make this client unhealthy as a failed health check would.
+     */
+    void trafficResponded(int statusCode) {
+        if (isSuccessCode(statusCode)) {
+            consecutiveTrafficFailures.set(0);
+            lastTrafficSuccess = System.nanoTime();
+            trafficSucceeded = true;
+        } else {
+            trafficFailed();
+        }
+    }
 
-            LOGGER.log(Level.DEBUG, () -> "Checked health for URI " + healthUri + ", status is `" + statusCode + "`" + timingLogStatement(start));
+    /**
+     * Called when a request of the live traffic failed without response.
+     */
+    void trafficFailed() {
+        if (consecutiveTrafficFailures.incrementAndGet() >= PASSIVE_FAILURE_THRESHOLD && healthy.get()) {
+            consecutiveTrafficFailures.set(0);
+            LOGGER.log(Level.WARNING, () -> "The last " + PASSIVE_FAILURE_THRESHOLD + " requests sent to " + healthUri + " with address " + inetAddress + " failed, it is unhealthy until it is probed successfully.");
+            trafficSucceeded = false;
+            setHealthy(false);
+            scheduleRecoveryProbe();
+        }
+    }
 
-            healthy.set(isSuccessCode(statusCode));
-            refreshFailureCountWithStatusCode(statusCode);
-        } catch (RuntimeException e) {
-            LOGGER.log(Level.WARNING, () -> "Failed to check health for address " + healthUri + ", error is `" + e + "`" + timingLogStatement(start), e);
-            healthy.set(false);
-            incrementFailureCount();
+    /**
+     * The health check is skipped while the previous one is still in flight, a hung address never piles up health checks.
+     *
+     * @return the health status once checked, or the current one if a health check is already in flight.
+     */
+    private CompletableFuture<Boolean> singleFlightHealthCheck(long maxSharedResultAgeInNanoseconds) {
+        if (!healthCheckInFlight.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(healthy.get());
+        }
+        return checkHealthStatusAsync(maxSharedResultAgeInNanoseconds).whenComplete((healthyStatus, throwable) -> healthCheckInFlight.set(false));
+    }
+
+    /**
+     * Probe this unhealthy client again after the backoff, unless a probe is already scheduled.
+     */
+    private void scheduleRecoveryProbe() {
+        if (closed || !recoveryProbeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        final long backoffInNanoseconds = recoveryBackoffInNanoseconds;
+        final long maxBackoffInNanoseconds = Math.max(INITIAL_RECOVERY_BACKOFF.toNanos(), serverConfiguration.getConnectionHealthCheckPeriod().toNanos());
+        recoveryBackoffInNanoseconds = Math.min(2 * backoffInNanoseconds, maxBackoffInNanoseconds);
+        try {
+            recoveryProbe = scheduledExecutorService.schedule(() -> {
+                recoveryProbeScheduled.set(false);
+                if (!closed && !healthy.get()) {
+                    singleFlightHealthCheck(0L);
+                }
+            }, backoffInNanoseconds, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            recoveryProbeScheduled.set(false);
+            LOGGER.log(Level.DEBUG, () -> "The recovery probe of " + inetAddress + " is not scheduled since the scheduler is shut down.");
+        }
+    }
+
+    /**
+     * Determine whether this client is able to reach the given IP address through HTTP protocol and get a valid HTTP response, i.e. with status between 200 and 499.
+     * With {@link HealthCheckMode#TCP_CONNECT}, only a TCP connection to the IP address is established.
+     * No thread is blocked while the health check is in flight.
+     *
+     * @return the health status once checked, the future never fails.
+     */
+    CompletableFuture<Boolean> checkHealthStatusAsync() {
+        return checkHealthStatusAsync(0L);
+    }
+
+    private CompletableFuture<Boolean> checkHealthStatusAsync(long maxSharedResultAgeInNanoseconds) {
+        if (sharedHealthProbe != null) {
+            // The result is applied to this client by the registry, as to every subscriber
+            return sharedHealthProbe.probe(this::sendHealthCheck, maxSharedResultAgeInNanoseconds).thenApply(published -> healthy.get());
+        }
+        final long start = System.nanoTime();
+        return sendHealthCheck().handle((statusCode, throwable) -> onHealthCheck(statusCode, throwable, start));
+    }
+
+    private CompletableFuture<HealthProbeResult> sendHealthCheck() {
+        if (serverConfiguration.getHealthCheckMode() == HealthCheckMode.TCP_CONNECT) {
+            return healthCheckLimiter.submit(() -> TcpConnectProber.shared().connect(socketAddress, healthCheckTimeout(), scheduledExecutorService))
+                    .thenApply(connected -> HealthProbeResult.CONNECTED);
+        }
+        final HealthEvaluator healthEvaluator = serverConfiguration.getHealthEvaluator();
+        if (healthEvaluator == null) {
+            return healthCheckLimiter.submit(() -> httpClient.sendAsync(healthRequest(), HttpResponse.BodyHandlers.discarding()))
+                    .thenApply(response -> new HealthProbeResult(response.statusCode(), isSuccessCode(response.statusCode())));
         }
+        return healthCheckLimiter.submit(() -> httpClient.sendAsync(healthRequest(), HealthBodySubscriber.bodyHandler(healthEvaluator)))
+                .thenApply(response -> new HealthProbeResult(response.statusCode(), Boolean.TRUE.equals(response.body())));
+    }
+
+    private boolean onHealthCheck(HealthProbeResult result, Throwable throwable, long start) {
+        if (throwable != null) {
+            return healthCheckFailed(throwable, start);
+        }
+        if (result == HealthProbeResult.CONNECTED) {
+            LOGGER.log(Level.DEBUG, () -> "Checked health for address " + socketAddress + ", connection is established" + timingLogStatement(start));
+            connectionVerified = true;
+            return healthCheckCompleted(true);
+        }
+        LOGGER.log(Level.DEBUG, () -> "Checked health for URI " + healthUri + ", status is `" + result.statusCode + "`, healthy is `" + result.healthy + "`" + timingLogStatement(start));
+        refreshFailureCountWithStatusCode(result.statusCode);
+        return healthCheckCompleted(result.healthy);
+    }
+
+    private boolean healthCheckFailed(Throwable throwable, long start) {
+        LOGGER.log(Level.WARNING, () -> "Failed to check health for address " + healthUri + ", error is `" + throwable + "`" + timingLogStatement(start), throwable);
+        setHealthy(false);
+        incrementFailureCount();
+        scheduleRecoveryProbe();
+        return false;
+    }
+
+    private boolean healthCheckCompleted(boolean healthyStatus) {
+        setHealthy(healthyStatus);
+        if (healthyStatus) {
+            recoveryBackoffInNanoseconds = INITIAL_RECOVERY_BACKOFF.toNanos();
+        } else {
+            scheduleRecoveryProbe();
+        }
+        return healthyStatus;
+    }
+
+    private Duration healthCheckTimeout() {
+        final long healthReadTimeoutInMilliseconds = serverConfiguration.getHealthReadTimeoutInMilliseconds();
+        return Duration.ofMillis(healthReadTimeoutInMilliseconds >= 0 ? healthReadTimeoutInMilliseconds : ServerConfiguration.DEFAULT_HEALTH_READ_TIMEOUT_IN_MILLISECONDS);
+    }
+
+    private HttpRequest healthRequest() {
+        final HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder().uri(healthUri);
+        if (serverConfiguration.getHealthReadTimeoutInMilliseconds() >= 0) {
+            httpRequestBuilder.timeout(Duration.ofMillis(serverConfiguration.getHealthReadTimeoutInMilliseconds()));
+        }
+
+        final Consumer<HttpRequest.Builder> requestTransformer = serverConfiguration.getRequestTransformer();
+        if (requestTransformer != null) {
+            requestTransformer.accept(httpRequestBuilder);
+        }
+        return httpRequestBuilder.build();
+    }
+
+    private void setHealthy(boolean newHealthy) {
+        if (healthy.getAndSet(newHealthy) != newHealthy) {
+            if (newHealthy) {
+                healthySince = System.nanoTime();
+            }
+            healthChangeListener.run();
+        }
+    }
+
+    /**
+     * The time elapsed since this client became healthy, either for the first time or after being unhealthy, 0 if it is unhealthy.
+     */
+    public long getHealthyDurationInNanoseconds() {
+        final long since = healthySince;
+        return healthy.get() ? System.nanoTime() - since : 0L;
+    }
+
+    /**
+     * Register the listener notified each time the health status changes, it replaces the previous one.
+     */
+    void onHealthChange(Runnable healthChangeListener) {
+        this.healthChangeListener = Objects.requireNonNull(healthChangeListener);
     }
 
     /**
@@ -147,15 +503,138 @@ public class SingleIpHttpClient implements AutoCloseable {
     }
 
     void refreshFailureCountWithStatusCode(final int statusCode) {
+        // A response, whatever its status, proves the address accepts connections
+        connectionVerified = true;
         if (!isSuccessCode(statusCode)) {
             incrementFailureCount();
         }
     }
 
+    /**
+     * Take this client out of rotation when the response sheds load, with a 503 or 429 status,
+     * for the delay of its Retry-After header or for {@link ServerConfiguration#getLoadSheddingBackoffInMilliseconds()} without the header.
+     */
+    void refreshLoadShedding(HttpResponse<?> httpResponse) {
+        final long loadSheddingBackoffInMilliseconds = serverConfiguration.getLoadSheddingBackoffInMilliseconds();
+        if (loadSheddingBackoffInMilliseconds < 0 || !isLoadShedding(httpResponse.statusCode())) {
+            return;
+        }
+        final Duration ejection = RetryAfter.parse(httpResponse.headers(), Instant.now())
+                .orElse(Duration.ofMillis(loadSheddingBackoffInMilliseconds));
+        LOGGER.log(Level.DEBUG, () -> "Address " + inetAddress + " answered " + httpResponse.statusCode() + ", it is taken out of rotation for " + ejection);
+        eject(ejection.compareTo(MAX_LOAD_SHEDDING_EJECTION) > 0 ? MAX_LOAD_SHEDDING_EJECTION : ejection);
+    }
+
+    /**
+     * Take this client out of rotation for the given duration, or longer if it was already ejected for longer.
+     */
+    synchronized void eject(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            return;
+        }
+        final long until = System.nanoTime() + duration.toNanos();
+        if (ejected && ejectedUntil - until >= 0) {
+            return;
+        }
+        final ScheduledFuture<?> extendedEndOfEjection;
+        try {
+            extendedEndOfEjection = scheduledExecutorService.schedule(this::endEjection, duration.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Without a timer to take it back, the client would stay out of rotation
+            LOGGER.log(Level.DEBUG, () -> "Address " + inetAddress + " is not taken out of rotation since the scheduler is shut down.");
+            return;
+        }
+        // A single timer ends the ejection, the one of a shorter ejection is replaced when it is extended
+        if (endOfEjection != null) {
+            endOfEjection.cancel(false);
+        }
+        endOfEjection = extendedEndOfEjection;
+        ejectedUntil = until;
+        if (!ejected) {
+            ejected = true;
+            healthChangeListener.run();
+        }
+    }
+
+    private synchronized void endEjection() {
+        if (ejected && System.nanoTime() - ejectedUntil >= 0) {
+            ejected = false;
+            endOfEjection = null;
+            healthChangeListener.run();
+        }
+    }
+
+    /**
+     * Whether this client is out of rotation because it is shedding load, it is still healthy.
+     */
+    boolean isEjected() {
+        return ejected;
+    }
+
+    private static boolean isLoadShedding(int statusCode) {
+        return statusCode == 503 || statusCode == 429;
+    }
+
     void incrementFailureCount() {
         failedResponseCount.incrementAndGet();
     }
 
+    /**
+     * Called when a connection to this client failed, the address is then raced with the others for the next requests until a response is received.
+     */
+    void connectionFailed() {
+        connectionVerified = false;
+    }
+
+    /**
+     * Whether a response was received since this client was created or since its last connection failure.
+     */
+    boolean isConnectionVerified() {
+        return connectionVerified;
+    }
+
+    /**
+     * Called when a request is dispatched to this client.
+     *
+     * @return the start time of the request to give back to {@link #requestCompleted(long)} once a response is received
+     */
+    long requestStarted() {
+        inFlightRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Called when a response to a request dispatched to this client has been received, whatever its status.
+     *
+     * @param start the value returned by {@link #requestStarted()}
+     */
+    void requestCompleted(long start) {
+        responseTime.observe(System.nanoTime() - start);
+        inFlightRequests.decrementAndGet();
+    }
+
+    /**
+     * Called when a request dispatched to this client failed without response or was cancelled.
+     * Its duration is not a response time, a fast failure would otherwise attract more traffic to this client.
+     */
+    void requestFailed() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    /**
+     * The number of requests dispatched to this client and not yet completed.
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * The peak exponentially weighted moving average of the response time of this client, 0 if no request has completed yet.
+     */
+    public double getResponseTimeEwmaInNanoseconds() {
+        return responseTime.get();
+    }
+
     private String timingLogStatement(long start) {
         return " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.";
     }
@@ -164,10 +643,42 @@ public class SingleIpHttpClient implements AutoCloseable {
         return 200 <= httpStatusCode && httpStatusCode <= 499;
     }
 
-    InetAddress getInetAddress() {
+    public InetAddress getInetAddress() {
         return inetAddress;
     }
 
+    /**
+     * The IP address and the TCP port of the server.
+     */
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    /**
+     * The priority of the SRV record this client was resolved from, the lowest value is the most preferred, 0 for a client resolved from an address record.
+     * The clients of a pool with a higher value only take the traffic when no client with a lower value is healthy.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * The weight of the SRV record this client was resolved from, 1 for a client resolved from an address record.
+     *
+     * @see WeightProvider#serviceRecordWeights()
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Called when the SRV record of this client is resolved again with another priority or weight, it is taken into account by the next pool built with this client.
+     */
+    void updateServiceRecord(int priority, int weight) {
+        this.priority = priority;
+        this.weight = weight;
+    }
+
     AtomicBoolean getHealthy() {
         return healthy;
     }
@@ -193,15 +704,43 @@ public class SingleIpHttpClient implements AutoCloseable {
         return "SingleIpHttpClient{" +
                "inetAddress=" + inetAddress +
                ", healthy=" + healthy +
+               ", ejected=" + ejected +
+               ", priority=" + priority +
+               ", weight=" + weight +
                ", hostname=" + serverConfiguration.getHostname() +
                ", healthUri=" + healthUri +
                ", failedResponseCount=" + failedResponseCount.get() +
+               ", inFlightRequests=" + inFlightRequests.get() +
+               ", responseTime=" + responseTime +
                '}';
     }
 
     @Override
     public void close() {
+        closed = true;
         scheduledFuture.cancel(true);
+        Optional.ofNullable(recoveryProbe).ifPresent(probe -> probe.cancel(false));
+        synchronized (this) {
+            Optional.ofNullable(endOfEjection).ifPresent(timer -> timer.cancel(false));
+        }
+        if (sharedHealthProbe != null) {
+            sharedHealthProbe.close();
+        }
     }
 
+    /**
+     * The outcome of a health check, shared with the clients probing the same target.
+     */
+    static final class HealthProbeResult {
+        // A TCP connect health check has no HTTP status
+        static final HealthProbeResult CONNECTED = new HealthProbeResult(-1, true);
+
+        private final int statusCode;
+        private final boolean healthy;
+
+        HealthProbeResult(int statusCode, boolean healthy) {
+            this.statusCode = statusCode;
+            this.healthy = healthy;
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+/**
+ * The shape of the increase of the weight of a client during its slow-start window.
+ *
+ * @see WeightProvider#withSlowStart(WeightProvider, java.time.Duration, SlowStartRamp)
+ */
+@SuppressWarnings("WeakerAccess")
+// Used outside library
+public enum SlowStartRamp {
+    /**
+     * The weight increases by the same amount over time.
+     */
+    LINEAR {
+        @Override
+        double factor(double progress) {
+            return MIN_FACTOR + (1D - MIN_FACTOR) * progress;
+        }
+    },
+    /**
+     * The weight is multiplied by the same amount over time, staying low longer than with {@link #LINEAR}.
+     */
+    EXPONENTIAL {
+        @Override
+        double factor(double progress) {
+            return Math.pow(MIN_FACTOR, 1D - progress);
+        }
+    };
+
+    /**
+     * The fraction of the weight given to a client which has just become healthy.
+     */
+    public static final double MIN_FACTOR = 0.1D;
+
+    /**
+     * @param progress the elapsed fraction of the slow-start window, between 0 and 1
+     * @return the fraction of the weight to apply, between {@link #MIN_FACTOR} and 1
+     */
+    abstract double factor(double progress);
+}
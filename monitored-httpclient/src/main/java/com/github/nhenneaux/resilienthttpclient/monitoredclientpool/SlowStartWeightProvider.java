@@ -0,0 +1,50 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.time.Duration;
+
+/**
+ * Ramp up the weight of a client during a window after it became healthy, either because it is new after a DNS refresh or because it recovered.
+ * The weights are scaled by {@link #WEIGHT_RESOLUTION} to keep the precision of the ramp with integer weights.
+ */
+class SlowStartWeightProvider implements WeightProvider {
+
+    static final int WEIGHT_RESOLUTION = 100;
+
+    private final WeightProvider delegate;
+    private final long slowStartWindowInNanoseconds;
+    private final SlowStartRamp slowStartRamp;
+
+    SlowStartWeightProvider(WeightProvider delegate, Duration slowStartWindow, SlowStartRamp slowStartRamp) {
+        if (slowStartWindow.isNegative() || slowStartWindow.isZero()) {
+            throw new IllegalArgumentException("The slow-start window should be positive but was " + slowStartWindow);
+        }
+        this.delegate = delegate;
+        this.slowStartWindowInNanoseconds = slowStartWindow.toNanos();
+        this.slowStartRamp = slowStartRamp;
+    }
+
+    @Override
+    public int weight(SingleIpHttpClient singleIpHttpClient) {
+        final int delegateWeight = delegate.weight(singleIpHttpClient);
+        if (delegateWeight <= 0) {
+            return delegateWeight;
+        }
+        // The scaled weight is clamped rather than overflowing for the largest weights
+        final int weight = (int) Math.min(Integer.MAX_VALUE, (long) delegateWeight * WEIGHT_RESOLUTION);
+        final long healthyDuration = singleIpHttpClient.getHealthyDurationInNanoseconds();
+        if (healthyDuration >= slowStartWindowInNanoseconds) {
+            return weight;
+        }
+        final double progress = (double) healthyDuration / slowStartWindowInNanoseconds;
+        return (int) Math.max(1L, Math.round(weight * slowStartRamp.factor(progress)));
+    }
+
+    @Override
+    public String toString() {
+        return "SlowStartWeightProvider{" +
+                "delegate=" + delegate +
+                ", slowStartWindow=" + Duration.ofNanos(slowStartWindowInNanoseconds) +
+                ", slowStartRamp=" + slowStartRamp +
+                '}';
+    }
+}
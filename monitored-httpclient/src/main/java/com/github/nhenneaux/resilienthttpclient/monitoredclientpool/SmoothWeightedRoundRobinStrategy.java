@@ -0,0 +1,151 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Smooth weighted round-robin as implemented in nginx: each client is selected in proportion of its weight and the selections of a client are spread over the cycle.
+ * <p>
+ * The cycle is precomputed when the healthy clients change or when it is older than {@link #SCHEDULE_REFRESH_PERIOD_IN_NANOSECONDS},
+ * so that dynamic weights are taken into account while the selection itself is a lock-free lookup in the cycle.
+ * A single caller rebuilds the cycle, the concurrent ones keep selecting with the previous cycle meanwhile.
+ */
+class SmoothWeightedRoundRobinStrategy implements LoadBalancingStrategy {
+
+    static final long SCHEDULE_REFRESH_PERIOD_IN_NANOSECONDS = TimeUnit.SECONDS.toNanos(1);
+    // Bound the cycle length, weights are scaled down proportionally above it
+    static final int MAX_SCHEDULE_LENGTH = 1024;
+
+    private final WeightProvider weightProvider;
+    private final StripedCounter position = new StripedCounter();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Schedule schedule;
+
+    SmoothWeightedRoundRobinStrategy(WeightProvider weightProvider) {
+        this.weightProvider = weightProvider;
+    }
+
+    @Override
+    public int select(List<SingleIpHttpClient> healthyClients) {
+        Schedule current = schedule;
+        if (isStale(current, healthyClients, System.nanoTime())) {
+            if (rebuilding.compareAndSet(false, true)) {
+                try {
+                    current = rebuild(healthyClients);
+                } finally {
+                    rebuilding.set(false);
+                }
+            } else if (current == null || current.healthyClients != healthyClients) {
+                // The previous cycle does not index these clients, they are selected in turn until the cycle being rebuilt is published
+                return position.getAndIncrement() % healthyClients.size();
+            }
+        }
+        return current.cycle[position.getAndIncrement() % current.cycle.length];
+    }
+
+    private Schedule rebuild(List<SingleIpHttpClient> healthyClients) {
+        final long now = System.nanoTime();
+        Schedule current = schedule;
+        // Another caller may have published the cycle between the staleness check and the acquisition of the rebuild
+        if (isStale(current, healthyClients, now)) {
+            current = new Schedule(healthyClients, cycle(weights(healthyClients)), now);
+            schedule = current;
+        }
+        return current;
+    }
+
+    private static boolean isStale(Schedule schedule, List<SingleIpHttpClient> healthyClients, long now) {
+        return schedule == null || schedule.healthyClients != healthyClients || now - schedule.computedAt > SCHEDULE_REFRESH_PERIOD_IN_NANOSECONDS;
+    }
+
+    private int[] weights(List<SingleIpHttpClient> healthyClients) {
+        final int size = healthyClients.size();
+        final int[] weights = new int[size];
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.max(0, weightProvider.weight(healthyClients.get(i)));
+            total += weights[i];
+        }
+        if (total == 0) {
+            // No client with a positive weight, fallback to an equal share
+            Arrays.fill(weights, 1);
+            return weights;
+        }
+        if (total > MAX_SCHEDULE_LENGTH) {
+            for (int i = 0; i < size; i++) {
+                if (weights[i] > 0) {
+                    weights[i] = (int) Math.max(1L, (long) weights[i] * MAX_SCHEDULE_LENGTH / total);
+                }
+            }
+        }
+        final int gcd = gcd(weights);
+        for (int i = 0; i < size; i++) {
+            weights[i] /= gcd;
+        }
+        return weights;
+    }
+
+    private static int gcd(int[] weights) {
+        int gcd = 0;
+        for (int weight : weights) {
+            int a = gcd;
+            int b = weight;
+            while (b != 0) {
+                final int t = a % b;
+                a = b;
+                b = t;
+            }
+            gcd = a;
+        }
+        return Math.max(1, gcd);
+    }
+
+    /**
+     * Build the cycle of the nginx algorithm: at each step every client gains its weight, the client with the highest current weight is selected and loses the total weight.
+     */
+    static int[] cycle(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        final int[] current = new int[weights.length];
+        final int[] cycle = new int[total];
+        for (int step = 0; step < total; step++) {
+            int selected = 0;
+            for (int i = 0; i < weights.length; i++) {
+                current[i] += weights[i];
+                if (current[i] > current[selected]) {
+                    selected = i;
+                }
+            }
+            current[selected] -= total;
+            cycle[step] = selected;
+        }
+        return cycle;
+    }
+
+    WeightProvider getWeightProvider() {
+        return weightProvider;
+    }
+
+    @Override
+    public String toString() {
+        return "SmoothWeightedRoundRobinStrategy{" +
+                "weightProvider=" + weightProvider +
+                '}';
+    }
+
+    private static class Schedule {
+        private final List<SingleIpHttpClient> healthyClients;
+        private final int[] cycle;
+        private final long computedAt;
+
+        Schedule(List<SingleIpHttpClient> healthyClients, int[] cycle, long computedAt) {
+            this.healthyClients = healthyClients;
+            this.cycle = cycle;
+            this.computedAt = computedAt;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A counter striped by thread to avoid a single contended value on the request path.
+ * Each stripe is incremented independently, so the sequence is only monotonic for a given thread.
+ */
+class StripedCounter {
+
+    // Each stripe is padded to its own cache line (16 ints) to avoid false sharing between threads
+    private static final int STRIPE_PADDING = 16;
+    private static final int STRIPES = stripeCount();
+
+    private final AtomicIntegerArray positions = new AtomicIntegerArray(STRIPES * STRIPE_PADDING);
+
+    StripedCounter() {
+        // Each stripe starts at a different position so that threads do not all start with the same element
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            positions.set(stripe * STRIPE_PADDING, stripe);
+        }
+    }
+
+    private static int stripeCount() {
+        // Next power of two of the number of processors so that the stripe can be selected with a mask
+        return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    }
+
+    /**
+     * @return the current value of the stripe of the calling thread, always positive, before incrementing it
+     */
+    int getAndIncrement() {
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        return positions.getAndIncrement(stripe * STRIPE_PADDING) & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Check that addresses accept TCP connections without TLS handshake nor HTTP request.
+ * <p>
+ * The connects are non-blocking and multiplexed on a single selector thread shared by all the pools of the process,
+ * thousands of addresses are probed with one thread. A connection is closed as soon as it is established.
+ * The probes are completed on the executor of the caller so that their dependent actions never run on the selector thread.
+ */
+class TcpConnectProber {
+
+    private static final System.Logger LOGGER = System.getLogger(TcpConnectProber.class.getName());
+
+    private final Selector selector;
+    private final Queue<Probe> registrations = new ConcurrentLinkedQueue<>();
+    // Only accessed by the selector thread
+    private final PriorityQueue<Probe> byDeadline = new PriorityQueue<>(Comparator.comparingLong(probe -> probe.deadline));
+
+    TcpConnectProber() {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the selector of the TCP health checks", e);
+        }
+        final Thread thread = new Thread(this::select, "resilient-httpclient-tcp-prober");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static TcpConnectProber shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    CompletableFuture<Void> connect(InetSocketAddress socketAddress, Duration timeout) {
+        return connect(socketAddress, timeout, TimingWheelScheduler.shared());
+    }
+
+    /**
+     * @param socketAddress the address and port to connect to
+     * @param timeout       the time to establish the connection
+     * @param executor      the executor completing the probe, e.g. the scheduler of the pool
+     * @return completed once connected, failed when the connection is refused or not established within the timeout.
+     */
+    CompletableFuture<Void> connect(InetSocketAddress socketAddress, Duration timeout, Executor executor) {
+        final SocketChannel channel;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(socketAddress)) {
+                channel.close();
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final Probe probe = new Probe(socketAddress, channel, System.nanoTime() + timeout.toNanos(), executor);
+        registrations.offer(probe);
+        selector.wakeup();
+        return probe.connected;
+    }
+
+    private void select() {
+        while (true) {
+            try {
+                final Probe nextToExpire = byDeadline.peek();
+                if (nextToExpire == null) {
+                    selector.select();
+                } else {
+                    selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(nextToExpire.deadline - System.nanoTime())));
+                }
+                register();
+                finishConnects();
+                expire();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.ERROR, () -> "Unexpected error of the TCP health checks selector", e);
+            }
+        }
+    }
+
+    private void register() {
+        Probe probe;
+        while ((probe = registrations.poll()) != null) {
+            try {
+                probe.key = probe.channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                byDeadline.offer(probe);
+            } catch (ClosedChannelException e) {
+                probe.fail(e);
+            }
+        }
+    }
+
+    private void finishConnects() {
+        final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+            final SelectionKey key = selectedKeys.next();
+            selectedKeys.remove();
+            final Probe probe = (Probe) key.attachment();
+            try {
+                if (probe.channel.finishConnect()) {
+                    probe.succeed();
+                }
+            } catch (IOException e) {
+                probe.fail(e);
+            }
+        }
+    }
+
+    private void expire() {
+        final long now = System.nanoTime();
+        while (!byDeadline.isEmpty() && (byDeadline.peek().finished || byDeadline.peek().deadline - now <= 0L)) {
+            final Probe probe = byDeadline.poll();
+            if (!probe.finished) {
+                probe.fail(new ConnectException("Connect timed out to " + probe.socketAddress));
+            }
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final TcpConnectProber INSTANCE = new TcpConnectProber();
+    }
+
+    private static final class Probe {
+        private final InetSocketAddress socketAddress;
+        private final SocketChannel channel;
+        private final long deadline;
+        private final Executor executor;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private SelectionKey key;
+        // Only accessed by the selector thread, the future is completed later on the executor
+        private boolean finished;
+
+        private Probe(InetSocketAddress socketAddress, SocketChannel channel, long deadline, Executor executor) {
+            this.socketAddress = socketAddress;
+            this.channel = channel;
+            this.deadline = deadline;
+            this.executor = executor;
+        }
+
+        private void succeed() {
+            close();
+            completeOnExecutor(() -> connected.complete(null));
+        }
+
+        private void fail(IOException e) {
+            close();
+            completeOnExecutor(() -> connected.completeExceptionally(e));
+        }
+
+        private void completeOnExecutor(Runnable completion) {
+            finished = true;
+            try {
+                executor.execute(completion);
+            } catch (RejectedExecutionException e) {
+                // The executor is shut down, the probe is completed on the selector thread rather than never
+                completion.run();
+            }
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.DEBUG, () -> "Cannot close the TCP health check connection to " + socketAddress, e);
+            }
+        }
+    }
+}
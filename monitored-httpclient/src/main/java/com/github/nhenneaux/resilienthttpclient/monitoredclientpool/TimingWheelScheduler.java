@@ -0,0 +1,377 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scheduler of the health checks and DNS refreshes shared by all the pools of the process.
+ * <p>
+ * A single timer thread ticks a hashed timing wheel instead of keeping one heap of tasks and one thread per pool:
+ * scheduling and cancelling a task is O(1) whatever the number of tasks, at the cost of a precision of one tick.
+ * The expired tasks run on a small bounded pool of daemon worker threads, a slow task never delays the timer thread
+ * but the tasks should not block since the tasks exceeding the workers wait in their queue.
+ * <p>
+ * The first run of the periodic tasks scheduled with {@link #scheduleAtFixedRateWithJitter(Runnable, long, long, TimeUnit)} is delayed by a random jitter up to a fraction of their period,
+ * so that the health checks of the addresses created together spread over the period instead of being sent in bursts.
+ * The other tasks, such as the DNS refreshes, run on time.
+ */
+class TimingWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    static final Duration DEFAULT_TICK = Duration.ofMillis(10L);
+    static final int DEFAULT_WHEEL_SIZE = 512;
+    static final double DEFAULT_JITTER_RATIO = 1D;
+    static final int DEFAULT_WORKER_COUNT = 4;
+    // Bound the delays so that the deadlines never overflow, it is still more than 70 years
+    private static final long MAX_DELAY_IN_NANOSECONDS = Long.MAX_VALUE >> 2;
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
+    private final long tickInNanoseconds;
+    private final int mask;
+    private final double jitterRatio;
+    private final boolean shared;
+    private final Queue<WheelTask<?>>[] buckets;
+    private final Queue<WheelTask<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService workers;
+    private final Thread timer;
+    private final long startTime;
+    private volatile boolean shutdown;
+
+    TimingWheelScheduler(Duration tick, int wheelSize, double jitterRatio) {
+        this(tick, wheelSize, jitterRatio, DEFAULT_WORKER_COUNT, false);
+    }
+
+    TimingWheelScheduler(Duration tick, int wheelSize, double jitterRatio, int workerCount) {
+        this(tick, wheelSize, jitterRatio, workerCount, false);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TimingWheelScheduler(Duration tick, int wheelSize, double jitterRatio, int workerCount, boolean shared) {
+        if (tick.toNanos() <= 0) {
+            throw new IllegalArgumentException("The tick should be positive but was " + tick);
+        }
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("The wheel size should be a power of two but was " + wheelSize);
+        }
+        if (jitterRatio < 0D || jitterRatio > 1D) {
+            throw new IllegalArgumentException("The jitter ratio should be between 0 and 1 but was " + jitterRatio);
+        }
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("The number of workers should be positive but was " + workerCount);
+        }
+        this.tickInNanoseconds = tick.toNanos();
+        this.mask = wheelSize - 1;
+        this.jitterRatio = jitterRatio;
+        this.shared = shared;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(workerCount, workerCount, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "resilient-httpclient-scheduler-worker-" + WORKER_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The workers are only started when tasks expire and stop once idle
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.workers = threadPoolExecutor;
+        this.startTime = System.nanoTime();
+        this.timer = new Thread(this::runWheel, "resilient-httpclient-scheduler-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    /**
+     * @return the scheduler shared by the pools of the process, its daemon threads never prevent the JVM from exiting
+     * and shutting it down does nothing, so that a caller shutting down the scheduler it was given does not stop the other pools.
+     */
+    static TimingWheelScheduler shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(new WheelTask<Void>(Objects.requireNonNull(command), deadline(unit.toNanos(delay)), 0L));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return enqueue(new WheelTask<>(Objects.requireNonNull(callable), deadline(unit.toNanos(delay))));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        final long periodInNanoseconds = positive(unit.toNanos(period));
+        return enqueue(new WheelTask<Void>(Objects.requireNonNull(command), deadline(unit.toNanos(initialDelay)), periodInNanoseconds));
+    }
+
+    /**
+     * Same as {@link #scheduleAtFixedRate(Runnable, long, long, TimeUnit)} with the first run delayed by a random jitter up to the jitter ratio of the period.
+     */
+    ScheduledFuture<?> scheduleAtFixedRateWithJitter(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        final long periodInNanoseconds = positive(unit.toNanos(period));
+        return enqueue(new WheelTask<Void>(Objects.requireNonNull(command), deadline(unit.toNanos(initialDelay) + jitter(periodInNanoseconds)), periodInNanoseconds));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        final long delayInNanoseconds = positive(unit.toNanos(delay));
+        return enqueue(new WheelTask<Void>(Objects.requireNonNull(command), deadline(unit.toNanos(initialDelay)), -delayInNanoseconds));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The scheduler is shut down");
+        }
+        workers.execute(command);
+    }
+
+    /**
+     * Stop the timer, the delayed tasks are cancelled while the running ones complete.
+     * It does nothing for the {@link #shared()} scheduler, which is used by all the pools of the process.
+     */
+    @Override
+    public void shutdown() {
+        if (shared) {
+            return;
+        }
+        shutdown = true;
+        LockSupport.unpark(timer);
+    }
+
+    /**
+     * Stop the timer and interrupt the running tasks, the delayed tasks are cancelled and not returned.
+     * It does nothing for the {@link #shared()} scheduler, which is used by all the pools of the process.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        if (shared) {
+            return List.of();
+        }
+        shutdown();
+        return workers.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && !timer.isAlive() && workers.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        TimeUnit.NANOSECONDS.timedJoin(timer, Math.max(0L, deadline - System.nanoTime()));
+        return !timer.isAlive() && workers.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private static long positive(long periodInNanoseconds) {
+        if (periodInNanoseconds <= 0L) {
+            throw new IllegalArgumentException("The period should be positive but was " + periodInNanoseconds + " ns");
+        }
+        return periodInNanoseconds;
+    }
+
+    private long jitter(long periodInNanoseconds) {
+        final long maxJitterInNanoseconds = (long) (periodInNanoseconds * jitterRatio);
+        return maxJitterInNanoseconds > 0L ? ThreadLocalRandom.current().nextLong(maxJitterInNanoseconds) : 0L;
+    }
+
+    private static long deadline(long delayInNanoseconds) {
+        return System.nanoTime() + Math.min(Math.max(0L, delayInNanoseconds), MAX_DELAY_IN_NANOSECONDS);
+    }
+
+    private <V> WheelTask<V> enqueue(WheelTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The scheduler is shut down");
+        }
+        pending.offer(task);
+        if (shutdown) {
+            // The timer may have stopped before the task was added
+            task.cancel(false);
+        }
+        return task;
+    }
+
+    private void runWheel() {
+        long tick = 0L;
+        while (!shutdown) {
+            final long tickDeadline = startTime + (tick + 1L) * tickInNanoseconds;
+            long remaining;
+            while (!shutdown && (remaining = tickDeadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (shutdown) {
+                break;
+            }
+            transferPending(tick);
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        cancelAll();
+        workers.shutdown();
+    }
+
+    /**
+     * Only the timer thread accesses the buckets, the new tasks are handed over through the pending queue.
+     */
+    private void transferPending(long tick) {
+        WheelTask<?> task;
+        while ((task = pending.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            // The bucket of a tick is expired once the tick is over, a task never runs before its deadline
+            final long taskTick = Math.max((task.deadline - startTime) / tickInNanoseconds, tick);
+            task.remainingRounds = (taskTick - tick) / buckets.length;
+            buckets[(int) (taskTick & mask)].offer(task);
+        }
+    }
+
+    private void expire(Queue<WheelTask<?>> bucket) {
+        for (int i = bucket.size(); i > 0; i--) {
+            final WheelTask<?> task = bucket.poll();
+            if (task.isCancelled()) {
+                continue;
+            }
+            if (task.remainingRounds > 0L) {
+                task.remainingRounds--;
+                bucket.offer(task);
+            } else {
+                try {
+                    workers.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    private void cancelAll() {
+        for (Queue<WheelTask<?>> bucket : buckets) {
+            bucket.forEach(task -> task.cancel(false));
+            bucket.clear();
+        }
+        WheelTask<?> task;
+        while ((task = pending.poll()) != null) {
+            task.cancel(false);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimingWheelScheduler{" +
+                "tick=" + Duration.ofNanos(tickInNanoseconds) +
+                ", wheelSize=" + buckets.length +
+                ", jitterRatio=" + jitterRatio +
+                ", shared=" + shared +
+                ", shutdown=" + shutdown +
+                '}';
+    }
+
+    private static final class SharedHolder {
+        private static final TimingWheelScheduler INSTANCE = new TimingWheelScheduler(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, DEFAULT_JITTER_RATIO, DEFAULT_WORKER_COUNT, true);
+    }
+
+    private final class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        // Zero for a one-shot task, positive for a fixed rate, negative for a fixed delay
+        private final long periodInNanoseconds;
+        private final long sequenceNumber;
+        private volatile long deadline;
+        // Only accessed by the timer thread
+        private long remainingRounds;
+
+        private WheelTask(Runnable runnable, long deadline, long periodInNanoseconds) {
+            super(runnable, null);
+            this.deadline = deadline;
+            this.periodInNanoseconds = periodInNanoseconds;
+            this.sequenceNumber = sequence.getAndIncrement();
+        }
+
+        private WheelTask(Callable<V> callable, long deadline) {
+            super(callable);
+            this.deadline = deadline;
+            this.periodInNanoseconds = 0L;
+            this.sequenceNumber = sequence.getAndIncrement();
+        }
+
+        /**
+         * A periodic task is scheduled again after each run, until it is cancelled or it fails.
+         */
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                deadline = periodInNanoseconds > 0L ? deadline + periodInNanoseconds : System.nanoTime() - periodInNanoseconds;
+                try {
+                    enqueue(this);
+                } catch (RejectedExecutionException e) {
+                    cancel(false);
+                }
+            }
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodInNanoseconds != 0L;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof WheelTask) {
+                final WheelTask<?> otherTask = (WheelTask<?>) other;
+                final long difference = deadline - otherTask.deadline;
+                if (difference != 0L) {
+                    return difference < 0L ? -1 : 1;
+                }
+                return Long.compare(sequenceNumber, otherTask.sequenceNumber);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequenceNumber);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget of extra requests, for example hedged requests, earned as a fraction of the requests sent.
+ * Each request deposits a fraction of a token and each extra request withdraws a full token, the balance is capped to absorb only a short burst.
+ */
+class TokenBucket {
+
+    // Tokens are stored in hundredths so that the fraction deposited by each request is an integer percentage
+    private static final long TOKEN = 100L;
+
+    private final long depositPerRequest;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * @param percentOfRequests the share of requests, in percent, which can be followed by an extra request
+     * @param maxTokens         the maximum number of extra requests which can be sent in a burst
+     */
+    TokenBucket(int percentOfRequests, int maxTokens) {
+        this.depositPerRequest = percentOfRequests;
+        this.capacity = maxTokens * TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * Earn the fraction of token of a request.
+     */
+    void deposit() {
+        if (balance.get() < capacity) {
+            balance.updateAndGet(current -> Math.min(capacity, current + depositPerRequest));
+        }
+    }
+
+    /**
+     * @return {@code true} if a token was available and withdrawn for an extra request.
+     */
+    boolean tryWithdraw() {
+        long current = balance.get();
+        while (current >= TOKEN) {
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+            current = balance.get();
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket{" +
+                "tokens=" + (double) balance.get() / TOKEN +
+                ", capacity=" + capacity / TOKEN +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Provide the relative share of traffic of a client for a weighted load balancing strategy.
+ * A weight lower or equal to zero removes the client from the selection, unless no client has a positive weight.
+ *
+ * @see LoadBalancingStrategy#smoothWeightedRoundRobin(WeightProvider)
+ */
+@FunctionalInterface
+@SuppressWarnings("WeakerAccess")
+// Used outside library
+public interface WeightProvider {
+
+    /**
+     * @return the same weight for every client.
+     */
+    static WeightProvider equalWeights() {
+        return singleIpHttpClient -> 1;
+    }
+
+    /**
+     * The weights of the SRV records, the records with a weight of 0 only take traffic when all the records of their priority have a weight of 0.
+     *
+     * @return a provider with the weight of the SRV record each client was resolved from, 1 for the clients resolved from address records.
+     * @see HttpClientPoolBuilder#withDnsServiceRecords(String)
+     */
+    static WeightProvider serviceRecordWeights() {
+        return SingleIpHttpClient::getWeight;
+    }
+
+    /**
+     * @param weightByHostAddress the weight of each IP address, as given by {@link java.net.InetAddress#getHostAddress()}
+     * @param defaultWeight       the weight of the IP addresses missing in the map
+     * @return a provider with a static weight per IP address.
+     */
+    static WeightProvider ofStaticWeights(Map<String, Integer> weightByHostAddress, int defaultWeight) {
+        final Map<String, Integer> weights = Map.copyOf(weightByHostAddress);
+        return singleIpHttpClient -> weights.getOrDefault(singleIpHttpClient.getInetAddress().getHostAddress(), defaultWeight);
+    }
+
+    /**
+     * Ramp up the weight given by the delegate during a window after a client became healthy, for a new IP after a DNS refresh or an IP recovering from an outage.
+     * It avoids sending a full share of traffic to a backend with cold caches and connections.
+     * The ramp is applied by {@link LoadBalancingStrategy#smoothWeightedRoundRobin(WeightProvider)} each time the weights are read again.
+     * The other load balancing strategies do not read the weights, the ramp has no effect on them.
+     *
+     * @param delegate        the weight once the window has elapsed
+     * @param slowStartWindow the duration of the ramp
+     * @param slowStartRamp   the shape of the ramp, from {@link SlowStartRamp#MIN_FACTOR} of the weight to the full weight
+     * @return a provider ramping up the weights of the delegate.
+     * @see HttpClientPoolBuilder#withSlowStart(Duration, SlowStartRamp)
+     */
+    static WeightProvider withSlowStart(WeightProvider delegate, Duration slowStartWindow, SlowStartRamp slowStartRamp) {
+        return new SlowStartWeightProvider(delegate, slowStartWindow, slowStartRamp);
+    }
+
+    /**
+     * @return the weight of the given client.
+     */
+    int weight(SingleIpHttpClient singleIpHttpClient);
+}
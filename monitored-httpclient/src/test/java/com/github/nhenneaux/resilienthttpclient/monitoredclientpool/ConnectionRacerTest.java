@@ -0,0 +1,164 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionRacerTest {
+
+    @Test
+    @Timeout(10)
+    void shouldSelectTheReachableAddress() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            // Given
+            final SingleIpHttpClient refused = singleIpHttpClient(closedPort());
+            final SingleIpHttpClient reachable = singleIpHttpClient(serverSocket.getLocalPort());
+
+            // When
+            final SingleIpHttpClient winner = new ConnectionRacer(Duration.ofSeconds(5)).race(List.of(refused, reachable)).get(5, TimeUnit.SECONDS);
+
+            // Then the next attempt starts as soon as the previous one failed, without waiting for the attempt delay
+            assertSame(reachable, winner);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldSelectThePreferredAddressWhenAllAreReachable() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            // Given
+            final SingleIpHttpClient preferred = singleIpHttpClient(serverSocket.getLocalPort());
+            final SingleIpHttpClient other = singleIpHttpClient(serverSocket.getLocalPort());
+
+            // When
+            final SingleIpHttpClient winner = new ConnectionRacer(Duration.ofSeconds(5)).race(List.of(preferred, other)).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertSame(preferred, winner);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldCancelTheTimersOnceTheRaceIsWon() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            // Given
+            final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+            final ScheduledFuture<?> timer = mock(ScheduledFuture.class);
+            doReturn(timer).when(scheduledExecutorService).schedule(any(Runnable.class), anyLong(), any());
+            final SingleIpHttpClient reachable = singleIpHttpClient(serverSocket.getLocalPort());
+
+            // When
+            final SingleIpHttpClient winner = new ConnectionRacer(Duration.ofSeconds(5), scheduledExecutorService).race(List.of(reachable)).get(5, TimeUnit.SECONDS);
+
+            // Then both the attempt delay and the connect timeout of the attempt are cancelled
+            assertSame(reachable, winner);
+            verify(timer, timeout(5_000L).times(2)).cancel(false);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldFailWhenNoAddressIsReachable() throws IOException {
+        // Given
+        final List<SingleIpHttpClient> candidates = List.of(singleIpHttpClient(closedPort()), singleIpHttpClient(closedPort()));
+        final ConnectionRacer connectionRacer = new ConnectionRacer(ConnectionRacer.DEFAULT_ATTEMPT_DELAY);
+
+        // When
+        final ExecutionException executionException = assertThrows(ExecutionException.class, () -> connectionRacer.race(candidates).get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(executionException.getCause(), instanceOf(HttpConnectTimeoutException.class));
+    }
+
+    @Test
+    void shouldAlternateAddressFamilies() throws UnknownHostException {
+        // Given
+        final SingleIpHttpClient ipv6First = singleIpHttpClient(InetAddress.getByName("::1"));
+        final SingleIpHttpClient ipv6Second = singleIpHttpClient(InetAddress.getByName("::2"));
+        final SingleIpHttpClient ipv4First = singleIpHttpClient(InetAddress.getByName("10.0.0.1"));
+        final SingleIpHttpClient ipv4Second = singleIpHttpClient(InetAddress.getByName("10.0.0.2"));
+        final SingleIpHttpClient ipv4Third = singleIpHttpClient(InetAddress.getByName("10.0.0.3"));
+
+        // When
+        final List<SingleIpHttpClient> interleaved = ConnectionRacer.interleaveAddressFamilies(List.of(ipv6First, ipv6Second, ipv4First, ipv4Second, ipv4Third));
+
+        // Then
+        assertThat(interleaved, contains(ipv6First, ipv4First, ipv6Second, ipv4Second, ipv4Third));
+    }
+
+    @Test
+    @Timeout(10)
+    void resilientClientShouldSendToTheAddressWinningTheRace() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            // Given
+            final SingleIpHttpClient refused = singleIpHttpClient(closedPort());
+            final SingleIpHttpClient reachable = singleIpHttpClient(serverSocket.getLocalPort());
+            final HttpClient refusedHttpClient = mock(HttpClient.class);
+            final HttpClient reachableHttpClient = mock(HttpClient.class);
+            when(refused.getHttpClient()).thenReturn(refusedHttpClient);
+            when(reachable.getHttpClient()).thenReturn(reachableHttpClient);
+            @SuppressWarnings("unchecked") final HttpResponse<Object> httpResponse = mock(HttpResponse.class);
+            when(reachableHttpClient.send(any(), any())).thenReturn(httpResponse);
+            final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(refused, reachable));
+            final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool, null, new ConnectionRacer(Duration.ofSeconds(5)), null, -1L);
+            final HttpRequest request = HttpRequest.newBuilder(URI.create("https://localhost")).build();
+
+            // When
+            for (int i = 0; i < 2; i++) {
+                // Then whatever the first client, the connection was never verified so the connections are raced
+                assertSame(httpResponse, resilientClient.send(request, HttpResponse.BodyHandlers.discarding()));
+            }
+            verify(refusedHttpClient, never()).send(any(), any());
+        }
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(int port) {
+        final SingleIpHttpClient singleIpHttpClient = singleIpHttpClient(InetAddress.getLoopbackAddress());
+        when(singleIpHttpClient.getSocketAddress()).thenReturn(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return singleIpHttpClient;
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(InetAddress inetAddress) {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
+        when(singleIpHttpClient.getInetAddress()).thenReturn(inetAddress);
+        return singleIpHttpClient;
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HealthBodySubscriberTest {
+
+    @Test
+    void shouldCancelAsSoonAsMarkerIsFound() {
+        // Given
+        final CountingSubscription subscription = new CountingSubscription();
+        final HealthBodySubscriber subscriber = new HealthBodySubscriber(HealthEvaluator.bodyNotContaining("DEGRADED"), responseInfo(200), 4096);
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(utf8("{\"status\":\"DEGR")));
+        subscriber.onNext(List.of(utf8("ADED\",\"checks\":[")));
+
+        // Then
+        assertFalse(subscriber.getBody().toCompletableFuture().join());
+        assertEquals(2, subscription.requested.get());
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void shouldDecideOnStatusWithoutReadingBody() {
+        // Given
+        final CountingSubscription subscription = new CountingSubscription();
+        final HealthBodySubscriber subscriber = new HealthBodySubscriber(HealthEvaluator.statusCode(), responseInfo(204), 4096);
+
+        // When
+        subscriber.onSubscribe(subscription);
+
+        // Then
+        assertTrue(subscriber.getBody().toCompletableFuture().join());
+        assertEquals(0, subscription.requested.get());
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void shouldBoundBodyPrefix() {
+        // Given
+        final CountingSubscription subscription = new CountingSubscription();
+        final AtomicInteger largestPrefix = new AtomicInteger();
+        final HealthBodySubscriber subscriber = new HealthBodySubscriber((responseInfo, bodyPrefix, last) -> {
+            largestPrefix.accumulateAndGet(bodyPrefix.remaining(), Math::max);
+            return HealthEvaluator.Verdict.UNDECIDED;
+        }, responseInfo(503), 16);
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(utf8("0123456789"), utf8("0123456789")));
+
+        // Then the undecided evaluation falls back on the status code once the prefix is full
+        assertFalse(subscriber.getBody().toCompletableFuture().join());
+        assertEquals(16, largestPrefix.get());
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void shouldEvaluateCompleteBody() {
+        // Given
+        final CountingSubscription subscription = new CountingSubscription();
+        final HealthBodySubscriber subscriber = new HealthBodySubscriber(HealthEvaluator.bodyNotContaining("DEGRADED"), responseInfo(200), 4096);
+        subscriber.onSubscribe(subscription);
+
+        // When
+        subscriber.onNext(List.of(utf8("{\"status\":\"UP\"}")));
+        subscriber.onComplete();
+
+        // Then
+        assertTrue(subscriber.getBody().toCompletableFuture().join());
+        assertFalse(subscription.cancelled);
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpResponse.ResponseInfo responseInfo(int statusCode) {
+        final HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+        when(responseInfo.statusCode()).thenReturn(statusCode);
+        return responseInfo;
+    }
+
+    private static class CountingSubscription implements Flow.Subscription {
+        private final AtomicInteger requested = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested.addAndGet((int) n);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
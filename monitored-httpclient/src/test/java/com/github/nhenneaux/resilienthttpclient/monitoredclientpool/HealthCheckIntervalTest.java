@@ -0,0 +1,55 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HealthCheckIntervalTest {
+
+    @Test
+    void shouldAlwaysReturnPeriodWhenFixed() {
+        // Given
+        final HealthCheckInterval healthCheckInterval = new HealthCheckInterval(Duration.ofSeconds(2), false);
+
+        // When-Then
+        assertEquals(Duration.ofSeconds(2), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(2), healthCheckInterval.next(false));
+        assertEquals(Duration.ofSeconds(2), healthCheckInterval.next(false));
+    }
+
+    @Test
+    void shouldBackOffWhileHealthIsStable() {
+        // Given
+        final HealthCheckInterval healthCheckInterval = new HealthCheckInterval(Duration.ofSeconds(2), true);
+
+        // When-Then
+        assertEquals(Duration.ofMillis(500), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(1), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(2), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(4), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(8), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(16), healthCheckInterval.next(true));
+        assertEquals(Duration.ofSeconds(16), healthCheckInterval.next(true));
+    }
+
+    @Test
+    void shouldShortenIntervalWhenHealthChanges() {
+        // Given
+        final HealthCheckInterval healthCheckInterval = new HealthCheckInterval(Duration.ofSeconds(2), true);
+        healthCheckInterval.next(true);
+        healthCheckInterval.next(true);
+        healthCheckInterval.next(true);
+
+        // When
+        final Duration afterFailure = healthCheckInterval.next(false);
+        final Duration whileDown = healthCheckInterval.next(false);
+        final Duration afterRecovery = healthCheckInterval.next(true);
+
+        // Then
+        assertEquals(Duration.ofMillis(500), afterFailure);
+        assertEquals(Duration.ofSeconds(1), whileDown);
+        assertEquals(Duration.ofMillis(500), afterRecovery);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthCheckLimiterTest {
+
+    @Test
+    void shouldQueueHealthChecksExceedingTheLimit() {
+        // Given
+        final HealthCheckLimiter healthCheckLimiter = new HealthCheckLimiter(2);
+        final List<CompletableFuture<Integer>> sent = new ArrayList<>();
+        final List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            results.add(healthCheckLimiter.submit(() -> {
+                final CompletableFuture<Integer> healthCheck = new CompletableFuture<>();
+                sent.add(healthCheck);
+                return healthCheck;
+            }));
+        }
+
+        // Then
+        assertEquals(2, sent.size());
+        assertEquals(2, healthCheckLimiter.inFlight());
+
+        // When
+        sent.get(0).complete(200);
+
+        // Then the next one is sent without waiting on any thread
+        assertEquals(200, results.get(0).join());
+        assertEquals(3, sent.size());
+        assertEquals(2, healthCheckLimiter.inFlight());
+        assertFalse(results.get(2).isDone());
+
+        // When
+        sent.get(1).completeExceptionally(new IllegalStateException("Connection refused"));
+        sent.get(2).complete(200);
+        sent.get(3).complete(200);
+        sent.get(4).complete(500);
+
+        // Then
+        assertThrows(CompletionException.class, results.get(1)::join);
+        assertEquals(500, results.get(4).join());
+        assertEquals(0, healthCheckLimiter.inFlight());
+    }
+
+    @Test
+    void shouldReleaseWhenHealthCheckCannotBeSent() {
+        // Given
+        final HealthCheckLimiter healthCheckLimiter = new HealthCheckLimiter(1);
+        final AtomicInteger sent = new AtomicInteger();
+
+        // When
+        final CompletableFuture<Integer> failed = healthCheckLimiter.submit(() -> null);
+        final CompletableFuture<Integer> next = healthCheckLimiter.submit(() -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(200);
+        });
+
+        // Then
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(200, next.join());
+        assertEquals(1, sent.get());
+        assertEquals(0, healthCheckLimiter.inFlight());
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldSendQueuedHealthChecksCompletingSynchronouslyWithoutGrowingTheStack() {
+        // Given a slot held while many health checks completing synchronously are queued
+        final HealthCheckLimiter healthCheckLimiter = new HealthCheckLimiter(1);
+        final CompletableFuture<Integer> blocking = new CompletableFuture<>();
+        healthCheckLimiter.submit(() -> blocking);
+        final List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            results.add(healthCheckLimiter.submit(() -> CompletableFuture.completedFuture(200)));
+        }
+
+        // When
+        blocking.complete(200);
+
+        // Then
+        for (CompletableFuture<Integer> result : results) {
+            assertEquals(200, result.join());
+        }
+        assertEquals(0, healthCheckLimiter.inFlight());
+    }
+
+    @Test
+    void shouldRejectInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new HealthCheckLimiter(0));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthProbeRegistryTest {
+
+    @Test
+    void shouldSendOneProbeForAllSubscribers() {
+        // Given
+        final HealthProbeRegistry registry = new HealthProbeRegistry();
+        final List<Integer> firstResults = new CopyOnWriteArrayList<>();
+        final List<Integer> secondResults = new CopyOnWriteArrayList<>();
+        final HealthProbeRegistry.Subscription<Integer> first = registry.subscribe("key", (result, failure, start) -> firstResults.add(result));
+        final HealthProbeRegistry.Subscription<Integer> second = registry.subscribe("key", (result, failure, start) -> secondResults.add(result));
+        final CompletableFuture<Integer> inFlight = new CompletableFuture<>();
+        final AtomicInteger sent = new AtomicInteger();
+
+        // When
+        final CompletableFuture<Void> firstProbe = first.probe(() -> {
+            sent.incrementAndGet();
+            return inFlight;
+        }, 0L);
+        final CompletableFuture<Void> secondProbe = second.probe(() -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        }, 0L);
+        inFlight.complete(200);
+
+        // Then
+        assertSame(firstProbe, secondProbe);
+        assertTrue(secondProbe.isDone());
+        assertEquals(1, sent.get());
+        assertEquals(List.of(200), firstResults);
+        assertEquals(List.of(200), secondResults);
+    }
+
+    @Test
+    void shouldReuseRecentResult() {
+        // Given
+        final HealthProbeRegistry registry = new HealthProbeRegistry();
+        final HealthProbeRegistry.Subscription<Integer> subscription = registry.subscribe("key", (result, failure, start) -> {
+        });
+        final AtomicInteger sent = new AtomicInteger();
+        subscription.probe(() -> CompletableFuture.completedFuture(sent.incrementAndGet()), 0L);
+
+        // When
+        subscription.probe(() -> CompletableFuture.completedFuture(sent.incrementAndGet()), TimeUnit.MINUTES.toNanos(1L));
+        final int sentWhileFresh = sent.get();
+        subscription.probe(() -> CompletableFuture.completedFuture(sent.incrementAndGet()), 0L);
+
+        // Then
+        assertEquals(1, sentWhileFresh);
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    void shouldDropEntryWithLastSubscriber() {
+        // Given
+        final HealthProbeRegistry registry = new HealthProbeRegistry();
+        final HealthProbeRegistry.Subscription<Integer> first = registry.subscribe("key", (result, failure, start) -> {
+        });
+        final HealthProbeRegistry.Subscription<Integer> second = registry.subscribe("key", (result, failure, start) -> {
+        });
+
+        // When
+        first.close();
+        final int subscribersAfterFirstClose = registry.subscriberCount("key");
+        second.close();
+
+        // Then
+        assertEquals(1, subscribersAfterFirstClose);
+        assertEquals(0, registry.subscriberCount("key"));
+        assertFalse(registry.subscriberCount("other") > 0);
+    }
+}
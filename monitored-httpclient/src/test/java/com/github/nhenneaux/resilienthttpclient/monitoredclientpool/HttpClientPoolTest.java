@@ -9,12 +9,14 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.DnsLookupWrapper;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServiceEndpoint;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.SingleHostHttpClientBuilder;
 import org.awaitility.core.ConditionFactory;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.net.*;
@@ -27,7 +29,10 @@ import java.security.Security;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration.DEFAULT_REQUEST_TRANSFORMER;
 import static org.awaitility.Awaitility.await;
@@ -286,7 +291,7 @@ class HttpClientPoolTest {
                     allOf(containsString("SingleIpHttpClient{inetAddress=" + hostname),
                             containsString("HttpClientPool{httpClientsCache=GenericRoundRobinListWithHealthCheck{list=["),
                             containsString("serverConfiguration=ServerConfiguration{hostname='" + hostname + "', port=-1, healthPath=''"),
-                            containsString("connectionHealthCheckPeriodInSeconds=30, dnsLookupRefreshPeriodInSeconds=300, healthReadTimeoutInMilliseconds=5000, failureResponseCountThreshold= -1, protocol= https}}")));
+                            containsString("connectionHealthCheckPeriod=PT30S, dnsLookupRefreshPeriod=PT5M, healthReadTimeoutInMilliseconds=5000, failureResponseCountThreshold= -1, protocol= https, requestDeadlineInMilliseconds= -1, loadSheddingBackoffInMilliseconds= 1000, adaptiveHealthCheck= false, healthCheckMode= HTTP, healthEvaluator= null}}")));
         }
     }
 
@@ -302,7 +307,7 @@ class HttpClientPoolTest {
         assertEquals(List.of(), check.getDetails());
         assertEquals(HealthCheckResult.HealthStatus.ERROR, check.getStatus());
         assertEquals("HealthCheckResult{status=ERROR, details=[]}", check.toString());
-        assertEquals("HttpClientPool{httpClientsCache=null, serverConfiguration=ServerConfiguration{hostname='not.found.host', port=-1, healthPath='', connectionHealthCheckPeriodInSeconds=30, dnsLookupRefreshPeriodInSeconds=300, healthReadTimeoutInMilliseconds=5000, failureResponseCountThreshold= -1, protocol= https}}", httpClientPool.toString());
+        assertEquals("HttpClientPool{httpClientsCache=null, serverConfiguration=ServerConfiguration{hostname='not.found.host', port=-1, healthPath='', connectionHealthCheckPeriod=PT30S, dnsLookupRefreshPeriod=PT5M, healthReadTimeoutInMilliseconds=5000, failureResponseCountThreshold= -1, protocol= https, requestDeadlineInMilliseconds= -1, loadSheddingBackoffInMilliseconds= 1000, adaptiveHealthCheck= false, healthCheckMode= HTTP, healthEvaluator= null}}", httpClientPool.toString());
 
     }
 
@@ -392,24 +397,231 @@ class HttpClientPoolTest {
         final ServerConfiguration serverConfiguration = new ServerConfiguration(oneHostname());
         final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
         final ScheduledFuture<?> scheduledFuture = mock(ScheduledFuture.class);
-        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(TimeUnit.SECONDS))).thenAnswer(invocationOnMock -> {
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
             return scheduledFuture;
         });
         final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
         // When
-        try (HttpClientPool ignored = HttpClientPool.builder(serverConfiguration)
+        final HttpClientPool httpClientPool = HttpClientPool.builder(serverConfiguration)
                 .withDnsLookupWrapper(dnsLookupWrapper)
                 .withScheduledExecutorService(scheduledExecutorService)
-                .build()) {
-            // Then
-            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUp(serverConfiguration.getHostname());
-        }
+                .build();
+        // Then
+        verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname());
+        httpClientPool.close();
 
         verify(scheduledFuture).cancel(true);
     }
 
+    @Test
+    void scheduleRefreshWhenRecordsExpire() {
+        // Given
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(oneHostname());
+        final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> scheduledFuture = mock(ScheduledFuture.class);
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> scheduledFuture);
+        final ScheduledFuture<?> expiryRefreshFuture = mock(ScheduledFuture.class);
+        when(scheduledExecutorService.schedule(any(Runnable.class), eq(10_000L), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> expiryRefreshFuture);
+        final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
+        when(dnsLookupWrapper.getRemainingTimeToLive(serverConfiguration.getHostname())).thenReturn(Optional.of(Duration.ofSeconds(10)));
+        // When
+        final HttpClientPool httpClientPool = HttpClientPool.builder(serverConfiguration)
+                .withDnsLookupWrapper(dnsLookupWrapper)
+                .withScheduledExecutorService(scheduledExecutorService)
+                .build();
+        // Then
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(10_000L), eq(TimeUnit.MILLISECONDS));
+        httpClientPool.close();
+
+        verify(expiryRefreshFuture).cancel(true);
+    }
+
+    @Test
+    void refreshWhenSlowLookupCompletes() throws UnknownHostException {
+        // Given
+        final String hostname = "slow.dns.localhost";
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
+        final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class, RETURNS_MOCKS);
+        final InetAddress firstAddress = InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 2});
+        final InetAddress secondAddress = InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 3});
+        final CompletableFuture<Set<InetAddress>> slowLookup = new CompletableFuture<>();
+        final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(Set.of(firstAddress))).thenReturn(slowLookup);
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.<Void>sendAsync(any(HttpRequest.class), any())).thenReturn(CompletableFuture.completedFuture(ok));
+
+        try (HttpClientPool httpClientPool = new HttpClientPool(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, inetAddress -> httpClient)) {
+            final ArgumentCaptor<Runnable> dnsRefresh = ArgumentCaptor.forClass(Runnable.class);
+            final long dnsLookupRefreshPeriodInMilliseconds = serverConfiguration.getDnsLookupRefreshPeriod().toMillis();
+            verify(scheduledExecutorService).scheduleAtFixedRate(dnsRefresh.capture(), eq(dnsLookupRefreshPeriodInMilliseconds), eq(dnsLookupRefreshPeriodInMilliseconds), eq(TimeUnit.MILLISECONDS));
+
+            // When
+            dnsRefresh.getValue().run();
+            dnsRefresh.getValue().run();
+            final int clientsWhileLookupInFlight = httpClientPool.getHttpClientsCache().get().getList().size();
+            slowLookup.complete(Set.of(firstAddress, secondAddress));
+
+            // Then the scheduler is not held by the lookup and no other lookup is started while one is in flight
+            assertEquals(1, clientsWhileLookupInFlight);
+            assertEquals(2, httpClientPool.getHttpClientsCache().get().getList().size());
+            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(hostname);
+        }
+    }
+
+    @Test
+    void refreshWhenSubscribedAddressesChange() throws UnknownHostException {
+        // Given
+        final String hostname = "subscribed.dns.localhost";
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
+        final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class, RETURNS_MOCKS);
+        final InetAddress firstAddress = InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 2});
+        final InetAddress secondAddress = InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 3});
+        final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(Set.of(firstAddress)));
+        final DnsLookupWrapper.Subscription subscription = mock(DnsLookupWrapper.Subscription.class);
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Consumer<Set<InetAddress>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        when(dnsLookupWrapper.subscribe(eq(hostname), listener.capture())).thenReturn(Optional.of(subscription));
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.<Void>sendAsync(any(HttpRequest.class), any())).thenReturn(CompletableFuture.completedFuture(ok));
+
+        try (HttpClientPool httpClientPool = new HttpClientPool(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, inetAddress -> httpClient)) {
+            // When
+            listener.getValue().accept(Set.of(firstAddress, secondAddress));
+
+            // Then the notifications replace the periodic lookups
+            assertEquals(2, httpClientPool.getHttpClientsCache().get().getList().size());
+            final ArgumentCaptor<Runnable> periodicRefresh = ArgumentCaptor.forClass(Runnable.class);
+            verify(scheduledExecutorService).scheduleAtFixedRate(periodicRefresh.capture(), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), anyLong(), any(TimeUnit.class));
+            periodicRefresh.getValue().run();
+            assertEquals(2, httpClientPool.getHttpClientsCache().get().getList().size());
+            verify(dnsLookupWrapper).getInetAddressesByDnsLookUpAsync(hostname);
+        }
+
+        verify(subscription).close();
+    }
+
+    @Test
+    void decommissionFailingClientWhenSubscribedAddressesAreStable() throws UnknownHostException {
+        // Given
+        final String hostname = "subscribed.failing.dns.localhost";
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname, ServerConfiguration.DEFAULT_PORT, ServerConfiguration.DEFAULT_HEALTH_PATH, 120, 60, 5_000L, 2, null);
+        final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class, RETURNS_MOCKS);
+        final InetAddress address = InetAddress.getByAddress(hostname, new byte[]{127, 0, 0, 2});
+        final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(Set.of(address)));
+        when(dnsLookupWrapper.subscribe(eq(hostname), any())).thenReturn(Optional.of(mock(DnsLookupWrapper.Subscription.class)));
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.<Void>sendAsync(any(HttpRequest.class), any())).thenReturn(CompletableFuture.completedFuture(ok));
+
+        try (HttpClientPool httpClientPool = new HttpClientPool(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, inetAddress -> httpClient)) {
+            final SingleIpHttpClient failingClient = httpClientPool.getHttpClientsCache().get().getList().get(0);
+            failingClient.incrementFailureCount();
+            failingClient.incrementFailureCount();
+            final ArgumentCaptor<Runnable> periodicRefresh = ArgumentCaptor.forClass(Runnable.class);
+            verify(scheduledExecutorService).scheduleAtFixedRate(periodicRefresh.capture(), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), anyLong(), any(TimeUnit.class));
+
+            // When
+            periodicRefresh.getValue().run();
+
+            // Then the client is replaced without another lookup
+            final List<SingleIpHttpClient> clients = httpClientPool.getHttpClientsCache().get().getList();
+            assertEquals(1, clients.size());
+            assertNotSame(failingClient, clients.get(0));
+            assertEquals(failingClient.getSocketAddress(), clients.get(0).getSocketAddress());
+            assertEquals(0, clients.get(0).getFailedResponseCount());
+            verify(dnsLookupWrapper).getInetAddressesByDnsLookUpAsync(hostname);
+        }
+    }
+
+    @Test
+    void buildClientPerServiceEndpoint() throws UnknownHostException {
+        // Given
+        final String serviceRecordName = "_https._tcp.service.dns.localhost";
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("service.dns.localhost");
+        final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class, RETURNS_MOCKS);
+        final InetAddress address = InetAddress.getByAddress(new byte[]{127, 0, 0, 2});
+        final ServiceEndpoint primary = new ServiceEndpoint(new InetSocketAddress(address, 8443), 10, 60);
+        final ServiceEndpoint secondary = new ServiceEndpoint(new InetSocketAddress(address, 9443), 10, 40);
+        final ServiceEndpoint backup = new ServiceEndpoint(new InetSocketAddress(address, 10443), 20, 100);
+        final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
+        when(dnsLookupWrapper.getServiceEndpointsByDnsLookUpAsync(serviceRecordName)).thenReturn(CompletableFuture.completedFuture(List.of(primary, secondary, backup)));
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.<Void>sendAsync(any(HttpRequest.class), any())).thenReturn(CompletableFuture.completedFuture(ok));
+        final List<InetSocketAddress> clientAddresses = new CopyOnWriteArrayList<>();
+        final Function<InetSocketAddress, HttpClient> singleHttpClientProvider = socketAddress -> {
+            clientAddresses.add(socketAddress);
+            return httpClient;
+        };
+
+        // When
+        try (HttpClientPool httpClientPool = new HttpClientPool(dnsLookupWrapper, scheduledExecutorService, serverConfiguration, singleHttpClientProvider, LoadBalancingStrategy.smoothWeightedRoundRobin(WeightProvider.serviceRecordWeights()), null, null, null, HealthCheckLimiter.DEFAULT_MAX_CONCURRENT_HEALTH_CHECKS, serviceRecordName)) {
+            final Map<Integer, Long> selectedPorts = IntStream.range(0, 100)
+                    .mapToObj(i -> httpClientPool.getNextHttpClient().orElseThrow().getSocketAddress().getPort())
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+            // Then there is a client for each port and the preferred priority takes the traffic in proportion of the weights
+            assertEquals(List.of(primary.getSocketAddress(), secondary.getSocketAddress(), backup.getSocketAddress()), clientAddresses);
+            assertEquals(3, httpClientPool.check().getDetails().size());
+            assertEquals(Map.of(8443, 60L, 9443, 40L), selectedPorts);
+            verify(dnsLookupWrapper, never()).getInetAddressesByDnsLookUpAsync(anyString());
+        }
+    }
+
+    @Test
+    void shouldNotApplySlowStartToUnweightedStrategy() {
+        // Given
+        final HttpClientPoolBuilder builder = HttpClientPool.builder(new ServerConfiguration("slowstart.dns.localhost"))
+                .withDnsLookupWrapper(mock(DnsLookupWrapper.class))
+                .withLoadBalancingStrategy(LoadBalancingStrategy.leastOutstandingRequests())
+                .withSlowStart(Duration.ofSeconds(30), SlowStartRamp.LINEAR);
+
+        // When
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, builder::build);
+
+        // Then
+        assertThat(exception.getMessage(), containsString("smooth weighted round-robin"));
+    }
+
+    @Test
+    void shouldNotApplySlowStartTwice() {
+        // Given
+        final HttpClientPoolBuilder builder = HttpClientPool.builder(new ServerConfiguration("slowstart.dns.localhost"))
+                .withDnsLookupWrapper(mock(DnsLookupWrapper.class))
+                .withLoadBalancingStrategy(LoadBalancingStrategy.smoothWeightedRoundRobin(WeightProvider.withSlowStart(WeightProvider.equalWeights(), Duration.ofSeconds(30), SlowStartRamp.LINEAR)))
+                .withSlowStart(Duration.ofSeconds(30), SlowStartRamp.LINEAR);
+
+        // When
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, builder::build);
+
+        // Then
+        assertThat(exception.getMessage(), containsString("already ramp up"));
+    }
+
+    @Test
+    void shouldNotCustomizeClientsOfServiceRecords() {
+        // Given
+        final HttpClientPoolBuilder builder = HttpClientPool.builder(new ServerConfiguration("service.dns.localhost"))
+                .withDnsServiceRecords("_https._tcp.service.dns.localhost")
+                .withDnsLookupWrapper(mock(DnsLookupWrapper.class))
+                .withSingleHostHttpClient(inetAddress -> mock(HttpClient.class));
+
+        // When
+        final IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, builder::build);
+
+        // Then
+        assertThat(exception.getMessage(), containsString("SRV records"));
+    }
+
 
     @Test
     void keepPreviousListWhenNewLookupEmpty() throws UnknownHostException {
@@ -418,7 +630,7 @@ class HttpClientPoolTest {
         final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
         final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
         final ScheduledFuture<?> scheduledDnsRefreshFuture = mock(ScheduledFuture.class);
-        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(TimeUnit.SECONDS))).thenAnswer(invocationOnMock -> {
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
             return scheduledDnsRefreshFuture;
@@ -427,9 +639,9 @@ class HttpClientPoolTest {
         final ScheduledFuture<?> scheduledHealthSingleClientRefreshFuture = mock(ScheduledFuture.class);
         when(scheduledExecutorService.scheduleAtFixedRate(
                 any(Runnable.class),
-                eq(0L),
-                eq(serverConfiguration.getConnectionHealthCheckPeriodInSeconds()),
-                eq(TimeUnit.SECONDS)
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(TimeUnit.MILLISECONDS)
         )).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
@@ -440,13 +652,13 @@ class HttpClientPoolTest {
 
         mockDns(dnsLookupWrapper, InetAddress.getByName(hostname), Set.of());
         // When
-        try (HttpClientPool ignored = HttpClientPool.builder(serverConfiguration)
+        final HttpClientPool httpClientPool = HttpClientPool.builder(serverConfiguration)
                 .withDnsLookupWrapper(dnsLookupWrapper)
                 .withScheduledExecutorService(scheduledExecutorService)
-                .build()) {
-            // Then
-            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUp(serverConfiguration.getHostname());
-        }
+                .build();
+        // Then
+        verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname());
+        httpClientPool.close();
 
         verify(scheduledDnsRefreshFuture).cancel(true);
         verify(scheduledHealthSingleClientRefreshFuture).cancel(true);
@@ -454,7 +666,7 @@ class HttpClientPoolTest {
 
     @SuppressWarnings("unchecked")
     private void mockDns(DnsLookupWrapper dnsLookupWrapper, InetAddress byName, Set<InetAddress> of) {
-        when(dnsLookupWrapper.getInetAddressesByDnsLookUp(oneHostname())).thenReturn(Set.of(byName), of);
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(oneHostname())).thenReturn(CompletableFuture.completedFuture(Set.of(byName)), CompletableFuture.completedFuture(of));
     }
 
     @Test
@@ -464,7 +676,7 @@ class HttpClientPoolTest {
         final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
         final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
         final ScheduledFuture<?> scheduledDnsRefreshFuture = mock(ScheduledFuture.class);
-        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(TimeUnit.SECONDS))).thenAnswer(invocationOnMock -> {
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
             return scheduledDnsRefreshFuture;
@@ -473,9 +685,9 @@ class HttpClientPoolTest {
         final ScheduledFuture<?> scheduledHealthSingleClientRefreshFuture = mock(ScheduledFuture.class);
         when(scheduledExecutorService.scheduleAtFixedRate(
                 any(Runnable.class),
-                eq(0L),
-                eq(serverConfiguration.getConnectionHealthCheckPeriodInSeconds()),
-                eq(TimeUnit.SECONDS)
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(TimeUnit.MILLISECONDS)
         )).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
@@ -488,14 +700,14 @@ class HttpClientPoolTest {
 
         mockDns(dnsLookupWrapper, firstAddress, Set.of(secondAddress));
         // When
-        try (HttpClientPool ignored = HttpClientPool.builder(serverConfiguration)
+        final HttpClientPool httpClientPool = HttpClientPool.builder(serverConfiguration)
                 .withDnsLookupWrapper(dnsLookupWrapper)
                 .withScheduledExecutorService(scheduledExecutorService)
-                .build()) {
-            // Then
-            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUp(serverConfiguration.getHostname());
-            verify(scheduledHealthSingleClientRefreshFuture).cancel(true);
-        }
+                .build();
+        // Then
+        verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname());
+        verify(scheduledHealthSingleClientRefreshFuture).cancel(true);
+        httpClientPool.close();
 
         verify(scheduledDnsRefreshFuture).cancel(true);
     }
@@ -522,7 +734,7 @@ class HttpClientPoolTest {
                 .withScheduledExecutorService(scheduledExecutorService)
                 .build();
         // Then
-        verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUp(serverConfiguration.getHostname());
+        verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname());
 
     }
 
@@ -533,7 +745,7 @@ class HttpClientPoolTest {
         final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
         final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
         final ScheduledFuture<?> scheduledDnsRefreshFuture = mock(ScheduledFuture.class);
-        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(TimeUnit.SECONDS))).thenAnswer(invocationOnMock -> {
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
             return scheduledDnsRefreshFuture;
@@ -542,9 +754,9 @@ class HttpClientPoolTest {
         final ScheduledFuture<?> scheduledHealthSingleClientRefreshFuture = mock(ScheduledFuture.class);
         when(scheduledExecutorService.scheduleAtFixedRate(
                 any(Runnable.class),
-                eq(0L),
-                eq(serverConfiguration.getConnectionHealthCheckPeriodInSeconds()),
-                eq(TimeUnit.SECONDS)
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(TimeUnit.MILLISECONDS)
         )).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
@@ -554,7 +766,7 @@ class HttpClientPoolTest {
         final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
         final InetAddress secondAddress = localInetAddress();
         final InetAddress firstAddress = InetAddress.getByName(hostname);
-        when(dnsLookupWrapper.getInetAddressesByDnsLookUp(hostname)).thenReturn(Set.of(firstAddress, secondAddress));
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(Set.of(firstAddress, secondAddress)));
         // When
         try (final HttpClientPool httpClientPool = new HttpClientPool(
                 dnsLookupWrapper,
@@ -567,7 +779,7 @@ class HttpClientPoolTest {
                         .buildWithHostHeader())
         ) {
             // Then
-            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUp(serverConfiguration.getHostname());
+            verify(dnsLookupWrapper, times(2)).getInetAddressesByDnsLookUpAsync(serverConfiguration.getHostname());
 
             await()
                     .atMost(Duration.ofSeconds(5L))
@@ -589,7 +801,7 @@ class HttpClientPoolTest {
         final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
         final InetAddress firstAddress = localInetAddress();
         final InetAddress secondAddress = InetAddress.getByName(hostname);
-        when(dnsLookupWrapper.getInetAddressesByDnsLookUp(hostname)).thenReturn(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress)));
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress))));
         // When
         try (final HttpClientPool httpClientPool = new HttpClientPool(
                 dnsLookupWrapper,
@@ -622,7 +834,7 @@ class HttpClientPoolTest {
         final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
         final InetAddress firstAddress = localInetAddress();
         final InetAddress secondAddress = InetAddress.getByName(hostname);
-        when(dnsLookupWrapper.getInetAddressesByDnsLookUp(hostname)).thenReturn(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress)));
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress))));
         // When
         try (final HttpClientPool httpClientPool = new HttpClientPool(
                 dnsLookupWrapper,
@@ -647,7 +859,7 @@ class HttpClientPoolTest {
     private ScheduledExecutorService mockScheduledExecutorService(ServerConfiguration serverConfiguration) {
         final ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
         final ScheduledFuture<?> scheduledDnsRefreshFuture = mock(ScheduledFuture.class);
-        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(serverConfiguration.getDnsLookupRefreshPeriodInSeconds()), eq(TimeUnit.SECONDS))).thenAnswer(invocationOnMock -> {
+        when(scheduledExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(serverConfiguration.getDnsLookupRefreshPeriod().toMillis()), eq(TimeUnit.MILLISECONDS))).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
             return scheduledDnsRefreshFuture;
@@ -656,9 +868,9 @@ class HttpClientPoolTest {
         final ScheduledFuture<?> scheduledHealthSingleClientRefreshFuture = mock(ScheduledFuture.class);
         when(scheduledExecutorService.scheduleAtFixedRate(
                 any(Runnable.class),
-                eq(0L),
-                eq(serverConfiguration.getConnectionHealthCheckPeriodInSeconds()),
-                eq(TimeUnit.SECONDS)
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(serverConfiguration.getConnectionHealthCheckPeriod().toMillis()),
+                eq(TimeUnit.MILLISECONDS)
         )).thenAnswer(invocationOnMock -> {
             final Runnable runnable = invocationOnMock.getArgument(0);
             runnable.run();
@@ -677,7 +889,7 @@ class HttpClientPoolTest {
 
         // When
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Set<InetAddress> addresses = mockForConnectTimeout(hostname, serverConfiguration, roundRobinPool);
+        final List<InetSocketAddress> addresses = mockForConnectTimeout(hostname, serverConfiguration, roundRobinPool);
 
         // Then
         final HttpClient httpClient = new ResilientClient(() -> roundRobinPool);
@@ -698,7 +910,7 @@ class HttpClientPoolTest {
 
         // When
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Set<InetAddress> addresses = mockForConnectTimeout(hostname, serverConfiguration, roundRobinPool);
+        final List<InetSocketAddress> addresses = mockForConnectTimeout(hostname, serverConfiguration, roundRobinPool);
         HttpClient httpClient = new ResilientClient(() -> roundRobinPool);
 
         // Then
@@ -708,7 +920,7 @@ class HttpClientPoolTest {
 
     }
 
-    private Set<InetAddress> mockForConnectTimeout(String hostname, ServerConfiguration
+    private List<InetSocketAddress> mockForConnectTimeout(String hostname, ServerConfiguration
             serverConfiguration, RoundRobinPool roundRobinPool) throws UnknownHostException {
         final InetAddress nonRoutableAddress = InetAddress.getByName("10.255.255.1");
 
@@ -716,7 +928,8 @@ class HttpClientPoolTest {
         when(roundRobinPool.next()).thenReturn(firstSingleClient);
 
         when(roundRobinPool.getList()).thenReturn(List.of(firstSingleClient.orElseThrow()));
-        return Set.of(nonRoutableAddress);
+        when(roundRobinPool.failoverCount()).thenReturn(1);
+        return List.of(firstSingleClient.orElseThrow().getSocketAddress());
     }
 
     @Test
@@ -744,16 +957,23 @@ class HttpClientPoolTest {
         final List<Optional<SingleIpHttpClient>> clients = new ArrayList<>(optionalList);
         clients.add(firstSingleClient);
         when(roundRobinPool.getList()).thenReturn(clients.stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()));
+        when(roundRobinPool.failoverCount()).thenReturn(clients.size());
 
         // Then
         final HttpClient httpClient = new ResilientClient(() -> roundRobinPool);
         final CompletableFuture<HttpResponse<Void>> httpResponseAsync = httpClient.sendAsync(HttpRequest.newBuilder().uri(URI.create("https://" + hostname)).build(), HttpResponse.BodyHandlers.discarding());
 
         final CompletionException executionException = assertThrows(CompletionException.class, httpResponseAsync::join);
-        assertEquals("Cannot connect to the server, the following address were tried without success " + addresses + ".", executionException.getCause().getMessage());
+        assertEquals("Cannot connect to the server, the following address were tried without success " + socketAddresses(addresses) + ".", executionException.getCause().getMessage());
 
     }
 
+    private static List<InetSocketAddress> socketAddresses(Set<InetAddress> addresses) {
+        return addresses.stream()
+                .map(address -> new InetSocketAddress(address, 443))
+                .collect(Collectors.toList());
+    }
+
     @Test
     @Timeout(20)
     void shouldConnectTimeoutEmptyElement() {
@@ -779,6 +999,7 @@ class HttpClientPoolTest {
         final List<Optional<SingleIpHttpClient>> clients = new ArrayList<>(optionalList);
         clients.add(firstSingleClient);
         when(roundRobinPool.getList()).thenReturn(clients.stream().filter(Optional::isPresent).map(Optional::get).collect(Collectors.toList()));
+        when(roundRobinPool.failoverCount()).thenReturn(clients.size());
 
         // Then
         final HttpClient httpClient = new ResilientClient(() -> roundRobinPool);
@@ -786,7 +1007,7 @@ class HttpClientPoolTest {
         final HttpConnectTimeoutException httpConnectTimeoutException = assertThrows(HttpConnectTimeoutException.class,
                 () -> httpClient.send(HttpRequest.newBuilder().uri(URI.create("https://" + hostname)).build(), HttpResponse.BodyHandlers.discarding()),
                 () -> "Not throwing for addresses " + addresses);
-        assertEquals("Cannot connect to the HTTP server, tried to connect to the following IP " + addresses + " to send the HTTP request https://" + hostname + " GET", httpConnectTimeoutException.getMessage());
+        assertEquals("Cannot connect to the HTTP server, tried to connect to the following IP " + socketAddresses(addresses) + " to send the HTTP request https://" + hostname + " GET", httpConnectTimeoutException.getMessage());
 
     }
 
@@ -816,7 +1037,7 @@ class HttpClientPoolTest {
         final DnsLookupWrapper dnsLookupWrapper = mock(DnsLookupWrapper.class);
         final InetAddress firstAddress = localInetAddress();
         final InetAddress secondAddress = InetAddress.getByName(hostname);
-        when(dnsLookupWrapper.getInetAddressesByDnsLookUp(hostname)).thenReturn(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress)));
+        when(dnsLookupWrapper.getInetAddressesByDnsLookUpAsync(hostname)).thenReturn(CompletableFuture.completedFuture(new CopyOnWriteArraySet<>(Arrays.asList(firstAddress, secondAddress))));
         // When
         try (final HttpClientPool httpClientPool = new HttpClientPool(
                 dnsLookupWrapper,
@@ -873,8 +1094,8 @@ class HttpClientPoolTest {
         String hostname = oneHostname();
         final ServerConfiguration serverConfiguration = new ServerConfiguration(hostname);
         when(serverConfigurationMock.getHostname()).thenReturn("fake.hostname.xxx", hostname);
-        when(serverConfigurationMock.getDnsLookupRefreshPeriodInSeconds()).thenReturn(1L);
-        when(serverConfigurationMock.getConnectionHealthCheckPeriodInSeconds()).thenReturn(serverConfiguration.getConnectionHealthCheckPeriodInSeconds());
+        when(serverConfigurationMock.getDnsLookupRefreshPeriod()).thenReturn(Duration.ofSeconds(1L));
+        when(serverConfigurationMock.getConnectionHealthCheckPeriod()).thenReturn(serverConfiguration.getConnectionHealthCheckPeriod());
         when(serverConfigurationMock.getHealthPath()).thenReturn(serverConfiguration.getHealthPath());
         when(serverConfigurationMock.getPort()).thenReturn(serverConfiguration.getPort());
         when(serverConfigurationMock.getHealthReadTimeoutInMilliseconds()).thenReturn(serverConfiguration.getHealthReadTimeoutInMilliseconds());
@@ -0,0 +1,210 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoadBalancingStrategyTest {
+
+    @Test
+    void roundRobinShouldSelectEachClientInTurn() {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(mock(SingleIpHttpClient.class), mock(SingleIpHttpClient.class), mock(SingleIpHttpClient.class));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.roundRobin();
+
+        // When
+        final Set<Integer> selected = new HashSet<>();
+        for (int i = 0; i < clients.size(); i++) {
+            selected.add(loadBalancingStrategy.select(clients));
+        }
+
+        // Then
+        assertThat(selected, containsInAnyOrder(0, 1, 2));
+    }
+
+    @Test
+    void leastOutstandingRequestsShouldSelectLeastLoadedClient() {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(clientWithInFlightRequests(3), clientWithInFlightRequests(1), clientWithInFlightRequests(2));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.leastOutstandingRequests();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            // Then
+            assertEquals(1, loadBalancingStrategy.select(clients));
+        }
+    }
+
+    @Test
+    void leastOutstandingRequestsShouldSpreadTies() {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(clientWithInFlightRequests(0), clientWithInFlightRequests(0), clientWithInFlightRequests(4));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.leastOutstandingRequests();
+
+        // When
+        final Set<Integer> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            selected.add(loadBalancingStrategy.select(clients));
+        }
+
+        // Then
+        assertThat(selected, containsInAnyOrder(0, 1));
+    }
+
+    @Test
+    void peakEwmaShouldNeverSelectTheMostExpensiveClient() {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(
+                clientWithCost(2, 1_000_000D),
+                clientWithCost(0, 50_000_000D),
+                clientWithCost(1, 1_000_000D)
+        );
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.peakEwma();
+
+        // When
+        final Set<Integer> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            selected.add(loadBalancingStrategy.select(clients));
+        }
+
+        // Then
+        assertThat(selected, containsInAnyOrder(0, 2));
+    }
+
+    @Test
+    void peakEwmaShouldSelectSingleClient() {
+        assertEquals(0, LoadBalancingStrategy.peakEwma().select(List.of(clientWithCost(10, 10D))));
+    }
+
+    @Test
+    void smoothWeightedRoundRobinShouldInterleaveSelections() {
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0}, SmoothWeightedRoundRobinStrategy.cycle(new int[]{5, 1, 1}));
+    }
+
+    @Test
+    void smoothWeightedRoundRobinShouldSelectInProportionOfWeights() throws UnknownHostException {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(clientWithAddress(1), clientWithAddress(2), clientWithAddress(3));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.smoothWeightedRoundRobin(WeightProvider.ofStaticWeights(Map.of("10.0.0.1", 30, "10.0.0.2", 10), 0));
+
+        // When
+        final int[] selections = new int[clients.size()];
+        for (int i = 0; i < 400; i++) {
+            selections[loadBalancingStrategy.select(clients)]++;
+        }
+
+        // Then
+        assertArrayEquals(new int[]{300, 100, 0}, selections);
+    }
+
+    @Test
+    void smoothWeightedRoundRobinShouldScaleDownLargeWeights() throws UnknownHostException {
+        // Given weights of SRV records scaled by the slow-start resolution
+        final List<SingleIpHttpClient> clients = List.of(clientWithAddress(1), clientWithAddress(2));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.smoothWeightedRoundRobin(WeightProvider.ofStaticWeights(Map.of("10.0.0.1", 30_000 * SlowStartWeightProvider.WEIGHT_RESOLUTION, "10.0.0.2", 10_000 * SlowStartWeightProvider.WEIGHT_RESOLUTION), 0));
+
+        // When
+        final int[] selections = new int[clients.size()];
+        for (int i = 0; i < 400; i++) {
+            selections[loadBalancingStrategy.select(clients)]++;
+        }
+
+        // Then
+        assertArrayEquals(new int[]{300, 100}, selections);
+    }
+
+    @Test
+    void smoothWeightedRoundRobinShouldFallbackToEqualWeights() throws UnknownHostException {
+        // Given
+        final List<SingleIpHttpClient> clients = List.of(clientWithAddress(1), clientWithAddress(2));
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.smoothWeightedRoundRobin(singleIpHttpClient -> 0);
+
+        // When
+        final int[] selections = new int[clients.size()];
+        for (int i = 0; i < 10; i++) {
+            selections[loadBalancingStrategy.select(clients)]++;
+        }
+
+        // Then
+        assertArrayEquals(new int[]{5, 5}, selections);
+    }
+
+    @Test
+    @Timeout(10)
+    void smoothWeightedRoundRobinShouldRebuildTheCycleOnce() throws InterruptedException, ExecutionException {
+        // Given a rebuild blocked in the weight provider
+        final List<SingleIpHttpClient> clients = List.of(mock(SingleIpHttpClient.class), mock(SingleIpHttpClient.class));
+        final CountDownLatch rebuildStarted = new CountDownLatch(1);
+        final CountDownLatch releaseRebuild = new CountDownLatch(1);
+        final AtomicInteger weightCalls = new AtomicInteger();
+        final LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.smoothWeightedRoundRobin(singleIpHttpClient -> {
+            weightCalls.incrementAndGet();
+            rebuildStarted.countDown();
+            try {
+                releaseRebuild.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> rebuilding = executorService.submit(() -> loadBalancingStrategy.select(clients));
+            rebuildStarted.await();
+
+            // When
+            final Set<Integer> selectedDuringRebuild = new HashSet<>();
+            for (int i = 0; i < 10; i++) {
+                selectedDuringRebuild.add(loadBalancingStrategy.select(clients));
+            }
+            final int weightCallsDuringRebuild = weightCalls.get();
+            releaseRebuild.countDown();
+
+            // Then
+            assertThat(rebuilding.get(), lessThan(clients.size()));
+            assertThat(selectedDuringRebuild, containsInAnyOrder(0, 1));
+            assertEquals(1, weightCallsDuringRebuild);
+            assertEquals(clients.size(), weightCalls.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static SingleIpHttpClient clientWithAddress(int lastByte) throws UnknownHostException {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.getInetAddress()).thenReturn(InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) lastByte}));
+        return singleIpHttpClient;
+    }
+
+    private static SingleIpHttpClient clientWithCost(int inFlightRequests, double responseTimeEwmaInNanoseconds) {
+        final SingleIpHttpClient singleIpHttpClient = clientWithInFlightRequests(inFlightRequests);
+        when(singleIpHttpClient.getResponseTimeEwmaInNanoseconds()).thenReturn(responseTimeEwmaInNanoseconds);
+        return singleIpHttpClient;
+    }
+
+    private static SingleIpHttpClient clientWithInFlightRequests(int inFlightRequests) {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.getInFlightRequests()).thenReturn(inFlightRequests);
+        return singleIpHttpClient;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PeakEwmaTest {
+
+    @Test
+    void shouldBeZeroWithoutObservation() {
+        assertEquals(0D, new PeakEwma().get());
+    }
+
+    @Test
+    void shouldFollowPeakImmediately() {
+        // Given
+        final PeakEwma peakEwma = new PeakEwma();
+        peakEwma.observe(TimeUnit.MILLISECONDS.toNanos(1));
+
+        // When
+        peakEwma.observe(TimeUnit.SECONDS.toNanos(1));
+
+        // Then
+        assertThat(peakEwma.get(), closeTo(TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    void shouldDecaySlowlyAfterPeak() {
+        // Given
+        final PeakEwma peakEwma = new PeakEwma();
+        peakEwma.observe(TimeUnit.SECONDS.toNanos(1));
+
+        // When
+        peakEwma.observe(TimeUnit.MILLISECONDS.toNanos(1));
+
+        // Then
+        assertThat(peakEwma.get(), allOf(greaterThan((double) TimeUnit.MILLISECONDS.toNanos(900)), lessThan((double) TimeUnit.SECONDS.toNanos(1))));
+    }
+
+    @Test
+    void shouldDecayWithoutObservation() throws InterruptedException {
+        // Given
+        final PeakEwma peakEwma = new PeakEwma(TimeUnit.MILLISECONDS.toNanos(10));
+        peakEwma.observe(TimeUnit.SECONDS.toNanos(1));
+
+        // When
+        Thread.sleep(100L);
+
+        // Then
+        assertThat(peakEwma.get(), lessThan((double) TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+}
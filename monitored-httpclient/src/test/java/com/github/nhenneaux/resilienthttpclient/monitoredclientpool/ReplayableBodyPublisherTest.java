@@ -0,0 +1,144 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayableBodyPublisherTest {
+
+    @Test
+    void shouldReplayStreamedBody() throws Exception {
+        // Given
+        final byte[] body = randomBytes(100_000);
+        final ReplayableBodyPublisher replayableBodyPublisher = ReplayableBodyPublisher.of(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body)));
+
+        // When
+        final byte[] firstAttempt = read(replayableBodyPublisher);
+        final byte[] secondAttempt = read(replayableBodyPublisher);
+        final byte[] thirdAttempt = read(replayableBodyPublisher);
+
+        // Then
+        assertArrayEquals(body, firstAttempt);
+        assertArrayEquals(body, secondAttempt);
+        assertArrayEquals(body, thirdAttempt);
+        assertTrue(replayableBodyPublisher.isReplayable());
+    }
+
+    @Test
+    void shouldNotReplayBodyLargerThanMaxBufferedSize() throws Exception {
+        // Given
+        final byte[] body = randomBytes(100_000);
+        final ReplayableBodyPublisher replayableBodyPublisher = ReplayableBodyPublisher.of(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(body)), 10_000);
+
+        // When
+        final byte[] firstAttempt = read(replayableBodyPublisher);
+
+        // Then the body is sent once and the next attempt fails instead of sending an empty body
+        assertArrayEquals(body, firstAttempt);
+        assertFalse(replayableBodyPublisher.isReplayable());
+        final ExecutionException executionException = assertThrows(ExecutionException.class, () -> read(replayableBodyPublisher));
+        assertThat(executionException.getCause(), instanceOf(IOException.class));
+    }
+
+    @Test
+    void shouldReplayMappedFile(@TempDir Path directory) throws Exception {
+        // Given
+        final byte[] body = randomBytes(40_000);
+        final Path file = Files.write(directory.resolve("body.bin"), body);
+
+        // When
+        final ReplayableBodyPublisher replayableBodyPublisher = ReplayableBodyPublisher.ofFile(file);
+
+        // Then
+        assertEquals(body.length, replayableBodyPublisher.contentLength());
+        assertArrayEquals(body, read(replayableBodyPublisher));
+        assertArrayEquals(body, read(replayableBodyPublisher));
+    }
+
+    @Test
+    void shouldReplayFileMappedInSeveralRegions(@TempDir Path directory) throws Exception {
+        // Given regions which are not a multiple of the chunk size
+        final byte[] body = randomBytes(100_000);
+        final Path file = Files.write(directory.resolve("body.bin"), body);
+
+        // When
+        final ReplayableBodyPublisher replayableBodyPublisher = ReplayableBodyPublisher.ofFile(file, 3L * ByteBufferPool.DEFAULT_BUFFER_SIZE + 100);
+
+        // Then
+        assertEquals(body.length, replayableBodyPublisher.contentLength());
+        assertArrayEquals(body, read(replayableBodyPublisher));
+        assertArrayEquals(body, read(replayableBodyPublisher));
+    }
+
+    @Test
+    void shouldGiveBackBuffersToPoolWhenReleased() throws Exception {
+        // Given
+        final ByteBufferPool byteBufferPool = new ByteBufferPool(1024, 100);
+        final ReplayableBodyPublisher replayableBodyPublisher = ReplayableBodyPublisher.of(HttpRequest.BodyPublishers.ofByteArray(randomBytes(10_000)), 20_000, byteBufferPool);
+        read(replayableBodyPublisher);
+        assertEquals(0, byteBufferPool.pooledCount());
+
+        // When
+        replayableBodyPublisher.release();
+
+        // Then
+        assertEquals(10, byteBufferPool.pooledCount());
+        assertFalse(replayableBodyPublisher.isReplayable());
+    }
+
+    private static byte[] read(HttpRequest.BodyPublisher bodyPublisher) throws InterruptedException, ExecutionException, TimeoutException {
+        final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        bodyPublisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                final byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                byteArrayOutputStream.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                body.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                body.complete(byteArrayOutputStream.toByteArray());
+            }
+        });
+        return body.get(5, TimeUnit.SECONDS);
+    }
+
+    private static byte[] randomBytes(int size) {
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestDeadlineTest {
+
+    private static final URI URI = java.net.URI.create("https://localhost");
+
+    @Test
+    void shouldNotStartWithoutBudget() {
+        assertNull(RequestDeadline.start(-1L));
+    }
+
+    @Test
+    void shouldShrinkTimeoutToRemainingTime() {
+        // Given
+        final RequestDeadline requestDeadline = RequestDeadline.start(TimeUnit.SECONDS.toNanos(1L));
+        final HttpRequest request = HttpRequest.newBuilder(URI).timeout(Duration.ofSeconds(10)).header("a", "b").build();
+
+        // When
+        final HttpRequest shrunk = requestDeadline.shrink(request);
+
+        // Then
+        assertThat(shrunk.timeout().orElseThrow(), lessThanOrEqualTo(Duration.ofSeconds(1)));
+        assertEquals(request.uri(), shrunk.uri());
+        assertEquals(request.method(), shrunk.method());
+        assertEquals(request.headers(), shrunk.headers());
+    }
+
+    @Test
+    void shouldKeepLowerRequestTimeout() {
+        // Given
+        final RequestDeadline requestDeadline = RequestDeadline.start(TimeUnit.SECONDS.toNanos(10L));
+        final HttpRequest request = HttpRequest.newBuilder(URI).timeout(Duration.ofMillis(100)).build();
+
+        // When
+        final Optional<Duration> timeout = requestDeadline.shrink(request).timeout();
+
+        // Then
+        assertEquals(Optional.of(Duration.ofMillis(100)), timeout);
+    }
+
+    @Test
+    void shouldFailWithoutSendingWhenExceeded() {
+        // Given
+        final RequestDeadline requestDeadline = RequestDeadline.start(0L);
+        final AtomicInteger sent = new AtomicInteger();
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseFuture = requestDeadline.send(HttpRequest.newBuilder(URI).build(), request -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        // Then
+        final ExecutionException executionException = assertThrows(ExecutionException.class, httpResponseFuture::get);
+        assertThat(executionException.getCause(), instanceOf(RequestDeadline.DeadlineExceededException.class));
+        assertEquals(0, sent.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldBoundNeverCompletingFuture() {
+        // Given
+        final RequestDeadline requestDeadline = RequestDeadline.start(TimeUnit.MILLISECONDS.toNanos(50L));
+        final CompletableFuture<HttpResponse<Void>> neverCompleting = new CompletableFuture<>();
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> bounded = requestDeadline.bound(HttpRequest.newBuilder(URI).build(), neverCompleting, TimingWheelScheduler.shared());
+
+        // Then
+        final ExecutionException executionException = assertThrows(ExecutionException.class, () -> bounded.get(5, TimeUnit.SECONDS));
+        assertThat(executionException.getCause(), instanceOf(RequestDeadline.DeadlineExceededException.class));
+        assertThrows(CancellationException.class, () -> neverCompleting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldCancelTheDeadlineTimerWhenTheResponseIsReceived() {
+        // Given
+        final ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        try {
+            final RequestDeadline requestDeadline = RequestDeadline.start(TimeUnit.MINUTES.toNanos(10L));
+            final CompletableFuture<HttpResponse<Void>> httpResponseFuture = new CompletableFuture<>();
+            @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+            final CompletableFuture<HttpResponse<Void>> bounded = requestDeadline.bound(HttpRequest.newBuilder(URI).build(), httpResponseFuture, scheduledExecutorService);
+            final int pendingTimers = scheduledExecutorService.getQueue().size();
+
+            // When
+            httpResponseFuture.complete(httpResponse);
+
+            // Then
+            assertSame(httpResponse, bounded.join());
+            assertEquals(1, pendingTimers);
+            assertEquals(0, scheduledExecutorService.getQueue().size());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldCancelTheRequestWhenTheBoundedFutureIsCancelled() {
+        // Given
+        final RequestDeadline requestDeadline = RequestDeadline.start(TimeUnit.MINUTES.toNanos(10L));
+        final CompletableFuture<HttpResponse<Void>> httpResponseFuture = new CompletableFuture<>();
+        final CompletableFuture<HttpResponse<Void>> bounded = requestDeadline.bound(HttpRequest.newBuilder(URI).build(), httpResponseFuture, TimingWheelScheduler.shared());
+
+        // When
+        bounded.cancel(true);
+
+        // Then
+        assertTrue(httpResponseFuture.isCancelled());
+    }
+
+    @Test
+    @Timeout(10)
+    void resilientClientShouldFailAsyncRequestAtDeadline() throws UnknownHostException {
+        // Given
+        final HttpClient hangingHttpClient = mock(HttpClient.class);
+        when(hangingHttpClient.sendAsync(any(), any())).thenReturn(new CompletableFuture<>());
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(hangingHttpClient)));
+        final HttpClient resilientClient = new ResilientClient(() -> roundRobinPool).withRequestDeadline(Duration.ofMillis(50));
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseFuture = resilientClient.sendAsync(HttpRequest.newBuilder(URI).build(), HttpResponse.BodyHandlers.discarding());
+
+        // Then
+        final ExecutionException executionException = assertThrows(ExecutionException.class, () -> httpResponseFuture.get(5, TimeUnit.SECONDS));
+        assertThat(executionException.getCause(), instanceOf(RequestDeadline.DeadlineExceededException.class));
+    }
+
+    @Test
+    void resilientClientShouldSendShrunkRequest() throws IOException, InterruptedException {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Object> httpResponse = mock(HttpResponse.class);
+        when(httpClient.send(any(), any())).thenAnswer(invocation -> {
+            final HttpRequest request = invocation.getArgument(0);
+            return request.timeout().filter(timeout -> timeout.compareTo(Duration.ofSeconds(1)) <= 0).isPresent() ? httpResponse : null;
+        });
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(httpClient)));
+        final HttpClient resilientClient = new ResilientClient(() -> roundRobinPool).withRequestDeadline(Duration.ofSeconds(1));
+
+        // When
+        final HttpResponse<Void> response = resilientClient.send(HttpRequest.newBuilder(URI).timeout(Duration.ofMinutes(1)).build(), HttpResponse.BodyHandlers.discarding());
+
+        // Then
+        assertSame(httpResponse, response);
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(HttpClient httpClient) throws UnknownHostException {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
+        when(singleIpHttpClient.getHttpClient()).thenReturn(httpClient);
+        when(singleIpHttpClient.getInetAddress()).thenReturn(InetAddress.getByAddress(new byte[]{10, 0, 0, 1}));
+        return singleIpHttpClient;
+    }
+}
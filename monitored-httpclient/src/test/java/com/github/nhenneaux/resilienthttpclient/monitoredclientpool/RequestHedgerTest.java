@@ -0,0 +1,262 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestHedgerTest {
+
+    @Test
+    @Timeout(10)
+    void shouldSendHedgedRequestToAnotherClientAndCancelTheSlowOne() throws Exception {
+        // Given
+        final HttpClient slowHttpClient = mock(HttpClient.class);
+        final HttpClient fastHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient slow = singleIpHttpClient(slowHttpClient, 1);
+        final SingleIpHttpClient fast = singleIpHttpClient(fastHttpClient, 2);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(slow, fast));
+        final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.fixedDelay(Duration.ofMillis(10), 100));
+
+        final CompletableFuture<HttpResponse<Void>> slowResponse = new CompletableFuture<>();
+        @SuppressWarnings("unchecked") final HttpResponse<Void> fastResponse = mock(HttpResponse.class);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> httpClient == slowHttpClient ? slowResponse : CompletableFuture.completedFuture(fastResponse);
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = sendFirstTo(requestHedger, send, roundRobinPool, slow);
+
+        // Then
+        assertSame(fastResponse, httpResponseCompletableFuture.get(5, TimeUnit.SECONDS));
+        // The slow request is cancelled right after the response is completed
+        assertThrows(CancellationException.class, () -> slowResponse.get(5, TimeUnit.SECONDS));
+        verify(slow, never()).incrementFailureCount();
+    }
+
+    @Test
+    void shouldNotHedgeFastRequest() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        final SingleIpHttpClient first = singleIpHttpClient(httpClient, 1);
+        final SingleIpHttpClient second = singleIpHttpClient(mock(HttpClient.class), 2);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(first, second));
+        final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.fixedDelay(Duration.ofSeconds(10), 100));
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        final AtomicInteger sent = new AtomicInteger();
+
+        // When
+        final HttpResponse<Void> response = requestHedger.<Void>send(client -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(httpResponse);
+        }, roundRobinPool).join();
+
+        // Then
+        assertSame(httpResponse, response);
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    void shouldCancelHedgeTimerOnceResponded() {
+        // Given
+        final ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        try {
+            final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(mock(HttpClient.class), 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+            final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.fixedDelay(Duration.ofMinutes(10), 100), scheduledExecutorService);
+            final CompletableFuture<HttpResponse<Void>> pendingResponse = new CompletableFuture<>();
+            final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = requestHedger.send(client -> pendingResponse, roundRobinPool);
+            assertEquals(1, scheduledExecutorService.getQueue().size());
+
+            // When
+            @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+            pendingResponse.complete(httpResponse);
+
+            // Then
+            assertSame(httpResponse, httpResponseCompletableFuture.join());
+            assertTrue(scheduledExecutorService.getQueue().isEmpty());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldNotHedgeWhenBudgetIsExhausted() throws Exception {
+        // Given
+        final SingleIpHttpClient first = singleIpHttpClient(mock(HttpClient.class), 1);
+        final SingleIpHttpClient second = singleIpHttpClient(mock(HttpClient.class), 2);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(first, second));
+        final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.fixedDelay(Duration.ZERO, 1));
+        final AtomicInteger sent = new AtomicInteger();
+        final CountDownLatch allSent = new CountDownLatch(2 * RequestHedger.MAX_HEDGED_BURST);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> neverAnswering = client -> {
+            sent.incrementAndGet();
+            allSent.countDown();
+            return new CompletableFuture<>();
+        };
+
+        // When
+        for (int i = 0; i < 2 * RequestHedger.MAX_HEDGED_BURST; i++) {
+            requestHedger.send(neverAnswering, roundRobinPool);
+        }
+        assertTrue(allSent.await(5, TimeUnit.SECONDS));
+        // Let the hedged requests be sent
+        Thread.sleep(200L);
+
+        // Then only the burst is hedged, the budget earned by 20 requests at 1% is not a full token
+        assertEquals(2 * RequestHedger.MAX_HEDGED_BURST + RequestHedger.MAX_HEDGED_BURST, sent.get());
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldFailWhenAllAttemptsFail() {
+        // Given
+        final SingleIpHttpClient first = singleIpHttpClient(mock(HttpClient.class), 1);
+        final SingleIpHttpClient second = singleIpHttpClient(mock(HttpClient.class), 2);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(first, second));
+        final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.fixedDelay(Duration.ZERO, 100));
+        final IllegalStateException expected = new IllegalStateException();
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = requestHedger.send(client -> CompletableFuture.failedFuture(expected), roundRobinPool);
+
+        // Then
+        final Exception exception = assertThrows(Exception.class, httpResponseCompletableFuture::join);
+        assertSame(expected, exception.getCause());
+    }
+
+    @Test
+    void shouldHedgeOnlyGetRequests() {
+        assertTrue(RequestHedger.isHedgeable(HttpRequest.newBuilder(URI.create("https://localhost")).GET().build()));
+        assertFalse(RequestHedger.isHedgeable(HttpRequest.newBuilder(URI.create("https://localhost")).POST(HttpRequest.BodyPublishers.noBody()).build()));
+    }
+
+    @Test
+    void shouldUseInitialDelayUntilPercentileIsKnown() {
+        // Given
+        final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.percentileDelay(95, Duration.ofMillis(50), 10));
+
+        // When
+        final long hedgeDelayInNanoseconds = requestHedger.hedgeDelayInNanoseconds();
+
+        // Then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), hedgeDelayInNanoseconds);
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldKeepPercentileDelayStableWithConstantLatency() {
+        // Given a backend answering in 20 ms and a hedge sent after 5 ms until the percentile is known
+        final long latencyInMilliseconds = 20L;
+        final ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        try {
+            final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(mock(HttpClient.class), 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+            final RequestHedger requestHedger = new RequestHedger(HedgingPolicy.percentileDelay(95, Duration.ofMillis(5), 100), scheduledExecutorService);
+            @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+            final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> constantLatency = client -> {
+                final CompletableFuture<HttpResponse<Void>> response = new CompletableFuture<>();
+                final Runnable respond = () -> response.complete(httpResponse);
+                scheduledExecutorService.schedule(respond, latencyInMilliseconds, TimeUnit.MILLISECONDS);
+                return response;
+            };
+
+            // When
+            final List<Long> hedgeDelays = new ArrayList<>();
+            for (int i = 0; i < 3 * ResponseTimePercentile.MIN_SAMPLES; i++) {
+                requestHedger.send(constantLatency, roundRobinPool).join();
+                if (i >= ResponseTimePercentile.MIN_SAMPLES) {
+                    hedgeDelays.add(requestHedger.hedgeDelayInNanoseconds());
+                }
+            }
+
+            // Then the delay is the latency of the backend, the hedged requests do not pull it down
+            for (Long hedgeDelay : hedgeDelays) {
+                assertThat(hedgeDelay, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(latencyInMilliseconds)));
+            }
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void percentileShouldReturnTheObservedPercentile() {
+        // Given
+        final ResponseTimePercentile responseTimePercentile = new ResponseTimePercentile(95);
+
+        // When
+        for (int i = 1; i <= 100; i++) {
+            responseTimePercentile.observe(i);
+        }
+
+        // Then
+        assertEquals(95L, responseTimePercentile.get());
+    }
+
+    @Test
+    void tokenBucketShouldBeRefilledByRequests() {
+        // Given
+        final TokenBucket tokenBucket = new TokenBucket(50, 1);
+        assertTrue(tokenBucket.tryWithdraw());
+        assertFalse(tokenBucket.tryWithdraw());
+
+        // When
+        tokenBucket.deposit();
+        tokenBucket.deposit();
+
+        // Then
+        assertTrue(tokenBucket.tryWithdraw());
+        assertFalse(tokenBucket.tryWithdraw());
+    }
+
+    @Test
+    void shouldRejectInvalidBudget() {
+        final Duration delay = Duration.ofMillis(10);
+        assertThrows(IllegalArgumentException.class, () -> HedgingPolicy.fixedDelay(delay, 0));
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> sendFirstTo(RequestHedger requestHedger, Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool, SingleIpHttpClient first) {
+        // Move the round-robin of the calling thread so that the next client is the given one
+        while (roundRobinPool.next().orElseThrow() == first) {
+            // Skip the given client
+        }
+        return requestHedger.send(send, roundRobinPool);
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(HttpClient httpClient, int lastByte) {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
+        when(singleIpHttpClient.getHttpClient()).thenReturn(httpClient);
+        try {
+            when(singleIpHttpClient.getInetAddress()).thenReturn(InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) lastByte}));
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+        return singleIpHttpClient;
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestRetrierTest {
+
+    @Test
+    void shouldRetryRetryableStatusOnAnotherClient() {
+        // Given
+        final HttpClient drainingHttpClient = mock(HttpClient.class);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(drainingHttpClient, 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+        final HttpResponse<Void> serviceUnavailable = httpResponse(503);
+        final HttpResponse<Void> ok = httpResponse(200);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> CompletableFuture.completedFuture(httpClient == drainingHttpClient ? serviceUnavailable : ok);
+        final RequestRetrier requestRetrier = new RequestRetrier(RetryPolicy.of(1, 100));
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            // Then whatever the first client
+            assertSame(ok, send(requestRetrier, send, roundRobinPool).join());
+        }
+    }
+
+    @Test
+    void shouldRetryIoExceptionOnAnotherClient() {
+        // Given
+        final HttpClient resetHttpClient = mock(HttpClient.class);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(resetHttpClient, 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+        final HttpResponse<Void> ok = httpResponse(200);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> httpClient == resetHttpClient
+                ? CompletableFuture.failedFuture(new CompletionException(new IOException("GOAWAY received")))
+                : CompletableFuture.completedFuture(ok);
+        final RequestRetrier requestRetrier = new RequestRetrier(RetryPolicy.of(1, 100));
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            // Then
+            assertSame(ok, send(requestRetrier, send, roundRobinPool).join());
+        }
+    }
+
+    @Test
+    void shouldStopAfterMaxRetries() {
+        // Given
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(
+                singleIpHttpClient(mock(HttpClient.class), 1),
+                singleIpHttpClient(mock(HttpClient.class), 2),
+                singleIpHttpClient(mock(HttpClient.class), 3)
+        ));
+        final HttpResponse<Void> badGateway = httpResponse(502);
+        final AtomicInteger sent = new AtomicInteger();
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(badGateway);
+        };
+
+        // When
+        final HttpResponse<Void> httpResponse = send(new RequestRetrier(RetryPolicy.of(1, 100)), send, roundRobinPool).join();
+
+        // Then the last response is given back
+        assertSame(badGateway, httpResponse);
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    void shouldStopRetryingWhenBudgetIsExhausted() {
+        // Given
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(mock(HttpClient.class), 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+        final AtomicInteger sent = new AtomicInteger();
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> {
+            sent.incrementAndGet();
+            return CompletableFuture.failedFuture(new CompletionException(new IOException("Connection reset")));
+        };
+        final RequestRetrier requestRetrier = new RequestRetrier(RetryPolicy.of(1, 1));
+        final int requests = 2 * RequestRetrier.MAX_RETRY_BURST;
+
+        // When
+        for (int i = 0; i < requests; i++) {
+            final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = send(requestRetrier, send, roundRobinPool);
+            assertThrows(CompletionException.class, httpResponseCompletableFuture::join);
+        }
+
+        // Then only the burst is retried, the budget earned by the requests at 1% is not a full retry
+        assertEquals(requests + RequestRetrier.MAX_RETRY_BURST, sent.get());
+    }
+
+    @Test
+    void shouldNotRetryNonRetryableStatus() {
+        // Given
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(mock(HttpClient.class), 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+        final HttpResponse<Void> internalServerError = httpResponse(500);
+        final AtomicInteger sent = new AtomicInteger();
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(internalServerError);
+        };
+
+        // When
+        final HttpResponse<Void> httpResponse = send(new RequestRetrier(RetryPolicy.of(3, 100)), send, roundRobinPool).join();
+
+        // Then
+        assertSame(internalServerError, httpResponse);
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    void shouldNotRetryWhenBodyCannotBeReplayed() {
+        // Given
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(mock(HttpClient.class), 1), singleIpHttpClient(mock(HttpClient.class), 2)));
+        final HttpResponse<Void> serviceUnavailable = httpResponse(503);
+        final AtomicInteger sent = new AtomicInteger();
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(serviceUnavailable);
+        };
+
+        // When
+        final HttpResponse<Void> httpResponse = new RequestRetrier(RetryPolicy.of(3, 100)).send(send, roundRobinPool, trackedSend -> ResilientClient.handleConnectTimeout(trackedSend, roundRobinPool), null, () -> false).join();
+
+        // Then
+        assertSame(serviceUnavailable, httpResponse);
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    void shouldRetryOnlyIdempotentRequests() {
+        final RetryPolicy retryPolicy = RetryPolicy.of(1, 10);
+        final URI uri = URI.create("https://localhost");
+        assertTrue(retryPolicy.isIdempotent(HttpRequest.newBuilder(uri).GET().build()));
+        assertTrue(retryPolicy.isIdempotent(HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.noBody()).build()));
+        assertFalse(retryPolicy.isIdempotent(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build()));
+        assertTrue(retryPolicy.isIdempotent(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).header(RetryPolicy.IDEMPOTENCY_KEY_HEADER, "8e03978e").build()));
+        assertTrue(retryPolicy.withIdempotentMethods(Set.of("post")).isIdempotent(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build()));
+    }
+
+    @Test
+    void resilientClientShouldNotRetryNonIdempotentRequest() throws IOException, InterruptedException {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        final HttpResponse<Void> serviceUnavailable = httpResponse(503);
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("https://localhost")).POST(HttpRequest.BodyPublishers.noBody()).build();
+        final HttpResponse.BodyHandler<Void> bodyHandler = HttpResponse.BodyHandlers.discarding();
+        when(httpClient.send(request, bodyHandler)).thenReturn(serviceUnavailable);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(httpClient, 1), singleIpHttpClient(httpClient, 2)));
+        final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool, null, null, new RequestRetrier(RetryPolicy.of(1, 100)), -1L);
+
+        // When
+        final HttpResponse<Void> httpResponse = resilientClient.send(request, bodyHandler);
+
+        // Then
+        assertSame(serviceUnavailable, httpResponse);
+    }
+
+    @Test
+    void resilientClientShouldRetryIdempotentRequest() throws IOException, InterruptedException {
+        // Given
+        final HttpClient drainingHttpClient = mock(HttpClient.class);
+        final HttpClient httpClient = mock(HttpClient.class);
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("https://localhost")).GET().build();
+        final HttpResponse.BodyHandler<Void> bodyHandler = HttpResponse.BodyHandlers.discarding();
+        final HttpResponse<Void> gatewayTimeout = httpResponse(504);
+        final HttpResponse<Void> ok = httpResponse(200);
+        when(drainingHttpClient.sendAsync(request, bodyHandler)).thenReturn(CompletableFuture.completedFuture(gatewayTimeout));
+        when(httpClient.sendAsync(request, bodyHandler)).thenReturn(CompletableFuture.completedFuture(ok));
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(singleIpHttpClient(drainingHttpClient, 1), singleIpHttpClient(httpClient, 2)));
+        final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool, null, null, new RequestRetrier(RetryPolicy.of(1, 100)), -1L);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            // Then
+            assertSame(ok, resilientClient.send(request, bodyHandler));
+        }
+    }
+
+    private static <T> CompletableFuture<HttpResponse<T>> send(RequestRetrier requestRetrier, Function<HttpClient, CompletableFuture<HttpResponse<T>>> send, RoundRobinPool roundRobinPool) {
+        return requestRetrier.send(send, roundRobinPool, trackedSend -> ResilientClient.handleConnectTimeout(trackedSend, roundRobinPool), null, () -> true);
+    }
+
+    private static HttpResponse<Void> httpResponse(int statusCode) {
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(statusCode);
+        return httpResponse;
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(HttpClient httpClient, int lastByte) {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
+        when(singleIpHttpClient.getHttpClient()).thenReturn(httpClient);
+        try {
+            when(singleIpHttpClient.getInetAddress()).thenReturn(InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) lastByte}));
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+        return singleIpHttpClient;
+    }
+}
@@ -3,10 +3,13 @@ package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.ArgumentMatchers;
 
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -22,16 +25,26 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -60,6 +73,7 @@ class ResilientClientTest {
         final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(ipHttpClient);
         when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
         when(roundRobinPool.getList()).thenReturn(List.of(ipHttpClient));
+        when(roundRobinPool.failoverCount()).thenReturn(1);
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit")).build();
@@ -69,9 +83,14 @@ class ResilientClientTest {
         final HttpConnectTimeoutException httpConnectTimeoutException = assertThrows(HttpConnectTimeoutException.class, () -> resilientClient.send(httpRequest, bodyHandler));
 
         // Then
-        assertEquals("Cannot connect to the HTTP server, tried to connect to the following IP [" + hostAddress + "] to send the HTTP request https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit GET", httpConnectTimeoutException.getMessage());
+        assertEquals("Cannot connect to the HTTP server, tried to connect to the following IP [" + ipHttpClient.getSocketAddress() + "] to send the HTTP request https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit GET", httpConnectTimeoutException.getMessage());
         verify(ipHttpClient, times(0)).refreshFailureCountWithStatusCode(anyInt());
         verify(ipHttpClient).incrementFailureCount();
+        verify(ipHttpClient).requestStarted();
+        verify(ipHttpClient, never()).requestCompleted(anyLong());
+        verify(ipHttpClient).requestFailed();
+        assertEquals(0, ipHttpClient.getInFlightRequests());
+        assertEquals(0D, ipHttpClient.getResponseTimeEwmaInNanoseconds());
     }
 
     private static InetAddress getInetAddress() {
@@ -96,6 +115,7 @@ class ResilientClientTest {
         final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(ipHttpClient);
         when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
         when(roundRobinPool.getList()).thenReturn(List.of(ipHttpClient));
+        when(roundRobinPool.failoverCount()).thenReturn(1);
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit")).build();
@@ -112,6 +132,30 @@ class ResilientClientTest {
         assertSame(httpResponse, httpResponseCompletableFuture.get());
         verify(ipHttpClient, times(1)).refreshFailureCountWithStatusCode(0);
         verify(ipHttpClient, times(1)).incrementFailureCount();
+        verify(ipHttpClient).requestStarted();
+        verify(ipHttpClient).requestCompleted(anyLong());
+        assertEquals(0, ipHttpClient.getInFlightRequests());
+    }
+
+    @Test
+    void shouldNotObserveResponseTimeOfFailedAsyncRequest() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        final SingleIpHttpClient ipHttpClient = spy(new SingleIpHttpClient(httpClient, getInetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
+        doNothing().when(ipHttpClient).checkHealthStatus();
+        when(ipHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
+        final RuntimeException expected = new RuntimeException();
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = ResilientClient.handleConnectTimeout(httpclient -> CompletableFuture.failedFuture(expected), new RoundRobinPool(List.of(ipHttpClient)));
+
+        // Then
+        final CompletionException completionException = assertThrows(CompletionException.class, httpResponseCompletableFuture::join);
+        assertSame(expected, completionException.getCause());
+        verify(ipHttpClient).requestFailed();
+        verify(ipHttpClient, never()).requestCompleted(anyLong());
+        assertEquals(0, ipHttpClient.getInFlightRequests());
+        assertEquals(0D, ipHttpClient.getResponseTimeEwmaInNanoseconds());
     }
 
     @Test
@@ -154,6 +198,7 @@ class ResilientClientTest {
         final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(ipHttpClient);
         when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
         when(roundRobinPool.getList()).thenReturn(List.of(ipHttpClient));
+        when(roundRobinPool.failoverCount()).thenReturn(1);
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit")).build();
@@ -179,11 +224,11 @@ class ResilientClientTest {
     void cookieHandler() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.cookieHandler();
         verify(httpClient).cookieHandler();
+        verify(roundRobinPool, never()).next();
     }
 
     private InetAddress inetAddress() {
@@ -198,46 +243,46 @@ class ResilientClientTest {
     void connectTimeout() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.connectTimeout();
         verify(httpClient).connectTimeout();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void followRedirects() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.followRedirects();
         verify(httpClient).followRedirects();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void proxy() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.proxy();
         verify(httpClient).proxy();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void sslContext() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.sslContext();
         verify(httpClient).sslContext();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
@@ -257,6 +302,179 @@ class ResilientClientTest {
         verify(singleIpHttpClient).incrementFailureCount();
     }
 
+    @Test
+    @Timeout(10)
+    void shouldFailoverWithoutBlockingTheCompletingThread() throws Exception {
+        // Given
+        final HttpClient blackHoledHttpClient = mock(HttpClient.class);
+        final HttpClient slowHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient blackHoled = singleIpHttpClientHealthyMock();
+        when(blackHoled.getHttpClient()).thenReturn(blackHoledHttpClient);
+        when(blackHoled.getInetAddress()).thenReturn(getInetAddress());
+        when(blackHoled.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 8443));
+        final SingleIpHttpClient slow = singleIpHttpClientHealthyMock();
+        when(slow.getHttpClient()).thenReturn(slowHttpClient);
+        when(slow.getInetAddress()).thenReturn(inetAddress());
+        when(slow.getSocketAddress()).thenReturn(new InetSocketAddress(inetAddress(), 443));
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(blackHoled, slow));
+
+        // A single thread completes the attempts, as the executor of the underlying HTTP client would do
+        final ExecutorService httpClientExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final CompletableFuture<HttpResponse<Void>> connectFailure = new CompletableFuture<>();
+            final CompletableFuture<HttpResponse<Void>> slowResponse = new CompletableFuture<>();
+            final CountDownLatch failoverStarted = new CountDownLatch(1);
+            final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> {
+                if (httpClient == blackHoledHttpClient) {
+                    return connectFailure;
+                }
+                failoverStarted.countDown();
+                return slowResponse;
+            };
+
+            // When
+            final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = ResilientClient.handleConnectTimeout(send, roundRobinPool);
+            httpClientExecutor.execute(() -> connectFailure.completeExceptionally(new CompletionException(new ConnectException())));
+            assertTrue(failoverStarted.await(5, TimeUnit.SECONDS));
+
+            // Then the thread which completed the failed attempt is available while the next attempt is pending
+            assertTrue(httpClientExecutor.submit(() -> Boolean.TRUE).get(1, TimeUnit.SECONDS));
+            assertFalse(httpResponseCompletableFuture.isDone());
+
+            @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+            slowResponse.complete(httpResponse);
+            assertSame(httpResponse, httpResponseCompletableFuture.get(5, TimeUnit.SECONDS));
+        } finally {
+            httpClientExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldFailoverToAnotherPortOfTheSameAddress() {
+        // Given two SRV endpoints on the same IP with different ports
+        final HttpClient refusingHttpClient = mock(HttpClient.class);
+        final HttpClient acceptingHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient refusing = singleIpHttpClientHealthyMock();
+        when(refusing.getHttpClient()).thenReturn(refusingHttpClient);
+        when(refusing.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 8443));
+        final SingleIpHttpClient accepting = singleIpHttpClientHealthyMock();
+        when(accepting.getHttpClient()).thenReturn(acceptingHttpClient);
+        when(accepting.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 9443));
+        // The strategy keeps selecting the refusing endpoint
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(refusing, accepting), healthyClients -> 0);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> httpClient == refusingHttpClient ?
+                CompletableFuture.failedFuture(new CompletionException(new ConnectException())) :
+                CompletableFuture.completedFuture(httpResponse);
+
+        // When
+        final CompletableFuture<HttpResponse<Void>> httpResponseCompletableFuture = ResilientClient.handleConnectTimeout(send, roundRobinPool);
+
+        // Then
+        assertSame(httpResponse, httpResponseCompletableFuture.join());
+        verify(refusing).connectionFailed();
+        verify(accepting, never()).connectionFailed();
+    }
+
+    @Test
+    void shouldEjectTheClientSheddingLoadWhenFailingOver() {
+        // Given
+        final HttpClient refusingHttpClient = mock(HttpClient.class);
+        final HttpClient sheddingHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient refusing = singleIpHttpClientHealthyMock();
+        when(refusing.getHttpClient()).thenReturn(refusingHttpClient);
+        when(refusing.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 8443));
+        final SingleIpHttpClient shedding = singleIpHttpClientHealthyMock();
+        when(shedding.getHttpClient()).thenReturn(sheddingHttpClient);
+        when(shedding.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 9443));
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(refusing, shedding), healthyClients -> 0);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(503);
+        final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> httpClient == refusingHttpClient ?
+                CompletableFuture.failedFuture(new CompletionException(new ConnectException())) :
+                CompletableFuture.completedFuture(httpResponse);
+
+        // When
+        final HttpResponse<Void> response = ResilientClient.handleConnectTimeout(send, roundRobinPool).join();
+
+        // Then
+        assertSame(httpResponse, response);
+        verify(shedding).refreshLoadShedding(httpResponse);
+        verify(refusing, never()).refreshLoadShedding(any());
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldRecordTheConnectionFailuresAgainstTheRefusingClientWhenFailingOver() {
+        // Given
+        final HttpClient refusingHttpClient = mock(HttpClient.class);
+        final HttpClient acceptingHttpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(200);
+        // The health check of the refusing client succeeds, it is in rotation until its traffic fails
+        when(refusingHttpClient.sendAsync(any(HttpRequest.class), ArgumentMatchers.<HttpResponse.BodyHandler<Void>>any())).thenReturn(CompletableFuture.completedFuture(httpResponse)).thenReturn(new CompletableFuture<>());
+        try (final SingleIpHttpClient refusing = spy(new SingleIpHttpClient(refusingHttpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost")))) {
+            assertTrue(refusing.isHealthy());
+            final SingleIpHttpClient accepting = singleIpHttpClientHealthyMock();
+            when(accepting.getHttpClient()).thenReturn(acceptingHttpClient);
+            when(accepting.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 8443));
+            // The strategy keeps selecting the refusing client
+            final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(refusing, accepting), healthyClients -> 0);
+            final Function<HttpClient, CompletableFuture<HttpResponse<Void>>> send = httpClient -> httpClient == refusingHttpClient ?
+                    CompletableFuture.failedFuture(new CompletionException(new ConnectException())) :
+                    CompletableFuture.completedFuture(httpResponse);
+
+            // When
+            final boolean healthyBeforeThreshold = refusing.isHealthy();
+            for (int i = 0; i < SingleIpHttpClient.PASSIVE_FAILURE_THRESHOLD; i++) {
+                assertSame(httpResponse, ResilientClient.handleConnectTimeout(send, roundRobinPool).join());
+            }
+
+            // Then
+            assertTrue(healthyBeforeThreshold);
+            verify(refusing, never()).trafficResponded(anyInt());
+            verify(refusing, never()).refreshFailureCountWithStatusCode(anyInt());
+            verify(refusing, times(SingleIpHttpClient.PASSIVE_FAILURE_THRESHOLD)).trafficFailed();
+            verify(accepting, times(SingleIpHttpClient.PASSIVE_FAILURE_THRESHOLD)).trafficResponded(200);
+            assertFalse(refusing.isHealthy());
+        }
+    }
+
+    @Test
+    void shouldFailoverToTheNextPriorityTierWhenThePreferredOneRefusesConnections() throws IOException, InterruptedException {
+        // Given
+        final HttpClient primaryHttpClient = mock(HttpClient.class);
+        final HttpClient backupHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient primary = singleIpHttpClientHealthyMock();
+        when(primary.getHttpClient()).thenReturn(primaryHttpClient);
+        when(primary.getSocketAddress()).thenReturn(new InetSocketAddress(getInetAddress(), 8443));
+        when(primary.getPriority()).thenReturn(10);
+        final SingleIpHttpClient backup = singleIpHttpClientHealthyMock();
+        when(backup.getHttpClient()).thenReturn(backupHttpClient);
+        when(backup.getSocketAddress()).thenReturn(new InetSocketAddress(inetAddress(), 8443));
+        when(backup.getPriority()).thenReturn(20);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(backup, primary));
+        assertEquals(List.of(primary), roundRobinPool.healthyItems());
+        final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.ResilientClientTest.junit")).build();
+        final HttpResponse.BodyHandler<Void> bodyHandler = HttpResponse.BodyHandlers.discarding();
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(primaryHttpClient.send(httpRequest, bodyHandler)).thenThrow(new ConnectException());
+        when(primaryHttpClient.sendAsync(httpRequest, bodyHandler)).thenReturn(CompletableFuture.failedFuture(new CompletionException(new ConnectException())));
+        when(backupHttpClient.send(httpRequest, bodyHandler)).thenReturn(httpResponse);
+        when(backupHttpClient.sendAsync(httpRequest, bodyHandler)).thenReturn(CompletableFuture.completedFuture(httpResponse));
+        final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
+
+        // When
+        final HttpResponse<Void> syncResponse = resilientClient.send(httpRequest, bodyHandler);
+        final HttpResponse<Void> asyncResponse = resilientClient.sendAsync(httpRequest, bodyHandler).join();
+
+        // Then
+        assertSame(httpResponse, syncResponse);
+        assertSame(httpResponse, asyncResponse);
+        verify(primary, times(2)).connectionFailed();
+    }
+
     private SingleIpHttpClient singleIpHttpClientHealthyMock() {
         final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
         when(singleIpHttpClient.isHealthy()).thenReturn(Boolean.TRUE);
@@ -299,61 +517,68 @@ class ResilientClientTest {
     void sslParameters() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.sslParameters();
         verify(httpClient).sslParameters();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void authenticator() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.authenticator();
         verify(httpClient).authenticator();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void version() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.version();
         verify(httpClient).version();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
     void executor() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.executor();
         verify(httpClient).executor();
+        verify(roundRobinPool, never()).next();
     }
 
 
+    @Test
+    void shouldThrowWhenReadingConfigurationOfEmptyPool() {
+        final ResilientClient resilientClient = new ResilientClient(() -> RoundRobinPool.EMPTY);
+        final IllegalStateException illegalStateException = assertThrows(IllegalStateException.class, resilientClient::version);
+        assertEquals("There is no connection in the pool to read the client configuration", illegalStateException.getMessage());
+    }
+
     @Test
     void newWebSocketBuilder() {
         final HttpClient httpClient = mock(HttpClient.class);
         final RoundRobinPool roundRobinPool = mock(RoundRobinPool.class);
-        final Optional<SingleIpHttpClient> singleIpHttpClient = Optional.of(new SingleIpHttpClient(httpClient, inetAddress(), new ServerConfiguration(UUID.randomUUID().toString())));
-        when(roundRobinPool.next()).thenReturn(singleIpHttpClient);
+        when(roundRobinPool.getMetadataClient()).thenReturn(Optional.of(httpClient));
 
         final ResilientClient resilientClient = new ResilientClient(() -> roundRobinPool);
         resilientClient.newWebSocketBuilder();
         verify(httpClient).newWebSocketBuilder();
+        verify(roundRobinPool, never()).next();
     }
 
     @Test
@@ -0,0 +1,33 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryAfterTest {
+
+    private static final Instant NOW = Instant.parse("2015-10-21T07:28:00Z");
+
+    @Test
+    void shouldParseSeconds() {
+        assertEquals(Optional.of(Duration.ofSeconds(120)), RetryAfter.parse("120", NOW));
+    }
+
+    @Test
+    void shouldParseHttpDate() {
+        assertEquals(Optional.of(Duration.ofSeconds(30)), RetryAfter.parse("Wed, 21 Oct 2015 07:28:30 GMT", NOW));
+        assertEquals(Optional.of(Duration.ZERO), RetryAfter.parse("Wed, 21 Oct 2015 07:27:00 GMT", NOW));
+    }
+
+    @Test
+    void shouldIgnoreInvalidValue() {
+        assertEquals(Optional.empty(), RetryAfter.parse("", NOW));
+        assertEquals(Optional.empty(), RetryAfter.parse("-1", NOW));
+        assertEquals(Optional.empty(), RetryAfter.parse("soon", NOW));
+        assertEquals(Optional.empty(), RetryAfter.parse("99999999999999999999999", NOW));
+    }
+}
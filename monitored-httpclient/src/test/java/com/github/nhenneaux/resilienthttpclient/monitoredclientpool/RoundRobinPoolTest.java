@@ -0,0 +1,220 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoundRobinPoolTest {
+    @SuppressWarnings("unchecked")
+    private static final Class<HttpResponse.BodyHandler<Void>> DISCARDING_BODY_HANDLER_CLASS = (Class<HttpResponse.BodyHandler<Void>>) HttpResponse.BodyHandlers.discarding().getClass();
+
+    @Test
+    void shouldRoundRobinOnHealthyClients() {
+        // Given
+        final SingleIpHttpClient first = singleIpHttpClient(1, 200);
+        final SingleIpHttpClient second = singleIpHttpClient(2, 200);
+        final SingleIpHttpClient unhealthy = singleIpHttpClient(3, 500);
+
+        // When
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(first, second, unhealthy));
+
+        // Then
+        assertEquals(2, roundRobinPool.healthyCount());
+        final Set<SingleIpHttpClient> selected = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            selected.add(roundRobinPool.next().orElseThrow());
+        }
+        assertThat(selected, containsInAnyOrder(first, second));
+    }
+
+    @Test
+    void shouldRepublishHealthyClientsOnHealthChange() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        final SingleIpHttpClient client = singleIpHttpClient(httpClient, 1, 500);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(client));
+        assertFalse(roundRobinPool.next().isPresent());
+
+        // When
+        mockStatusCode(httpClient, 200);
+        client.checkHealthStatus();
+
+        // Then
+        assertEquals(1, roundRobinPool.healthyCount());
+        assertSame(client, roundRobinPool.next().orElseThrow());
+        assertThat(client.getHealthyDurationInNanoseconds(), greaterThan(0L));
+
+        // When
+        mockStatusCode(httpClient, 500);
+        client.checkHealthStatus();
+
+        // Then
+        assertEquals(0, roundRobinPool.healthyCount());
+        assertEquals(Optional.empty(), roundRobinPool.next());
+        assertEquals(0L, client.getHealthyDurationInNanoseconds());
+    }
+
+    @Test
+    void shouldExposeMetadataClientEvenIfUnhealthy() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        final SingleIpHttpClient unhealthy = singleIpHttpClient(httpClient, 1, 500);
+
+        // When
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(unhealthy, singleIpHttpClient(2, 200)));
+
+        // Then
+        assertSame(httpClient, roundRobinPool.getMetadataClient().orElseThrow());
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldTakeLoadSheddingClientOutOfRotationUntilRetryAfter() throws InterruptedException {
+        // Given
+        final SingleIpHttpClient shedding = singleIpHttpClient(1, 200);
+        final SingleIpHttpClient other = singleIpHttpClient(2, 200);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(shedding, other));
+
+        // When
+        shedding.refreshLoadShedding(httpResponse(503, Map.of(RetryAfter.RETRY_AFTER_HEADER, List.of("1"))));
+
+        // Then
+        assertTrue(shedding.isEjected());
+        assertEquals(1, roundRobinPool.healthyCount());
+        for (int i = 0; i < 4; i++) {
+            assertSame(other, roundRobinPool.next().orElseThrow());
+        }
+        while (shedding.isEjected()) {
+            Thread.sleep(50L);
+        }
+        assertEquals(2, roundRobinPool.healthyCount());
+    }
+
+    @Test
+    void shouldKeepAllClientsInRotationWhenAllShedLoad() {
+        // Given
+        final SingleIpHttpClient first = singleIpHttpClient(1, 200);
+        final SingleIpHttpClient second = singleIpHttpClient(2, 200);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(first, second));
+
+        // When
+        first.refreshLoadShedding(httpResponse(429, Map.of()));
+        second.refreshLoadShedding(httpResponse(503, Map.of()));
+
+        // Then
+        assertTrue(first.isEjected());
+        assertTrue(second.isEjected());
+        assertEquals(2, roundRobinPool.healthyCount());
+    }
+
+    @Test
+    void shouldNotTakeClientOutOfRotationForOtherStatus() {
+        // Given
+        final SingleIpHttpClient client = singleIpHttpClient(1, 200);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(client, singleIpHttpClient(2, 200)));
+
+        // When
+        client.refreshLoadShedding(httpResponse(500, Map.of(RetryAfter.RETRY_AFTER_HEADER, List.of("10"))));
+
+        // Then
+        assertFalse(client.isEjected());
+        assertEquals(2, roundRobinPool.healthyCount());
+    }
+
+    @Test
+    void shouldOnlySelectPreferredPriorityTier() {
+        // Given
+        final HttpClient primaryHttpClient = mock(HttpClient.class);
+        final SingleIpHttpClient primary = singleIpHttpClient(primaryHttpClient, 1, 200);
+        final SingleIpHttpClient backup = singleIpHttpClient(2, 200);
+        primary.updateServiceRecord(10, 1);
+        backup.updateServiceRecord(20, 1);
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(backup, primary));
+        assertEquals(List.of(primary), roundRobinPool.healthyItems());
+
+        // When
+        mockStatusCode(primaryHttpClient, 500);
+        primary.checkHealthStatus();
+
+        // Then the backup tier takes over
+        assertEquals(List.of(backup), roundRobinPool.healthyItems());
+        assertSame(backup, roundRobinPool.next().orElseThrow());
+    }
+
+    @Test
+    void shouldFailOverToAllPriorityTiersByPreference() {
+        // Given
+        final SingleIpHttpClient primary = singleIpHttpClient(1, 200);
+        final SingleIpHttpClient backup = singleIpHttpClient(2, 200);
+        final SingleIpHttpClient lastResort = singleIpHttpClient(3, 200);
+        primary.updateServiceRecord(10, 1);
+        backup.updateServiceRecord(20, 1);
+        lastResort.updateServiceRecord(30, 1);
+
+        // When
+        final RoundRobinPool roundRobinPool = new RoundRobinPool(List.of(lastResort, backup, primary));
+
+        // Then only the preferred tier is selected while the failover goes through all the tiers
+        assertEquals(List.of(primary), roundRobinPool.healthyItems());
+        assertEquals(List.of(primary, backup, lastResort), roundRobinPool.failoverItems());
+        assertEquals(3, roundRobinPool.failoverCount());
+    }
+
+    @Test
+    void shouldBeEmpty() {
+        assertEquals(Optional.empty(), RoundRobinPool.EMPTY.next());
+        assertEquals(0, RoundRobinPool.EMPTY.healthyCount());
+        assertEquals(0, RoundRobinPool.EMPTY.failoverCount());
+        assertEquals(Optional.empty(), RoundRobinPool.EMPTY.getMetadataClient());
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(int lastByte, int statusCode) {
+        return singleIpHttpClient(mock(HttpClient.class), lastByte, statusCode);
+    }
+
+    private static SingleIpHttpClient singleIpHttpClient(HttpClient httpClient, int lastByte, int statusCode) {
+        mockStatusCode(httpClient, statusCode);
+        try {
+            return new SingleIpHttpClient(httpClient, InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) lastByte}), new ServerConfiguration("round.robin.pool.test"));
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpResponse<Void> httpResponse(int statusCode, Map<String, List<String>> headers) {
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(statusCode);
+        when(httpResponse.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+        return httpResponse;
+    }
+
+    private static void mockStatusCode(HttpClient httpClient, int statusCode) {
+        @SuppressWarnings("unchecked") final HttpResponse<Void> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.statusCode()).thenReturn(statusCode);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(httpResponse));
+    }
+}
@@ -1,20 +1,30 @@
 package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
 
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.DnsLookupWrapper;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthCheckMode;
+import com.github.nhenneaux.resilienthttpclient.singlehostclient.HealthEvaluator;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration;
 import com.github.nhenneaux.resilienthttpclient.singlehostclient.SingleHostHttpClientBuilder;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.UnknownHostException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -24,13 +34,17 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class SingleIpHttpClientTest {
@@ -147,11 +161,168 @@ class SingleIpHttpClientTest {
         ServerConfiguration serverConfiguration = new ServerConfiguration("com.github.nhenneaux.resilienthttpclient.monitoredclientpool.SingleIpHttpClientTest.shouldCreateClientWithoutRefresh", -234, "&dfsfsd", 1, 1, -1, 0, DEFAULT_REQUEST_TRANSFORMER);
         InetAddress localHost = InetAddress.getLocalHost();
         final IllegalArgumentException illegalStateException = assertThrows(IllegalArgumentException.class, () -> new SingleIpHttpClient(httpClient, localHost, serverConfiguration));
-        assertEquals("Cannot build health URI from ServerConfiguration{hostname='com.github.nhenneaux.resilienthttpclient.monitoredclientpool.SingleIpHttpClientTest.shouldCreateClientWithoutRefresh', port=-234, healthPath='&dfsfsd', connectionHealthCheckPeriodInSeconds=1, dnsLookupRefreshPeriodInSeconds=1, healthReadTimeoutInMilliseconds=-1, failureResponseCountThreshold= 0, protocol= https}", illegalStateException.getMessage());
+        assertEquals("Cannot build health URI from ServerConfiguration{hostname='com.github.nhenneaux.resilienthttpclient.monitoredclientpool.SingleIpHttpClientTest.shouldCreateClientWithoutRefresh', port=-234, healthPath='&dfsfsd', connectionHealthCheckPeriod=PT1S, dnsLookupRefreshPeriod=PT1S, healthReadTimeoutInMilliseconds=-1, failureResponseCountThreshold= 0, protocol= https, requestDeadlineInMilliseconds= -1, loadSheddingBackoffInMilliseconds= 1000, adaptiveHealthCheck= false, healthCheckMode= HTTP, healthEvaluator= null}", illegalStateException.getMessage());
     }
 
     @Test
-    void shouldCallCheckHealthStatusIfHealthyIsFalse() {
+    @Timeout(10)
+    void shouldNotBlockSchedulerWhileHealthCheckIsInFlight() throws Exception {
+        // Given
+        final HttpClient hangingHttpClient = mock(HttpClient.class);
+        when(hangingHttpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(new CompletableFuture<>());
+        final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(hangingHttpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"), scheduledExecutorService)) {
+            // When
+            final String executed = scheduledExecutorService.submit(() -> "executed").get(5, TimeUnit.SECONDS);
+
+            // Then the scheduler thread is free while the health check is still pending
+            assertEquals("executed", executed);
+            assertFalse(singleIpHttpClient.getHealthy().get());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldSendAdaptiveHealthChecksWithSubSecondPeriod() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(ok));
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("localhost", 443, "/", 60, 60, -1, 1, DEFAULT_REQUEST_TRANSFORMER, "https")
+                .withConnectionHealthCheckPeriod(Duration.ofMillis(100))
+                .withLoadSheddingBackoffInMilliseconds(-1L)
+                .withAdaptiveHealthCheck(true);
+        final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        // When
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), serverConfiguration, scheduledExecutorService)) {
+            // Then the first checks follow each other after a fraction of the period
+            verify(httpClient, timeout(2_000).atLeast(4)).sendAsync(any(), any());
+            assertTrue(singleIpHttpClient.isHealthy());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldCheckHealthWithTcpConnectOnly() throws IOException {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        try (final ServerSocket serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+            final ServerConfiguration serverConfiguration = new ServerConfiguration("localhost", serverSocket.getLocalPort(), "/", 60, 60, -1, 1, DEFAULT_REQUEST_TRANSFORMER, "https")
+                    .withLoadSheddingBackoffInMilliseconds(-1L)
+                    .withHealthCheckMode(HealthCheckMode.TCP_CONNECT);
+            // When
+            try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), serverConfiguration)) {
+                // Then
+                assertTrue(singleIpHttpClient.isHealthy());
+                assertTrue(singleIpHttpClient.isConnectionVerified());
+                verifyNoInteractions(httpClient);
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepSingleEjectionTimerOnTheSchedulerWhenEjectionIsExtended() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(ok));
+        final ScheduledThreadPoolExecutor scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
+        scheduledExecutorService.setRemoveOnCancelPolicy(true);
+        try {
+            final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"), scheduledExecutorService);
+            // The periodic health check
+            assertEquals(1, scheduledExecutorService.getQueue().size());
+
+            // When
+            singleIpHttpClient.eject(Duration.ofMinutes(1));
+            singleIpHttpClient.eject(Duration.ofMinutes(2));
+            singleIpHttpClient.eject(Duration.ofMinutes(3));
+
+            // Then
+            assertTrue(singleIpHttpClient.isEjected());
+            assertEquals(2, scheduledExecutorService.getQueue().size());
+            singleIpHttpClient.close();
+            assertTrue(scheduledExecutorService.getQueue().isEmpty());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldBeUnhealthyWhenEvaluatorRejectsHealthResponse() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Boolean> degraded = mock(HttpResponse.class);
+        when(degraded.statusCode()).thenReturn(200);
+        when(degraded.body()).thenReturn(false);
+        when(httpClient.<Boolean>sendAsync(any(HttpRequest.class), any())).thenReturn(CompletableFuture.completedFuture(degraded));
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("localhost", 443, "/", 60, 60, -1, 1, DEFAULT_REQUEST_TRANSFORMER, "https")
+                .withLoadSheddingBackoffInMilliseconds(-1L)
+                .withHealthEvaluator(HealthEvaluator.bodyNotContaining("DEGRADED"));
+        // When
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), serverConfiguration)) {
+            // Then the status code alone would be healthy
+            assertFalse(singleIpHttpClient.isHealthy());
+            verify(httpClient, times(1)).sendAsync(any(), any());
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldShareHealthCheckWithClientsProbingSameTarget() {
+        // Given
+        final HttpClient firstHttpClient = mock(HttpClient.class);
+        final CompletableFuture<HttpResponse<Void>> inFlight = new CompletableFuture<>();
+        when(firstHttpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(inFlight);
+        final HttpClient secondHttpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("shared.probe.localhost");
+        // When
+        try (final SingleIpHttpClient first = new SingleIpHttpClient(firstHttpClient, InetAddress.getLoopbackAddress(), serverConfiguration, scheduledExecutorService);
+             final SingleIpHttpClient second = new SingleIpHttpClient(secondHttpClient, InetAddress.getLoopbackAddress(), serverConfiguration, scheduledExecutorService)) {
+            inFlight.complete(ok);
+            // Then
+            assertTrue(first.isHealthy());
+            assertTrue(second.isHealthy());
+            verify(firstHttpClient, times(1)).sendAsync(any(), any());
+            verify(secondHttpClient, never()).sendAsync(any(), any());
+        } finally {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotShareHealthCheckWithDifferentReadTimeoutOrVersion() {
+        // Given
+        final HttpClient http2Client = mock(HttpClient.class);
+        when(http2Client.version()).thenReturn(HttpClient.Version.HTTP_2);
+        final HttpClient http11Client = mock(HttpClient.class);
+        when(http11Client.version()).thenReturn(HttpClient.Version.HTTP_1_1);
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("shared.probe.key.localhost");
+        final ServerConfiguration longerReadTimeout = new ServerConfiguration("shared.probe.key.localhost", ServerConfiguration.DEFAULT_PORT, ServerConfiguration.DEFAULT_HEALTH_PATH, 60, 60, 60_000L, -1, DEFAULT_REQUEST_TRANSFORMER);
+
+        // When
+        try (final SingleIpHttpClient reference = new SingleIpHttpClient(http2Client, InetAddress.getLoopbackAddress(), serverConfiguration);
+             final SingleIpHttpClient sameConfiguration = new SingleIpHttpClient(http2Client, InetAddress.getLoopbackAddress(), serverConfiguration);
+             final SingleIpHttpClient otherVersion = new SingleIpHttpClient(http11Client, InetAddress.getLoopbackAddress(), serverConfiguration);
+             final SingleIpHttpClient otherReadTimeout = new SingleIpHttpClient(http2Client, InetAddress.getLoopbackAddress(), longerReadTimeout)) {
+            // Then
+            assertEquals(reference.healthProbeKey(), sameConfiguration.healthProbeKey());
+            assertNotEquals(reference.healthProbeKey(), otherVersion.healthProbeKey());
+            assertNotEquals(reference.healthProbeKey(), otherReadTimeout.healthProbeKey());
+        }
+    }
+
+    @Test
+    void shouldntCallCheckHealthStatusIfHealthyIsFalse() {
         // Given
         final String hostname = oneHostname();
         final HttpClient httpClient = mock(HttpClient.class);
@@ -159,14 +330,94 @@ class SingleIpHttpClientTest {
         when(httpResponse.statusCode()).thenReturn(500);
         when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(httpResponse));
         // When
-        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, new DnsLookupWrapper().getInetAddressesByDnsLookUp(hostname).iterator().next(), new ServerConfiguration(hostname))) {
-            // Then
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration(hostname))) {
+            // Then the status is only read, the recovery probe is sent in the background after the backoff
             assertSame(httpClient, singleIpHttpClient.getHttpClient());
             assertFalse(singleIpHttpClient.isHealthy());
+            assertFalse(singleIpHttpClient.isHealthy());
+            verify(httpClient, times(1)).sendAsync(any(), any());
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldRecoverInBackgroundWhenUnhealthy() throws InterruptedException {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> unavailable = mock(HttpResponse.class);
+        when(unavailable.statusCode()).thenReturn(500);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(unavailable)).thenReturn(CompletableFuture.completedFuture(ok));
+        // When
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"))) {
+            assertFalse(singleIpHttpClient.isHealthy());
+            while (!singleIpHttpClient.isHealthy()) {
+                Thread.sleep(50L);
+            }
+            // Then
+            verify(httpClient, times(2)).sendAsync(any(), any());
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldProbeUnhealthyAddressAtMostOnceAtATime() throws InterruptedException {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> unavailable = mock(HttpResponse.class);
+        when(unavailable.statusCode()).thenReturn(500);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(unavailable)).thenReturn(new CompletableFuture<>());
+        // When
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"))) {
+            for (int i = 0; i < 30; i++) {
+                assertFalse(singleIpHttpClient.isHealthy());
+                Thread.sleep(100L);
+            }
+            // Then the recovery probe is pending, no other one is sent meanwhile
             verify(httpClient, times(2)).sendAsync(any(), any());
         }
     }
 
+    @Test
+    @Timeout(10)
+    void shouldBecomeUnhealthyAfterConsecutiveTrafficFailures() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(ok)).thenReturn(new CompletableFuture<>());
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"))) {
+            assertTrue(singleIpHttpClient.isHealthy());
+            // When
+            for (int i = 1; i < SingleIpHttpClient.PASSIVE_FAILURE_THRESHOLD; i++) {
+                singleIpHttpClient.trafficResponded(503);
+            }
+            final boolean healthyBeforeThreshold = singleIpHttpClient.isHealthy();
+            singleIpHttpClient.trafficFailed();
+            // Then
+            assertTrue(healthyBeforeThreshold);
+            assertFalse(singleIpHttpClient.isHealthy());
+        }
+    }
+
+    @Test
+    void shouldNotBeIdleWhileTrafficSucceeds() {
+        // Given
+        final HttpClient httpClient = mock(HttpClient.class);
+        @SuppressWarnings("unchecked") final HttpResponse<Void> ok = mock(HttpResponse.class);
+        when(ok.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(DISCARDING_BODY_HANDLER_CLASS))).thenReturn(CompletableFuture.completedFuture(ok));
+        try (final SingleIpHttpClient singleIpHttpClient = new SingleIpHttpClient(httpClient, InetAddress.getLoopbackAddress(), new ServerConfiguration("localhost"))) {
+            final boolean idleWithoutTraffic = singleIpHttpClient.isIdle();
+            // When
+            singleIpHttpClient.trafficResponded(404);
+            // Then
+            assertTrue(idleWithoutTraffic);
+            assertFalse(singleIpHttpClient.isIdle());
+        }
+    }
+
     @Test
     void shouldntCallCheckHealthStatusIfHealthyIsTrue() {
         // Given
@@ -0,0 +1,83 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TcpConnectProberTest {
+
+    @Test
+    @Timeout(10)
+    void shouldConnectConcurrentlyOnSharedSelector() throws Exception {
+        // Given
+        try (final ServerSocket serverSocket = new ServerSocket(0, 100, InetAddress.getLoopbackAddress())) {
+            final InetSocketAddress socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+
+            // When
+            final List<CompletableFuture<Void>> probes = IntStream.range(0, 50)
+                    .mapToObj(i -> TcpConnectProber.shared().connect(socketAddress, Duration.ofSeconds(5)))
+                    .collect(Collectors.toList());
+
+            // Then
+            CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldCompleteProbesOnTheGivenExecutor() throws Exception {
+        // Given
+        final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "probe-executor"));
+        try (final ServerSocket serverSocket = new ServerSocket(0, 100, InetAddress.getLoopbackAddress())) {
+            final InetSocketAddress socketAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+
+            // When
+            final List<CompletableFuture<String>> completingThreads = IntStream.range(0, 10)
+                    .mapToObj(i -> TcpConnectProber.shared().connect(socketAddress, Duration.ofSeconds(5), executorService)
+                            .thenApply(connected -> Thread.currentThread().getName()))
+                    .collect(Collectors.toList());
+
+            // Then the dependent actions do not run on the selector thread
+            for (CompletableFuture<String> completingThread : completingThreads) {
+                assertThat(completingThread.get(5, TimeUnit.SECONDS), not("resilient-httpclient-tcp-prober"));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldFailWhenConnectionIsRefused() throws IOException {
+        // Given
+        final int closedPort;
+        try (final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = serverSocket.getLocalPort();
+        }
+
+        // When
+        final CompletableFuture<Void> probe = TcpConnectProber.shared().connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), closedPort), Duration.ofSeconds(5));
+
+        // Then
+        final ExecutionException executionException = assertThrows(ExecutionException.class, () -> probe.get(5, TimeUnit.SECONDS));
+        assertThat(executionException.getCause(), instanceOf(IOException.class));
+    }
+}
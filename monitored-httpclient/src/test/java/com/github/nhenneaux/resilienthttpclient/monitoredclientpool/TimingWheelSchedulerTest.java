@@ -0,0 +1,182 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelSchedulerTest {
+
+    @Test
+    @Timeout(10)
+    void shouldRunTaskAfterItsDelay() throws Exception {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(5), 8, 0D);
+        try {
+            final long start = System.nanoTime();
+
+            // When
+            final ScheduledFuture<Long> scheduledFuture = scheduler.schedule(System::nanoTime, 120, TimeUnit.MILLISECONDS);
+
+            // Then the delay spans several rotations of the wheel
+            assertThat(scheduledFuture.get(5, TimeUnit.SECONDS) - start, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(120)));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldRunPeriodicTaskUntilCancelled() throws InterruptedException {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(5), 8, 0D);
+        try {
+            final AtomicInteger runs = new AtomicInteger();
+            final CountDownLatch threeRuns = new CountDownLatch(3);
+
+            // When
+            final ScheduledFuture<?> scheduledFuture = scheduler.scheduleAtFixedRate(() -> {
+                runs.incrementAndGet();
+                threeRuns.countDown();
+            }, 0, 20, TimeUnit.MILLISECONDS);
+            assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+            scheduledFuture.cancel(false);
+            final int runsWhenCancelled = runs.get();
+            Thread.sleep(100L);
+
+            // Then at most the run in flight when cancelled completes
+            assertThat(runs.get(), lessThanOrEqualTo(runsWhenCancelled + 1));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSpreadPeriodicTasksOverTheirPeriod() {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(10), 64, 1D);
+        try {
+            final Set<Long> delaysInSeconds = new HashSet<>();
+
+            // When
+            for (int i = 0; i < 50; i++) {
+                final ScheduledFuture<?> scheduledFuture = scheduler.scheduleAtFixedRateWithJitter(() -> {
+                }, 100, 100, TimeUnit.SECONDS);
+                final long delayInSeconds = scheduledFuture.getDelay(TimeUnit.SECONDS);
+                assertThat(delayInSeconds, both(greaterThanOrEqualTo(99L)).and(lessThanOrEqualTo(200L)));
+                delaysInSeconds.add(delayInSeconds);
+            }
+
+            // Then
+            assertThat(delaysInSeconds.size(), greaterThan(10));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotAddJitterToOtherPeriodicTasks() {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(10), 64, 1D);
+        try {
+            // When
+            final ScheduledFuture<?> fixedRate = scheduler.scheduleAtFixedRate(() -> {
+            }, 100, 100, TimeUnit.SECONDS);
+            final ScheduledFuture<?> fixedDelay = scheduler.scheduleWithFixedDelay(() -> {
+            }, 100, 100, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(fixedRate.getDelay(TimeUnit.SECONDS), both(greaterThanOrEqualTo(99L)).and(lessThanOrEqualTo(100L)));
+            assertThat(fixedDelay.getDelay(TimeUnit.SECONDS), both(greaterThanOrEqualTo(99L)).and(lessThanOrEqualTo(100L)));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldQueueExpiredTasksBeyondTheWorkers() throws InterruptedException {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(5), 8, 0D, 1);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch allRun = new CountDownLatch(10);
+            final Set<String> workerNames = ConcurrentHashMap.newKeySet();
+
+            // When
+            scheduler.schedule(() -> {
+                workerNames.add(Thread.currentThread().getName());
+                release.await();
+                allRun.countDown();
+                return null;
+            }, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 9; i++) {
+                scheduler.schedule(() -> {
+                    workerNames.add(Thread.currentThread().getName());
+                    allRun.countDown();
+                }, 0, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(50L);
+            release.countDown();
+
+            // Then the tasks wait for the single worker instead of starting a thread each
+            assertTrue(allRun.await(5, TimeUnit.SECONDS));
+            assertEquals(1, workerNames.size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldCancelDelayedTasksOnShutdown() throws InterruptedException {
+        // Given
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler(Duration.ofMillis(5), 8, 0D);
+        final ScheduledFuture<?> scheduledFuture = scheduler.schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+
+        // When
+        scheduler.shutdown();
+
+        // Then
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(scheduledFuture.isCancelled());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.schedule(() -> {
+        }, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(10)
+    void shouldNotShutdownSharedScheduler() throws Exception {
+        // Given
+        final TimingWheelScheduler shared = TimingWheelScheduler.shared();
+
+        // When
+        shared.shutdown();
+        final List<Runnable> notRun = shared.shutdownNow();
+
+        // Then the shared scheduler still runs the tasks
+        assertTrue(notRun.isEmpty());
+        assertFalse(shared.isShutdown());
+        assertEquals(42, shared.schedule(() -> 42, 1, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.nhenneaux.resilienthttpclient.monitoredclientpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WeightProviderTest {
+
+    @Test
+    void shouldUseStaticWeights() throws UnknownHostException {
+        final WeightProvider weightProvider = WeightProvider.ofStaticWeights(Map.of("10.0.0.1", 3), 1);
+
+        assertEquals(3, weightProvider.weight(clientWithAddress(1)));
+        assertEquals(1, weightProvider.weight(clientWithAddress(2)));
+    }
+
+    @Test
+    void shouldRampUpLinearly() {
+        final WeightProvider weightProvider = WeightProvider.withSlowStart(WeightProvider.equalWeights(), Duration.ofSeconds(10), SlowStartRamp.LINEAR);
+
+        assertEquals(10, weightProvider.weight(clientHealthySince(0)));
+        assertEquals(55, weightProvider.weight(clientHealthySince(5)));
+        assertEquals(100, weightProvider.weight(clientHealthySince(10)));
+        assertEquals(100, weightProvider.weight(clientHealthySince(60)));
+    }
+
+    @Test
+    void shouldRampUpExponentially() {
+        final WeightProvider weightProvider = WeightProvider.withSlowStart(WeightProvider.equalWeights(), Duration.ofSeconds(10), SlowStartRamp.EXPONENTIAL);
+
+        assertEquals(10, weightProvider.weight(clientHealthySince(0)));
+        assertEquals(32, weightProvider.weight(clientHealthySince(5)));
+        assertEquals(100, weightProvider.weight(clientHealthySince(10)));
+    }
+
+    @Test
+    void shouldKeepZeroWeightDuringSlowStart() {
+        final WeightProvider weightProvider = WeightProvider.withSlowStart(singleIpHttpClient -> 0, Duration.ofSeconds(10), SlowStartRamp.LINEAR);
+
+        assertEquals(0, weightProvider.weight(clientHealthySince(5)));
+    }
+
+    @Test
+    void shouldClampLargeWeightsDuringSlowStart() {
+        final WeightProvider weightProvider = WeightProvider.withSlowStart(singleIpHttpClient -> Integer.MAX_VALUE / 2, Duration.ofSeconds(10), SlowStartRamp.LINEAR);
+
+        assertEquals(Integer.MAX_VALUE, weightProvider.weight(clientHealthySince(10)));
+        assertThat(weightProvider.weight(clientHealthySince(5)), allOf(greaterThan(0), lessThan(Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void shouldRejectEmptyWindow() {
+        final WeightProvider equalWeights = WeightProvider.equalWeights();
+        final Duration zero = Duration.ZERO;
+        assertThrows(IllegalArgumentException.class, () -> WeightProvider.withSlowStart(equalWeights, zero, SlowStartRamp.LINEAR));
+    }
+
+    private static SingleIpHttpClient clientHealthySince(long seconds) {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.getHealthyDurationInNanoseconds()).thenReturn(TimeUnit.SECONDS.toNanos(seconds));
+        return singleIpHttpClient;
+    }
+
+    private static SingleIpHttpClient clientWithAddress(int lastByte) throws UnknownHostException {
+        final SingleIpHttpClient singleIpHttpClient = mock(SingleIpHttpClient.class);
+        when(singleIpHttpClient.getInetAddress()).thenReturn(InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) lastByte}));
+        return singleIpHttpClient;
+    }
+}
@@ -0,0 +1,313 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.lang.System.Logger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Cache the lookups of another {@link DnsLookupWrapper}, the pools of the process resolving the same names share their lookups.
+ * <p>
+ * <ul>
+ *     <li>The concurrent lookups of a name are joined, only one is sent to the resolver.</li>
+ *     <li>The addresses are fresh for the TTL given by the resolver, or the default time to live when it is unknown.
+ *     Then they are still served while a lookup revalidates them in the background.</li>
+ *     <li>When a lookup fails, the last addresses keep being served up to the maximum stale age.</li>
+ *     <li>A failure without addresses to serve, e.g. an unknown name or a timeout, is cached for the negative time to live.</li>
+ *     <li>The names with subscribers are revalidated when they expire and the subscribers are notified of the changes, the pools do not poll.</li>
+ * </ul>
+ * One entry is kept per resolved name for the lifetime of the cache.
+ */
+public class CachingDnsLookupWrapper extends DnsLookupWrapper {
+
+    /**
+     * Used when the resolver does not give the TTL of the records, the pools refreshed the names at the same period before they shared the cache.
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(ServerConfiguration.DEFAULT_DNS_LOOKUP_REFRESH_PERIOD_IN_SECONDS);
+    public static final Duration DEFAULT_MAX_STALE_AGE = Duration.ofMinutes(15L);
+    public static final Duration DEFAULT_NEGATIVE_TIME_TO_LIVE = Duration.ofSeconds(5L);
+    /**
+     * The names with a shorter TTL, e.g. zero, are not revalidated more often than that.
+     */
+    static final Duration MIN_REVALIDATION_DELAY = Duration.ofSeconds(1L);
+
+    private static final Logger LOGGER = System.getLogger(CachingDnsLookupWrapper.class.getName());
+
+    private final DnsLookupWrapper delegate;
+    private final Duration defaultTimeToLive;
+    private final Duration maxStaleAge;
+    private final Duration negativeTimeToLive;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingDnsLookupWrapper(final DnsLookupWrapper delegate) {
+        this(delegate, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_STALE_AGE, DEFAULT_NEGATIVE_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param delegate           the resolver of the names missing in the cache
+     * @param defaultTimeToLive  the time for which the addresses are fresh when the resolver does not give their TTL
+     * @param maxStaleAge        the time after expiry for which the addresses are still served while they cannot be revalidated
+     * @param negativeTimeToLive the time for which a failed lookup is not retried
+     */
+    public CachingDnsLookupWrapper(final DnsLookupWrapper delegate, final Duration defaultTimeToLive, final Duration maxStaleAge, final Duration negativeTimeToLive) {
+        this(delegate, defaultTimeToLive, maxStaleAge, negativeTimeToLive, SchedulerHolder.INSTANCE);
+    }
+
+    CachingDnsLookupWrapper(final DnsLookupWrapper delegate, final Duration defaultTimeToLive, final Duration maxStaleAge, final Duration negativeTimeToLive, final ScheduledExecutorService scheduler) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.defaultTimeToLive = positive(defaultTimeToLive, "default time to live");
+        this.maxStaleAge = positive(maxStaleAge, "max stale age");
+        this.negativeTimeToLive = positive(negativeTimeToLive, "negative time to live");
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return the cache shared by the process, over the lookups of {@link InetAddress}.
+     */
+    public static CachingDnsLookupWrapper shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    private static Duration positive(Duration duration, String name) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("The " + name + " should be positive but was: " + duration);
+        }
+        return duration;
+    }
+
+    @Override
+    public Set<InetAddress> getInetAddressesByDnsLookUp(final String hostName) {
+        try {
+            return getInetAddressesByDnsLookUpAsync(hostName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            if (e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot perform a DNS lookup for the hostname: " + hostName + ".", e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Set<InetAddress>> getInetAddressesByDnsLookUpAsync(final String hostName) {
+        return entry(hostName).get();
+    }
+
+    @Override
+    public Optional<Duration> getRemainingTimeToLive(final String hostName) {
+        final Entry entry = entries.get(hostName);
+        // The service names are not cached, their TTL is the one of the delegate
+        return entry == null ? delegate.getRemainingTimeToLive(hostName) : entry.remainingTimeToLive();
+    }
+
+    /**
+     * The SRV records are not cached, the lookup is delegated.
+     */
+    @Override
+    public CompletableFuture<List<ServiceEndpoint>> getServiceEndpointsByDnsLookUpAsync(final String serviceName) {
+        return delegate.getServiceEndpointsByDnsLookUpAsync(serviceName);
+    }
+
+    @Override
+    public Optional<Subscription> subscribe(final String hostName, final Consumer<Set<InetAddress>> listener) {
+        final Entry entry = entry(hostName);
+        entry.listeners.add(listener);
+        entry.scheduleRevalidation();
+        return Optional.of(() -> entry.unsubscribe(listener));
+    }
+
+    @Override
+    public boolean isCachedByJvm() {
+        return delegate.isCachedByJvm();
+    }
+
+    private Entry entry(String hostName) {
+        return entries.computeIfAbsent(hostName, Entry::new);
+    }
+
+    int subscriberCount(String hostName) {
+        return Optional.ofNullable(entries.get(hostName)).map(entry -> entry.listeners.size()).orElse(0);
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDnsLookupWrapper{" +
+                "delegate=" + delegate +
+                ", defaultTimeToLive=" + defaultTimeToLive +
+                ", maxStaleAge=" + maxStaleAge +
+                ", negativeTimeToLive=" + negativeTimeToLive +
+                '}';
+    }
+
+    private final class Entry {
+        private final String hostName;
+        private final List<Consumer<Set<InetAddress>>> listeners = new CopyOnWriteArrayList<>();
+        // Guarded by this
+        private Set<InetAddress> addresses;
+        private long freshUntilNanoTime;
+        private long staleUntilNanoTime;
+        private Throwable failure;
+        private long failedUntilNanoTime;
+        private long nextRevalidationNanoTime;
+        private CompletableFuture<Set<InetAddress>> inFlight;
+        private ScheduledFuture<?> scheduledRevalidation;
+
+        private Entry(String hostName) {
+            this.hostName = hostName;
+        }
+
+        private synchronized CompletableFuture<Set<InetAddress>> get() {
+            final long now = System.nanoTime();
+            if (addresses != null && now - freshUntilNanoTime < 0L) {
+                return CompletableFuture.completedFuture(addresses);
+            }
+            if (addresses != null && now - staleUntilNanoTime < 0L) {
+                revalidate();
+                return CompletableFuture.completedFuture(addresses);
+            }
+            if (failure != null && now - failedUntilNanoTime < 0L) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            return revalidate();
+        }
+
+        private synchronized Optional<Duration> remainingTimeToLive() {
+            if (addresses == null) {
+                return Optional.empty();
+            }
+            return Optional.of(Duration.ofNanos(Math.max(0L, freshUntilNanoTime - System.nanoTime())));
+        }
+
+        private synchronized CompletableFuture<Set<InetAddress>> revalidate() {
+            if (inFlight != null) {
+                return inFlight;
+            }
+            final CompletableFuture<Set<InetAddress>> lookup = new CompletableFuture<>();
+            inFlight = lookup;
+            CompletableFuture<Set<InetAddress>> delegated;
+            try {
+                delegated = Objects.requireNonNull(delegate.getInetAddressesByDnsLookUpAsync(hostName), "The DNS lookup was not started");
+            } catch (RuntimeException e) {
+                delegated = CompletableFuture.failedFuture(e);
+            }
+            delegated.whenComplete((resolved, thrown) -> complete(lookup, resolved, thrown));
+            return lookup;
+        }
+
+        private void complete(CompletableFuture<Set<InetAddress>> lookup, Set<InetAddress> resolved, Throwable thrown) {
+            final Set<InetAddress> changed;
+            final Set<InetAddress> served;
+            final Throwable cause;
+            synchronized (this) {
+                inFlight = null;
+                final long now = System.nanoTime();
+                if (thrown == null && resolved != null && !resolved.isEmpty()) {
+                    changed = addresses == null || resolved.equals(addresses) ? null : resolved;
+                    served = resolved;
+                    cause = null;
+                    addresses = resolved;
+                    freshUntilNanoTime = now + delegate.getRemainingTimeToLive(hostName).orElse(defaultTimeToLive).toNanos();
+                    staleUntilNanoTime = freshUntilNanoTime + maxStaleAge.toNanos();
+                    failure = null;
+                    nextRevalidationNanoTime = freshUntilNanoTime;
+                } else {
+                    changed = null;
+                    cause = thrown == null ? new UnknownHostException(hostName + ": no address") : unwrap(thrown);
+                    if (addresses != null && now - staleUntilNanoTime < 0L) {
+                        LOGGER.log(Level.WARNING, () -> "The DNS lookup of " + hostName + " failed, serving the stale addresses " + addresses, cause);
+                        served = addresses;
+                    } else {
+                        served = null;
+                        failure = cause;
+                        failedUntilNanoTime = now + negativeTimeToLive.toNanos();
+                    }
+                    nextRevalidationNanoTime = now + negativeTimeToLive.toNanos();
+                }
+                scheduleRevalidation();
+            }
+            if (changed != null) {
+                notifyListeners(changed);
+            }
+            if (served == null) {
+                lookup.completeExceptionally(cause);
+            } else {
+                lookup.complete(served);
+            }
+        }
+
+        private void notifyListeners(Set<InetAddress> changed) {
+            for (Consumer<Set<InetAddress>> listener : listeners) {
+                try {
+                    listener.accept(changed);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, () -> "A subscriber failed to handle the new addresses of " + hostName, e);
+                }
+            }
+        }
+
+        /**
+         * The names with subscribers are revalidated in the background once expired, or retried after a failure.
+         */
+        private synchronized void scheduleRevalidation() {
+            if (listeners.isEmpty() || (addresses == null && failure == null)) {
+                // Nobody is watching or nothing was looked up yet, the first lookup schedules the next one
+                return;
+            }
+            if (scheduledRevalidation != null) {
+                scheduledRevalidation.cancel(false);
+            }
+            final long delayInNanoseconds = Math.max(MIN_REVALIDATION_DELAY.toNanos(), nextRevalidationNanoTime - System.nanoTime());
+            final Runnable revalidation = this::revalidate;
+            scheduledRevalidation = scheduler.schedule(revalidation, delayInNanoseconds, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void unsubscribe(Consumer<Set<InetAddress>> listener) {
+            listeners.remove(listener);
+            if (listeners.isEmpty() && scheduledRevalidation != null) {
+                scheduledRevalidation.cancel(false);
+                scheduledRevalidation = null;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable thrown) {
+        return thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown;
+    }
+
+    private static final class SchedulerHolder {
+        private static final ScheduledExecutorService INSTANCE = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "resilient-httpclient-dns-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final CachingDnsLookupWrapper INSTANCE = new CachingDnsLookupWrapper(new DnsLookupWrapper());
+    }
+}
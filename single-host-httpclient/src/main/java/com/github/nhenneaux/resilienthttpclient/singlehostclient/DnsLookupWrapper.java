@@ -2,13 +2,54 @@ package com.github.nhenneaux.resilienthttpclient.singlehostclient;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class DnsLookupWrapper {
 
+    /**
+     * Bound the wait of the pools for a resolver which does not answer, the default resolver of the system may take tens of seconds to give up.
+     */
+    public static final Duration DEFAULT_LOOKUP_TIMEOUT = Duration.ofSeconds(10L);
+    static final int MAX_LOOKUP_THREADS = 4;
+    static final int MAX_PENDING_LOOKUPS = 1_024;
+
+    private final Duration lookupTimeout;
+    private final Executor lookupExecutor;
+
+    public DnsLookupWrapper() {
+        this(DEFAULT_LOOKUP_TIMEOUT);
+    }
+
+    /**
+     * @param lookupTimeout the time after which an asynchronous lookup fails, the blocked lookup thread is only released when the resolver gives up
+     */
+    public DnsLookupWrapper(final Duration lookupTimeout) {
+        this(lookupTimeout, LookupExecutorHolder.INSTANCE);
+    }
+
+    DnsLookupWrapper(final Duration lookupTimeout, final Executor lookupExecutor) {
+        if (lookupTimeout.isNegative() || lookupTimeout.isZero()) {
+            throw new IllegalArgumentException("The lookup timeout should be positive but was: " + lookupTimeout);
+        }
+        this.lookupTimeout = lookupTimeout;
+        this.lookupExecutor = Objects.requireNonNull(lookupExecutor);
+    }
+
     /**
      * Looks up for the IP addresses for the given host name.
      *
@@ -25,4 +66,93 @@ public class DnsLookupWrapper {
         return Collections.unmodifiableSet(new CopyOnWriteArraySet<>(Arrays.asList(inetSocketAddresses)));
     }
 
+    /**
+     * Looks up for the IP addresses for the given host name without blocking the caller.
+     * <p>
+     * The blocking lookup runs on a small executor dedicated to the DNS lookups and shared by all the wrappers of the process.
+     *
+     * @param hostName the name to resolve
+     * @return the set of {@link InetAddress} resolved from the given name in the DNS order, failed with a {@link java.util.concurrent.TimeoutException}
+     * when the lookup takes longer than the lookup timeout or with a {@link RejectedExecutionException} when too many lookups are pending.
+     */
+    public CompletableFuture<Set<InetAddress>> getInetAddressesByDnsLookUpAsync(final String hostName) {
+        try {
+            return CompletableFuture.supplyAsync(() -> getInetAddressesByDnsLookUp(hostName), lookupExecutor)
+                    .orTimeout(lookupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Looks up for the targets of the SRV records of the given service name, see RFC 2782, and for their IP addresses without blocking the caller.
+     * <p>
+     * The resolver of the JVM only resolves addresses, the SRV records are resolved by the {@link NioDnsResolver}.
+     *
+     * @param serviceName the name of the SRV records, e.g. {@code _https._tcp.example.com}
+     * @return the endpoints ordered by priority, failed with an {@link UnsupportedOperationException} when the SRV records cannot be resolved by this wrapper.
+     */
+    public CompletableFuture<List<ServiceEndpoint>> getServiceEndpointsByDnsLookUpAsync(final String serviceName) {
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("The SRV records of " + serviceName + " cannot be resolved by the resolver of the JVM, a NioDnsResolver is needed."));
+    }
+
+    /**
+     * The time until the records of the last lookup of the given host name expire, the name can be resolved again at that time.
+     *
+     * @param hostName the name looked up
+     * @return empty when the TTL of the records is not known, it is hidden by the JVM cache of {@link InetAddress}.
+     */
+    public Optional<Duration> getRemainingTimeToLive(final String hostName) {
+        return Optional.empty();
+    }
+
+    /**
+     * Be notified when the addresses of the given host name change instead of polling them.
+     *
+     * @param hostName the name to watch
+     * @param listener called with the new addresses each time they change
+     * @return empty when the changes are not notified, the lookups should be repeated to catch them.
+     */
+    public Optional<Subscription> subscribe(final String hostName, final Consumer<Set<InetAddress>> listener) {
+        return Optional.empty();
+    }
+
+    /**
+     * @return whether the lookups go through the JVM-wide cache of {@link InetAddress} configured by the {@code networkaddress.cache.ttl} security property.
+     */
+    public boolean isCachedByJvm() {
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        /**
+         * Stop the notifications.
+         */
+        @Override
+        void close();
+    }
+
+    private static final class LookupExecutorHolder {
+        private static final ThreadPoolExecutor INSTANCE = newLookupExecutor();
+
+        private static ThreadPoolExecutor newLookupExecutor() {
+            final AtomicInteger threadCount = new AtomicInteger();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_LOOKUP_THREADS,
+                    MAX_LOOKUP_THREADS,
+                    1L,
+                    TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<>(MAX_PENDING_LOOKUPS),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "resilient-httpclient-dns-lookup-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+            );
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
 }
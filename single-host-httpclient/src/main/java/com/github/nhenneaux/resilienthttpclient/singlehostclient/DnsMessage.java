@@ -0,0 +1,262 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encode the DNS queries and decode the answers of the {@link NioDnsResolver}, see RFC 1035 section 4.
+ * Only the address and service records are decoded, the other records of the answer section are skipped.
+ */
+final class DnsMessage {
+
+    static final int TYPE_A = 1;
+    static final int TYPE_AAAA = 28;
+    static final int TYPE_SRV = 33;
+    static final int RESPONSE_CODE_NO_ERROR = 0;
+    static final int RESPONSE_CODE_NAME_ERROR = 3;
+
+    private static final int CLASS_IN = 1;
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final int FLAG_RECURSION_DESIRED = 0x0100;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int HEADER_LENGTH = 12;
+
+    private final int id;
+    private final boolean truncated;
+    private final int responseCode;
+    private final List<AddressRecord> addressRecords;
+    private final List<ServiceRecord> serviceRecords;
+
+    private DnsMessage(int id, boolean truncated, int responseCode, List<AddressRecord> addressRecords, List<ServiceRecord> serviceRecords) {
+        this.id = id;
+        this.truncated = truncated;
+        this.responseCode = responseCode;
+        this.addressRecords = addressRecords;
+        this.serviceRecords = serviceRecords;
+    }
+
+    /**
+     * @param id       the identifier echoed by the server in its answer
+     * @param hostName the name to resolve, a trailing dot is ignored
+     * @param type     the type of the records, {@link #TYPE_A}, {@link #TYPE_AAAA} or {@link #TYPE_SRV}
+     * @return the query with recursion desired.
+     */
+    static byte[] query(int id, String hostName, int type) {
+        final String name = hostName.endsWith(".") ? hostName.substring(0, hostName.length() - 1) : hostName;
+        final byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+        if (name.isEmpty() || nameBytes.length + 2 > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("The host name cannot be resolved, it should have between 1 and " + (MAX_NAME_LENGTH - 2) + " characters: " + hostName);
+        }
+        final ByteBuffer query = ByteBuffer.allocate(HEADER_LENGTH + nameBytes.length + 2 + 4);
+        query.putShort((short) id)
+                .putShort((short) FLAG_RECURSION_DESIRED)
+                .putShort((short) 1)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0);
+        for (String label : name.split("\\.", -1)) {
+            if (label.isEmpty() || label.length() > MAX_LABEL_LENGTH) {
+                throw new IllegalArgumentException("The host name cannot be resolved, its labels should have between 1 and " + MAX_LABEL_LENGTH + " characters: " + hostName);
+            }
+            query.put((byte) label.length()).put(label.getBytes(StandardCharsets.US_ASCII));
+        }
+        query.put((byte) 0)
+                .putShort((short) type)
+                .putShort((short) CLASS_IN);
+        return query.array();
+    }
+
+    /**
+     * @param message  the response as received
+     * @param hostName the name of the query, given to the decoded addresses
+     */
+    static DnsMessage parse(ByteBuffer message, String hostName) throws IOException {
+        try {
+            final int id = Short.toUnsignedInt(message.getShort());
+            final int flags = Short.toUnsignedInt(message.getShort());
+            final int questionCount = Short.toUnsignedInt(message.getShort());
+            final int answerCount = Short.toUnsignedInt(message.getShort());
+            // The authority and additional sections are not read
+            message.getShort();
+            message.getShort();
+            if ((flags & FLAG_RESPONSE) == 0) {
+                throw new IOException("The DNS message is not a response");
+            }
+            final boolean truncated = (flags & FLAG_TRUNCATED) != 0;
+            if (truncated) {
+                return new DnsMessage(id, true, flags & 0xF, Collections.emptyList(), Collections.emptyList());
+            }
+            for (int i = 0; i < questionCount; i++) {
+                skipName(message);
+                message.position(message.position() + 4);
+            }
+            final List<AddressRecord> addressRecords = new ArrayList<>(answerCount);
+            final List<ServiceRecord> serviceRecords = new ArrayList<>();
+            for (int i = 0; i < answerCount; i++) {
+                skipName(message);
+                final int type = Short.toUnsignedInt(message.getShort());
+                message.getShort();
+                final long ttl = Integer.toUnsignedLong(message.getInt());
+                // RFC 2181 section 8, a TTL with the most significant bit set is zero
+                final long ttlInSeconds = ttl > Integer.MAX_VALUE ? 0L : ttl;
+                final int dataLength = Short.toUnsignedInt(message.getShort());
+                final int dataPosition = message.position();
+                final byte[] data = new byte[dataLength];
+                message.get(data);
+                if ((type == TYPE_A && dataLength == 4) || (type == TYPE_AAAA && dataLength == 16)) {
+                    addressRecords.add(new AddressRecord(type, ttlInSeconds, InetAddress.getByAddress(hostName, data)));
+                } else if (type == TYPE_SRV && dataLength > 6) {
+                    final ByteBuffer serviceData = ByteBuffer.wrap(data);
+                    final int priority = Short.toUnsignedInt(serviceData.getShort());
+                    final int weight = Short.toUnsignedInt(serviceData.getShort());
+                    final int port = Short.toUnsignedInt(serviceData.getShort());
+                    // RFC 2782 forbids the compression of the target, it is still decoded from the whole message as some servers compress it
+                    serviceRecords.add(new ServiceRecord(priority, weight, port, readName(message, dataPosition + 6), ttlInSeconds));
+                }
+            }
+            return new DnsMessage(id, false, flags & 0xF, Collections.unmodifiableList(addressRecords), Collections.unmodifiableList(serviceRecords));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | UnknownHostException e) {
+            throw new IOException("Malformed DNS response for " + hostName, e);
+        }
+    }
+
+    /**
+     * @return the name starting at the given position of the message, following the compression pointers, without trailing dot, empty for the root.
+     */
+    private static String readName(ByteBuffer message, int position) {
+        final StringBuilder name = new StringBuilder();
+        int offset = position;
+        int jumps = 0;
+        while (true) {
+            final int length = Byte.toUnsignedInt(message.get(offset));
+            if (length == 0) {
+                return name.toString();
+            }
+            if ((length & 0xC0) == 0xC0) {
+                // A pointer always goes backward in a well-formed message, the jumps are bounded to reject the loops
+                if (++jumps > MAX_NAME_LENGTH / 2) {
+                    throw new IllegalArgumentException("Too many compression pointers in a name");
+                }
+                offset = ((length & 0x3F) << 8) | Byte.toUnsignedInt(message.get(offset + 1));
+                continue;
+            }
+            if (length > MAX_LABEL_LENGTH || name.length() + length + 1 > MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("Invalid name length");
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            for (int i = 1; i <= length; i++) {
+                name.append((char) Byte.toUnsignedInt(message.get(offset + i)));
+            }
+            offset += length + 1;
+        }
+    }
+
+    private static void skipName(ByteBuffer message) {
+        while (true) {
+            final int length = Byte.toUnsignedInt(message.get());
+            if (length == 0) {
+                return;
+            }
+            if ((length & 0xC0) == 0xC0) {
+                // A compression pointer ends the name
+                message.get();
+                return;
+            }
+            message.position(message.position() + length);
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    int getResponseCode() {
+        return responseCode;
+    }
+
+    List<AddressRecord> getAddressRecords() {
+        return addressRecords;
+    }
+
+    List<ServiceRecord> getServiceRecords() {
+        return serviceRecords;
+    }
+
+    static final class AddressRecord {
+        private final int type;
+        private final long ttlInSeconds;
+        private final InetAddress address;
+
+        private AddressRecord(int type, long ttlInSeconds, InetAddress address) {
+            this.type = type;
+            this.ttlInSeconds = ttlInSeconds;
+            this.address = address;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        long getTtlInSeconds() {
+            return ttlInSeconds;
+        }
+
+        InetAddress getAddress() {
+            return address;
+        }
+    }
+
+    static final class ServiceRecord {
+        private final int priority;
+        private final int weight;
+        private final int port;
+        private final String target;
+        private final long ttlInSeconds;
+
+        private ServiceRecord(int priority, int weight, int port, String target, long ttlInSeconds) {
+            this.priority = priority;
+            this.weight = weight;
+            this.port = port;
+            this.target = target;
+            this.ttlInSeconds = ttlInSeconds;
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        /**
+         * @return the name of the target, empty when the service is decidedly not available at this domain.
+         */
+        String getTarget() {
+            return target;
+        }
+
+        long getTtlInSeconds() {
+            return ttlInSeconds;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The addresses resolved for a host name with the time for which they can be cached.
+ */
+public final class DnsRecords {
+
+    private final Set<InetAddress> addresses;
+    private final Duration timeToLive;
+
+    /**
+     * @param addresses  the resolved addresses in the DNS order
+     * @param timeToLive the smallest TTL of the address records, {@code null} when it is not known
+     */
+    public DnsRecords(Set<InetAddress> addresses, Duration timeToLive) {
+        this.addresses = Collections.unmodifiableSet(Objects.requireNonNull(addresses));
+        this.timeToLive = timeToLive;
+    }
+
+    public Set<InetAddress> getAddresses() {
+        return addresses;
+    }
+
+    public Optional<Duration> getTimeToLive() {
+        return Optional.ofNullable(timeToLive);
+    }
+
+    @Override
+    public String toString() {
+        return "DnsRecords{" +
+                "addresses=" + addresses +
+                ", timeToLive=" + timeToLive +
+                '}';
+    }
+}
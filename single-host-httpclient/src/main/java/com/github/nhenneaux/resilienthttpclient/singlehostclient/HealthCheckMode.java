@@ -0,0 +1,16 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+/**
+ * How the health of each address of a server is checked.
+ */
+public enum HealthCheckMode {
+    /**
+     * Send an HTTP request to the health path, the address is healthy when the status is 2xx, 3xx or 4xx.
+     */
+    HTTP,
+    /**
+     * Only open a TCP connection to the port, the address is healthy when it accepts the connection.
+     * There is neither TLS handshake nor HTTP request, it suits the servers without a cheap health path.
+     */
+    TCP_CONNECT
+}
@@ -0,0 +1,73 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Decide whether an address is healthy from the response to its health check.
+ * <p>
+ * The body is streamed to the evaluator as a growing prefix bounded to a few KB, it is called again each time more bytes are received
+ * until it returns a verdict. The rest of the body is then discarded without being read, a verdict taken on the status or the headers
+ * costs no body at all.
+ */
+@FunctionalInterface
+public interface HealthEvaluator {
+
+    /**
+     * @param responseInfo the status code and the headers of the response
+     * @param bodyPrefix   the bytes of the body received so far, read-only and positioned at the start of the body
+     * @param last         whether no more bytes will be received, either the body is complete or the prefix reached its bound
+     * @return the verdict, {@link Verdict#UNDECIDED} to wait for more bytes. An undecided last call is decided on the status code as {@link #statusCode()}.
+     */
+    Verdict evaluate(HttpResponse.ResponseInfo responseInfo, ByteBuffer bodyPrefix, boolean last);
+
+    enum Verdict {
+        HEALTHY,
+        UNHEALTHY,
+        UNDECIDED
+    }
+
+    /**
+     * The default evaluation: healthy when the status is between 200 and 499, the body is never read.
+     */
+    static HealthEvaluator statusCode() {
+        return (responseInfo, bodyPrefix, last) -> isHealthyStatus(responseInfo.statusCode()) ? Verdict.HEALTHY : Verdict.UNHEALTHY;
+    }
+
+    /**
+     * Healthy when the status is between 200 and 499 and the body prefix does not contain the marker, e.g. {@code "DEGRADED"}.
+     * The body is read until the marker is found or the prefix is complete.
+     *
+     * @param marker the text marking an unhealthy response, encoded in UTF-8
+     */
+    static HealthEvaluator bodyNotContaining(String marker) {
+        final byte[] markerBytes = Objects.requireNonNull(marker).getBytes(StandardCharsets.UTF_8);
+        return (responseInfo, bodyPrefix, last) -> {
+            if (!isHealthyStatus(responseInfo.statusCode()) || indexOf(bodyPrefix, markerBytes) >= 0) {
+                return Verdict.UNHEALTHY;
+            }
+            return last ? Verdict.HEALTHY : Verdict.UNDECIDED;
+        };
+    }
+
+    private static boolean isHealthyStatus(int statusCode) {
+        return 200 <= statusCode && statusCode <= 499;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] bytes) {
+        final int start = buffer.position();
+        final int end = buffer.limit() - bytes.length;
+        for (int i = start; i <= end; i++) {
+            int matched = 0;
+            while (matched < bytes.length && buffer.get(i + matched) == bytes[matched]) {
+                matched++;
+            }
+            if (matched == bytes.length) {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,551 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.System.Logger.Level;
+
+/**
+ * Resolve the host names by querying the name servers directly instead of {@link InetAddress#getAllByName(String)}.
+ * <p>
+ * The A and AAAA queries are sent in parallel over UDP and multiplexed on a single selector thread, no thread is blocked while waiting for the answers.
+ * A truncated answer is queried again over TCP and the next name server is queried when one fails or does not answer within the timeout.
+ * The JVM-wide cache is bypassed and the TTL of the records is exposed, the pool resolves the names again when their records expire.
+ * <p>
+ * The names are resolved as fully qualified, the search domains are not applied. The IP literals and {@code localhost} are resolved by {@link InetAddress}.
+ * <p>
+ * The SRV records of a service name are resolved as well, see {@link #resolveService(String)}.
+ */
+public class NioDnsResolver extends DnsLookupWrapper implements AutoCloseable {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2L);
+
+    private static final Logger LOGGER = System.getLogger(NioDnsResolver.class.getName());
+    private static final int DNS_PORT = 53;
+    // Without EDNS the servers truncate the UDP answers to 512 bytes
+    private static final int MAX_UDP_MESSAGE_LENGTH = 512;
+    private static final Path RESOLV_CONF = Path.of("/etc/resolv.conf");
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final List<InetSocketAddress> nameServers;
+    private final Duration timeout;
+    private final Selector selector;
+    private final Queue<Exchange> registrations = new ConcurrentLinkedQueue<>();
+    // Only accessed by the selector thread
+    private final PriorityQueue<Exchange> byDeadline = new PriorityQueue<>(Comparator.comparingLong(exchange -> exchange.deadline));
+    private final ConcurrentMap<String, Long> expiryNanoTimeByHostName = new ConcurrentHashMap<>();
+    // Unpredictable query identifiers make the spoofing of the answers harder
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean closed;
+
+    /**
+     * @param nameServers the recursive name servers, queried in order until one answers
+     * @param timeout     the time for a name server to answer a query
+     */
+    public NioDnsResolver(List<InetSocketAddress> nameServers, Duration timeout) {
+        if (nameServers.isEmpty()) {
+            throw new IllegalArgumentException("At least one name server is needed");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("The timeout should be positive but was: " + timeout);
+        }
+        this.nameServers = List.copyOf(nameServers);
+        this.timeout = timeout;
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the selector of the DNS resolver", e);
+        }
+        final Thread thread = new Thread(this::select, "resilient-httpclient-dns-resolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return a resolver querying the name servers of {@code /etc/resolv.conf} with the {@link #DEFAULT_TIMEOUT}.
+     */
+    public static NioDnsResolver fromSystemConfiguration() {
+        final List<InetSocketAddress> nameServers;
+        try (Stream<String> lines = Files.lines(RESOLV_CONF)) {
+            nameServers = lines.map(String::trim)
+                    .filter(line -> line.startsWith("nameserver"))
+                    .map(line -> line.substring("nameserver".length()).trim())
+                    .filter(NioDnsResolver::isIpLiteral)
+                    .map(address -> new InetSocketAddress(ipLiteral(address), DNS_PORT))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the name servers from " + RESOLV_CONF, e);
+        }
+        if (nameServers.isEmpty()) {
+            throw new IllegalStateException("There is no name server in " + RESOLV_CONF);
+        }
+        return new NioDnsResolver(nameServers, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @return a resolver querying the name servers of {@code /etc/resolv.conf}, created on first use and shared by all the pools of the process.
+     */
+    public static NioDnsResolver shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Resolve the addresses of the given host name without blocking.
+     *
+     * @param hostName the name to resolve
+     * @return the addresses of the A records followed by the ones of the AAAA records, failed with an {@link UnknownHostException} when the name has none.
+     * @throws IllegalArgumentException when the host name is not valid
+     */
+    public CompletableFuture<DnsRecords> resolve(final String hostName) {
+        if (isIpLiteral(hostName) || "localhost".equalsIgnoreCase(hostName)) {
+            return CompletableFuture.completedFuture(new DnsRecords(super.getInetAddressesByDnsLookUp(hostName), null));
+        }
+        final CompletableFuture<DnsMessage> addressesV4 = query(hostName, DnsMessage.TYPE_A, 0);
+        final CompletableFuture<DnsMessage> addressesV6 = query(hostName, DnsMessage.TYPE_AAAA, 0);
+        return CompletableFuture.allOf(addressesV4, addressesV6)
+                .handle((ignored, failure) -> records(hostName, List.of(addressesV4, addressesV6)));
+    }
+
+    /**
+     * Resolve the targets of the SRV records of the given service name and their addresses without blocking, see RFC 2782.
+     * <p>
+     * The targets are resolved in parallel, a target which cannot be resolved is left out as long as another one is resolved.
+     * An endpoint is returned for each distinct address and port, with the priority and the weight of its record.
+     *
+     * @param serviceName the name of the SRV records, e.g. {@code _https._tcp.example.com}
+     * @return the endpoints ordered by priority then by decreasing weight, failed with an {@link UnknownHostException} when the service has no available target.
+     * @throws IllegalArgumentException when the service name is not valid
+     */
+    public CompletableFuture<List<ServiceEndpoint>> resolveService(final String serviceName) {
+        return query(serviceName, DnsMessage.TYPE_SRV, 0)
+                .thenCompose(message -> resolveTargets(serviceName, message));
+    }
+
+    @Override
+    public CompletableFuture<List<ServiceEndpoint>> getServiceEndpointsByDnsLookUpAsync(final String serviceName) {
+        try {
+            return resolveService(serviceName);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public Set<InetAddress> getInetAddressesByDnsLookUp(final String hostName) {
+        try {
+            // Bounded by the timeout of each name server
+            return resolve(hostName).get().getAddresses();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot perform a DNS lookup for the hostname: " + hostName + ".", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during the DNS lookup for the hostname: " + hostName + ".", e);
+        }
+    }
+
+    /**
+     * The queries are already non-blocking, the lookup executor is not used. The lookup is bounded by the timeout of each name server.
+     */
+    @Override
+    public CompletableFuture<Set<InetAddress>> getInetAddressesByDnsLookUpAsync(final String hostName) {
+        try {
+            return resolve(hostName).thenApply(DnsRecords::getAddresses);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public Optional<Duration> getRemainingTimeToLive(final String hostName) {
+        return Optional.ofNullable(expiryNanoTimeByHostName.get(hostName))
+                .map(expiryNanoTime -> Duration.ofNanos(Math.max(0L, expiryNanoTime - System.nanoTime())));
+    }
+
+    @Override
+    public boolean isCachedByJvm() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.DEBUG, "Cannot close the selector of the DNS resolver", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioDnsResolver{" +
+                "nameServers=" + nameServers +
+                ", timeout=" + timeout +
+                '}';
+    }
+
+    private DnsRecords records(String hostName, List<CompletableFuture<DnsMessage>> answers) {
+        final Set<InetAddress> addresses = new LinkedHashSet<>();
+        long timeToLiveInSeconds = Long.MAX_VALUE;
+        boolean nameError = false;
+        Throwable failure = null;
+        for (CompletableFuture<DnsMessage> answer : answers) {
+            final DnsMessage message;
+            try {
+                message = answer.join();
+            } catch (CompletionException e) {
+                failure = e.getCause();
+                continue;
+            }
+            nameError |= message.getResponseCode() == DnsMessage.RESPONSE_CODE_NAME_ERROR;
+            for (DnsMessage.AddressRecord addressRecord : message.getAddressRecords()) {
+                addresses.add(addressRecord.getAddress());
+                timeToLiveInSeconds = Math.min(timeToLiveInSeconds, addressRecord.getTtlInSeconds());
+            }
+        }
+        if (addresses.isEmpty()) {
+            if (nameError || failure == null) {
+                throw new CompletionException(new UnknownHostException(hostName + ": no address record"));
+            }
+            throw new CompletionException(failure);
+        }
+        final Duration timeToLive = Duration.ofSeconds(timeToLiveInSeconds);
+        expiryNanoTimeByHostName.put(hostName, System.nanoTime() + timeToLive.toNanos());
+        return new DnsRecords(addresses, timeToLive);
+    }
+
+    private CompletableFuture<List<ServiceEndpoint>> resolveTargets(String serviceName, DnsMessage message) {
+        final List<DnsMessage.ServiceRecord> serviceRecords = message.getServiceRecords().stream()
+                // RFC 2782, the target "." means that the service is decidedly not available at this domain
+                .filter(serviceRecord -> !serviceRecord.getTarget().isEmpty())
+                .sorted(Comparator.comparingInt(DnsMessage.ServiceRecord::getPriority)
+                        .thenComparing(Comparator.comparingInt(DnsMessage.ServiceRecord::getWeight).reversed()))
+                .collect(Collectors.toList());
+        if (serviceRecords.isEmpty()) {
+            return CompletableFuture.failedFuture(new UnknownHostException(serviceName + ": no available service record"));
+        }
+        final Map<String, CompletableFuture<DnsRecords>> addressesByTarget = new HashMap<>();
+        for (DnsMessage.ServiceRecord serviceRecord : serviceRecords) {
+            addressesByTarget.computeIfAbsent(serviceRecord.getTarget(), this::resolveTarget);
+        }
+        return CompletableFuture.allOf(addressesByTarget.values().toArray(CompletableFuture[]::new))
+                .handle((ignored, failure) -> endpoints(serviceName, serviceRecords, addressesByTarget));
+    }
+
+    private CompletableFuture<DnsRecords> resolveTarget(String target) {
+        try {
+            return resolve(target);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private List<ServiceEndpoint> endpoints(String serviceName, List<DnsMessage.ServiceRecord> serviceRecords, Map<String, CompletableFuture<DnsRecords>> addressesByTarget) {
+        final Map<InetSocketAddress, ServiceEndpoint> endpoints = new LinkedHashMap<>();
+        long timeToLiveInSeconds = Long.MAX_VALUE;
+        Throwable failure = null;
+        for (DnsMessage.ServiceRecord serviceRecord : serviceRecords) {
+            final DnsRecords targetRecords;
+            try {
+                targetRecords = addressesByTarget.get(serviceRecord.getTarget()).join();
+            } catch (CompletionException e) {
+                failure = e.getCause();
+                LOGGER.log(Level.WARNING, () -> "The target " + serviceRecord.getTarget() + " of the service " + serviceName + " cannot be resolved, it is left out", e.getCause());
+                continue;
+            }
+            timeToLiveInSeconds = Math.min(timeToLiveInSeconds, serviceRecord.getTtlInSeconds());
+            timeToLiveInSeconds = Math.min(timeToLiveInSeconds, targetRecords.getTimeToLive().map(Duration::getSeconds).orElse(Long.MAX_VALUE));
+            for (InetAddress address : targetRecords.getAddresses()) {
+                final InetSocketAddress socketAddress = new InetSocketAddress(address, serviceRecord.getPort());
+                // An address and port published by several records keeps the most preferred one
+                endpoints.putIfAbsent(socketAddress, new ServiceEndpoint(socketAddress, serviceRecord.getPriority(), serviceRecord.getWeight()));
+            }
+        }
+        if (endpoints.isEmpty()) {
+            throw new CompletionException(failure == null ? new UnknownHostException(serviceName + ": no address for the targets of the service records") : failure);
+        }
+        expiryNanoTimeByHostName.put(serviceName, System.nanoTime() + Duration.ofSeconds(timeToLiveInSeconds).toNanos());
+        return List.copyOf(endpoints.values());
+    }
+
+    private CompletableFuture<DnsMessage> query(String hostName, int type, int nameServerIndex) {
+        final InetSocketAddress nameServer = nameServers.get(nameServerIndex);
+        return exchange(hostName, type, nameServer)
+                .handle((message, failure) -> {
+                    if (failure == null) {
+                        return CompletableFuture.completedFuture(message);
+                    }
+                    if (nameServerIndex + 1 == nameServers.size()) {
+                        return CompletableFuture.<DnsMessage>failedFuture(failure);
+                    }
+                    LOGGER.log(Level.DEBUG, () -> "The name server " + nameServer + " failed to resolve " + hostName + ", querying the next one", failure);
+                    return query(hostName, type, nameServerIndex + 1);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<DnsMessage> exchange(String hostName, int type, InetSocketAddress nameServer) {
+        final int id = random.nextInt(0x10000);
+        final Exchange exchange = new Exchange(hostName, id, DnsMessage.query(id, hostName, type), nameServer, System.nanoTime() + timeout.toNanos());
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The DNS resolver is closed"));
+        }
+        try {
+            exchange.udp = DatagramChannel.open();
+            exchange.udp.configureBlocking(false);
+            exchange.udp.connect(nameServer);
+            exchange.udp.write(ByteBuffer.wrap(exchange.query));
+        } catch (IOException e) {
+            exchange.fail(e);
+            return exchange.answer;
+        }
+        registrations.offer(exchange);
+        selector.wakeup();
+        return exchange.answer;
+    }
+
+    private void select() {
+        try {
+            while (!closed) {
+                try {
+                    final Exchange nextToExpire = byDeadline.peek();
+                    if (nextToExpire == null) {
+                        selector.select();
+                    } else {
+                        selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(nextToExpire.deadline - System.nanoTime())));
+                    }
+                    register();
+                    receive();
+                    expire();
+                } catch (ClosedSelectorException e) {
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.ERROR, () -> "Unexpected error of the DNS resolver selector", e);
+                }
+            }
+        } finally {
+            final IllegalStateException closedException = new IllegalStateException("The DNS resolver is closed");
+            byDeadline.forEach(exchange -> exchange.fail(closedException));
+            registrations.forEach(exchange -> exchange.fail(closedException));
+        }
+    }
+
+    private void register() {
+        Exchange exchange;
+        while ((exchange = registrations.poll()) != null) {
+            try {
+                exchange.key = exchange.udp.register(selector, SelectionKey.OP_READ, exchange);
+                byDeadline.offer(exchange);
+            } catch (ClosedChannelException e) {
+                exchange.fail(e);
+            }
+        }
+    }
+
+    private void receive() {
+        final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+        while (selectedKeys.hasNext()) {
+            final SelectionKey key = selectedKeys.next();
+            selectedKeys.remove();
+            final Exchange exchange = (Exchange) key.attachment();
+            try {
+                if (key.channel() == exchange.udp) {
+                    exchange.receiveUdp();
+                } else {
+                    exchange.exchangeTcp(key);
+                }
+            } catch (IOException e) {
+                exchange.fail(e);
+            }
+        }
+    }
+
+    private void expire() {
+        final long now = System.nanoTime();
+        while (!byDeadline.isEmpty() && (byDeadline.peek().answer.isDone() || byDeadline.peek().deadline - now <= 0L)) {
+            final Exchange exchange = byDeadline.poll();
+            if (!exchange.answer.isDone()) {
+                exchange.fail(new SocketTimeoutException("The name server " + exchange.nameServer + " did not answer for " + exchange.hostName + " within " + timeout));
+            }
+        }
+    }
+
+    private static boolean isIpLiteral(String hostName) {
+        return hostName.indexOf(':') >= 0 || IPV4_LITERAL.matcher(hostName).matches();
+    }
+
+    private static InetAddress ipLiteral(String address) {
+        try {
+            // No lookup is done for a literal
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid name server address: " + address, e);
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final NioDnsResolver INSTANCE = fromSystemConfiguration();
+    }
+
+    /**
+     * One query to one name server, sent over UDP then over TCP when the answer is truncated.
+     */
+    private final class Exchange {
+        private final String hostName;
+        private final int id;
+        private final byte[] query;
+        private final InetSocketAddress nameServer;
+        private final long deadline;
+        private final CompletableFuture<DnsMessage> answer = new CompletableFuture<>();
+        private DatagramChannel udp;
+        private SocketChannel tcp;
+        private ByteBuffer tcpBuffer;
+        private boolean tcpLengthRead;
+        private SelectionKey key;
+
+        private Exchange(String hostName, int id, byte[] query, InetSocketAddress nameServer, long deadline) {
+            this.hostName = hostName;
+            this.id = id;
+            this.query = query;
+            this.nameServer = nameServer;
+            this.deadline = deadline;
+        }
+
+        private void receiveUdp() throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(MAX_UDP_MESSAGE_LENGTH);
+            if (udp.read(buffer) <= 0) {
+                return;
+            }
+            buffer.flip();
+            if (buffer.remaining() < 2 || Short.toUnsignedInt(buffer.getShort(0)) != id) {
+                // Not the answer to this query, keep waiting for it
+                return;
+            }
+            final DnsMessage message = DnsMessage.parse(buffer, hostName);
+            if (message.isTruncated()) {
+                switchToTcp();
+            } else {
+                complete(message);
+            }
+        }
+
+        private void switchToTcp() throws IOException {
+            key.cancel();
+            udp.close();
+            tcpBuffer = ByteBuffer.allocate(2 + query.length).putShort((short) query.length).put(query).flip();
+            tcp = SocketChannel.open();
+            tcp.configureBlocking(false);
+            final boolean connected = tcp.connect(nameServer);
+            key = tcp.register(selector, connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, this);
+        }
+
+        private void exchangeTcp(SelectionKey selectedKey) throws IOException {
+            if (selectedKey.isConnectable() && !tcp.finishConnect()) {
+                return;
+            }
+            if (selectedKey.interestOps() != SelectionKey.OP_READ) {
+                selectedKey.interestOps(SelectionKey.OP_WRITE);
+                tcp.write(tcpBuffer);
+                if (!tcpBuffer.hasRemaining()) {
+                    // The answer is prefixed by its length
+                    tcpBuffer = ByteBuffer.allocate(2);
+                    selectedKey.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            while (true) {
+                if (tcp.read(tcpBuffer) < 0) {
+                    throw new EOFException("The name server " + nameServer + " closed the connection before answering for " + hostName);
+                }
+                if (tcpBuffer.hasRemaining()) {
+                    return;
+                }
+                tcpBuffer.flip();
+                if (tcpLengthRead) {
+                    final DnsMessage message = DnsMessage.parse(tcpBuffer, hostName);
+                    if (message.getId() != id) {
+                        throw new IOException("The name server " + nameServer + " answered another query than the one for " + hostName);
+                    }
+                    complete(message);
+                    return;
+                }
+                tcpLengthRead = true;
+                tcpBuffer = ByteBuffer.allocate(Short.toUnsignedInt(tcpBuffer.getShort()));
+            }
+        }
+
+        private void complete(DnsMessage message) {
+            final int responseCode = message.getResponseCode();
+            if (responseCode != DnsMessage.RESPONSE_CODE_NO_ERROR && responseCode != DnsMessage.RESPONSE_CODE_NAME_ERROR) {
+                fail(new IOException("The name server " + nameServer + " answered for " + hostName + " with the response code " + responseCode));
+                return;
+            }
+            close();
+            answer.complete(message);
+        }
+
+        private void fail(Exception e) {
+            close();
+            answer.completeExceptionally(e);
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(udp);
+            closeQuietly(tcp);
+        }
+
+        private void closeQuietly(SelectableChannel channel) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.DEBUG, () -> "Cannot close the DNS query channel to " + nameServer, e);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.nhenneaux.resilienthttpclient.singlehostclient;
 
 import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -15,17 +17,27 @@ public class ServerConfiguration {
     public static final int DEFAULT_FAILURE_RESPONSE_COUNT_THRESHOLD = -1; // It means no validation by failed response count
     public static final Consumer<HttpRequest.Builder> DEFAULT_REQUEST_TRANSFORMER = null;
     public static final String DEFAULT_PROTOCOL = "https";
+    public static final long DEFAULT_REQUEST_DEADLINE_IN_MILLISECONDS = -1; // It means no deadline
+    public static final long DEFAULT_LOAD_SHEDDING_BACKOFF_IN_MILLISECONDS = TimeUnit.SECONDS.toMillis(1);
+    public static final boolean DEFAULT_ADAPTIVE_HEALTH_CHECK = false;
+    public static final HealthCheckMode DEFAULT_HEALTH_CHECK_MODE = HealthCheckMode.HTTP;
+    public static final HealthEvaluator DEFAULT_HEALTH_EVALUATOR = null; // It means the body is not read, only the status code is evaluated
     public static final Set<String> SUPPORTED_PROTOCOLS = Set.of("http", "https");
 
     private final String hostname;
     private final int port;
     private final String healthPath;
-    private final long connectionHealthCheckPeriodInSeconds;
-    private final long dnsLookupRefreshPeriodInSeconds;
+    private final Duration connectionHealthCheckPeriod;
+    private final Duration dnsLookupRefreshPeriod;
     private final long healthReadTimeoutInMilliseconds;
     private final int failureResponseCountThreshold;
     private final Consumer<HttpRequest.Builder> requestTransformer;
     private final String protocol;
+    private final long requestDeadlineInMilliseconds;
+    private final long loadSheddingBackoffInMilliseconds;
+    private final boolean adaptiveHealthCheck;
+    private final HealthCheckMode healthCheckMode;
+    private final HealthEvaluator healthEvaluator;
 
     public ServerConfiguration(String hostname) {
         this(
@@ -81,12 +93,47 @@ public class ServerConfiguration {
             int failureResponseCountThreshold,
             Consumer<HttpRequest.Builder> requestTransformer,
             String protocol
+    ) {
+        this(
+                hostname,
+                port,
+                healthPath,
+                Duration.ofSeconds(dnsLookupRefreshPeriodInSeconds),
+                Duration.ofSeconds(connectionHealthCheckPeriodInSeconds),
+                healthReadTimeoutInMilliseconds,
+                failureResponseCountThreshold,
+                requestTransformer,
+                protocol,
+                DEFAULT_REQUEST_DEADLINE_IN_MILLISECONDS,
+                DEFAULT_LOAD_SHEDDING_BACKOFF_IN_MILLISECONDS,
+                DEFAULT_ADAPTIVE_HEALTH_CHECK,
+                DEFAULT_HEALTH_CHECK_MODE,
+                DEFAULT_HEALTH_EVALUATOR
+        );
+    }
+
+    @SuppressWarnings("java:S107")// All parameters are needed
+    private ServerConfiguration(
+            String hostname,
+            int port,
+            String healthPath,
+            Duration dnsLookupRefreshPeriod,
+            Duration connectionHealthCheckPeriod,
+            long healthReadTimeoutInMilliseconds,
+            int failureResponseCountThreshold,
+            Consumer<HttpRequest.Builder> requestTransformer,
+            String protocol,
+            long requestDeadlineInMilliseconds,
+            long loadSheddingBackoffInMilliseconds,
+            boolean adaptiveHealthCheck,
+            HealthCheckMode healthCheckMode,
+            HealthEvaluator healthEvaluator
     ) {
         this.hostname = hostname;
         this.port = port;
         this.healthPath = healthPath;
-        this.connectionHealthCheckPeriodInSeconds = connectionHealthCheckPeriodInSeconds;
-        this.dnsLookupRefreshPeriodInSeconds = dnsLookupRefreshPeriodInSeconds;
+        this.connectionHealthCheckPeriod = positive(connectionHealthCheckPeriod, "connectionHealthCheckPeriod");
+        this.dnsLookupRefreshPeriod = positive(dnsLookupRefreshPeriod, "dnsLookupRefreshPeriod");
         this.healthReadTimeoutInMilliseconds = healthReadTimeoutInMilliseconds;
         this.failureResponseCountThreshold = failureResponseCountThreshold;
         this.requestTransformer = requestTransformer;
@@ -94,6 +141,67 @@ public class ServerConfiguration {
             throw new IllegalArgumentException("Supported protocols are http or https, but was: " + protocol);
         }
         this.protocol = protocol;
+        this.requestDeadlineInMilliseconds = requestDeadlineInMilliseconds;
+        this.loadSheddingBackoffInMilliseconds = loadSheddingBackoffInMilliseconds;
+        this.adaptiveHealthCheck = adaptiveHealthCheck;
+        this.healthCheckMode = Objects.requireNonNull(healthCheckMode, "healthCheckMode");
+        this.healthEvaluator = healthEvaluator;
+    }
+
+    /**
+     * @return a copy of this configuration with the given DNS refresh period, see {@link #getDnsLookupRefreshPeriod()}.
+     */
+    public ServerConfiguration withDnsLookupRefreshPeriod(Duration dnsLookupRefreshPeriod) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with the given delay between health checks, see {@link #getConnectionHealthCheckPeriod()}.
+     */
+    public ServerConfiguration withConnectionHealthCheckPeriod(Duration connectionHealthCheckPeriod) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with the given end-to-end deadline of the requests, see {@link #getRequestDeadlineInMilliseconds()}.
+     */
+    public ServerConfiguration withRequestDeadlineInMilliseconds(long requestDeadlineInMilliseconds) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with the given time out of rotation of the addresses shedding load, see {@link #getLoadSheddingBackoffInMilliseconds()}.
+     */
+    public ServerConfiguration withLoadSheddingBackoffInMilliseconds(long loadSheddingBackoffInMilliseconds) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with adaptive delays between health checks or not, see {@link #isAdaptiveHealthCheck()}.
+     */
+    public ServerConfiguration withAdaptiveHealthCheck(boolean adaptiveHealthCheck) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with the given health check mode, see {@link #getHealthCheckMode()}.
+     */
+    public ServerConfiguration withHealthCheckMode(HealthCheckMode healthCheckMode) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    /**
+     * @return a copy of this configuration with the given evaluator of the health check responses, see {@link #getHealthEvaluator()}.
+     */
+    public ServerConfiguration withHealthEvaluator(HealthEvaluator healthEvaluator) {
+        return new ServerConfiguration(hostname, port, healthPath, dnsLookupRefreshPeriod, connectionHealthCheckPeriod, healthReadTimeoutInMilliseconds, failureResponseCountThreshold, requestTransformer, protocol, requestDeadlineInMilliseconds, loadSheddingBackoffInMilliseconds, adaptiveHealthCheck, healthCheckMode, healthEvaluator);
+    }
+
+    private static Duration positive(Duration period, String name) {
+        if (Objects.requireNonNull(period, name).toMillis() <= 0) {
+            throw new IllegalArgumentException("The " + name + " should be at least one millisecond but was: " + period);
+        }
+        return period;
     }
 
     /**
@@ -118,17 +226,32 @@ public class ServerConfiguration {
     }
 
     /**
-     * The DNS delay in seconds to refresh the resolution of {@link #getHostname()}.
+     * The DNS delay in seconds to refresh the resolution of {@link #getHostname()}, truncated when the period is not a whole number of seconds.
      */
     public long getDnsLookupRefreshPeriodInSeconds() {
-        return dnsLookupRefreshPeriodInSeconds;
+        return dnsLookupRefreshPeriod.getSeconds();
+    }
+
+    /**
+     * The DNS delay to refresh the resolution of {@link #getHostname()}, with a millisecond granularity.
+     */
+    public Duration getDnsLookupRefreshPeriod() {
+        return dnsLookupRefreshPeriod;
     }
 
     /**
-     * The delay in seconds between health checks to {@link #getHealthPath()}.
+     * The delay in seconds between health checks to {@link #getHealthPath()}, truncated when the period is not a whole number of seconds.
      */
     public long getConnectionHealthCheckPeriodInSeconds() {
-        return connectionHealthCheckPeriodInSeconds;
+        return connectionHealthCheckPeriod.getSeconds();
+    }
+
+    /**
+     * The delay between health checks to {@link #getHealthPath()}, with a millisecond granularity.
+     * With {@link #isAdaptiveHealthCheck()}, it is the reference delay that is shortened after a change of health and lengthened while the health is stable.
+     */
+    public Duration getConnectionHealthCheckPeriod() {
+        return connectionHealthCheckPeriod;
     }
 
     /**
@@ -158,17 +281,66 @@ public class ServerConfiguration {
         return protocol;
     }
 
+    /**
+     * The end-to-end deadline in ms of a request sent by the resilient client, including all its failover attempts.
+     * A value of "-1" {i.e. default} indicates no deadline, each attempt is then only bounded by the request timeout.
+     */
+    public long getRequestDeadlineInMilliseconds() {
+        return requestDeadlineInMilliseconds;
+    }
+
+    /**
+     * The time in ms an address is taken out of rotation after it answered 503 or 429 without a Retry-After header, with the header its delay is used instead.
+     * A value of "-1" indicates the addresses are never taken out of rotation when they shed load.
+     */
+    public long getLoadSheddingBackoffInMilliseconds() {
+        return loadSheddingBackoffInMilliseconds;
+    }
+
+    /**
+     * Whether the delay between health checks adapts to the health of each address: the health checks are sent more often right after
+     * an address became healthy or unhealthy, then less and less often while its health is unchanged.
+     * A value of "false" {i.e. default} sends the health checks every {@link #getConnectionHealthCheckPeriod()}.
+     */
+    public boolean isAdaptiveHealthCheck() {
+        return adaptiveHealthCheck;
+    }
+
+    /**
+     * How the health of each address is checked, {@link HealthCheckMode#HTTP} by default.
+     * With {@link HealthCheckMode#TCP_CONNECT}, {@link #getHealthPath()} and {@link #getRequestTransformer()} are not used by the health checks
+     * and {@link #getHealthReadTimeoutInMilliseconds()} is the connect timeout.
+     */
+    public HealthCheckMode getHealthCheckMode() {
+        return healthCheckMode;
+    }
+
+    /**
+     * Evaluate the response to the HTTP health checks from its status, headers and a bounded prefix of its body.
+     * A value of "null" {i.e. default} only evaluates the status code, healthy between 200 and 499, and discards the body.
+     *
+     * @see HealthEvaluator#bodyNotContaining(String)
+     */
+    public HealthEvaluator getHealthEvaluator() {
+        return healthEvaluator;
+    }
+
     @Override
     public String toString() {
         return "ServerConfiguration{" +
                 "hostname='" + hostname + '\'' +
                 ", port=" + port +
                 ", healthPath='" + healthPath + '\'' +
-                ", connectionHealthCheckPeriodInSeconds=" + connectionHealthCheckPeriodInSeconds +
-                ", dnsLookupRefreshPeriodInSeconds=" + dnsLookupRefreshPeriodInSeconds +
+                ", connectionHealthCheckPeriod=" + connectionHealthCheckPeriod +
+                ", dnsLookupRefreshPeriod=" + dnsLookupRefreshPeriod +
                 ", healthReadTimeoutInMilliseconds=" + healthReadTimeoutInMilliseconds +
                 ", failureResponseCountThreshold= " + failureResponseCountThreshold +
                 ", protocol= " + protocol +
+                ", requestDeadlineInMilliseconds= " + requestDeadlineInMilliseconds +
+                ", loadSheddingBackoffInMilliseconds= " + loadSheddingBackoffInMilliseconds +
+                ", adaptiveHealthCheck= " + adaptiveHealthCheck +
+                ", healthCheckMode= " + healthCheckMode +
+                ", healthEvaluator= " + healthEvaluator +
                 '}';
     }
 }
@@ -0,0 +1,66 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+/**
+ * An IP address and port resolved from a DNS SRV record, see RFC 2782, with the priority and the weight of the record.
+ */
+public final class ServiceEndpoint {
+
+    private final InetSocketAddress socketAddress;
+    private final int priority;
+    private final int weight;
+
+    /**
+     * @param socketAddress the resolved address of the target of the record with its port
+     * @param priority      the priority of the record, the lowest value is the most preferred
+     * @param weight        the relative share of traffic among the records with the same priority
+     */
+    public ServiceEndpoint(InetSocketAddress socketAddress, int priority, int weight) {
+        if (socketAddress.isUnresolved()) {
+            throw new IllegalArgumentException("The address of a service endpoint should be resolved: " + socketAddress);
+        }
+        this.socketAddress = socketAddress;
+        this.priority = priority;
+        this.weight = weight;
+    }
+
+    public InetSocketAddress getSocketAddress() {
+        return socketAddress;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ServiceEndpoint that = (ServiceEndpoint) o;
+        return priority == that.priority && weight == that.weight && socketAddress.equals(that.socketAddress);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(socketAddress, priority, weight);
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceEndpoint{" +
+                "socketAddress=" + socketAddress +
+                ", priority=" + priority +
+                ", weight=" + weight +
+                '}';
+    }
+}
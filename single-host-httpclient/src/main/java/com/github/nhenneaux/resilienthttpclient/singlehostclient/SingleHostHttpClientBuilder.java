@@ -9,6 +9,7 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.security.GeneralSecurityException;
@@ -35,11 +36,13 @@ public class SingleHostHttpClientBuilder {
 
     private final String hostname;
     private final InetAddress hostAddress;
+    private final int port;
     private final HttpClient.Builder builder;
 
-    private SingleHostHttpClientBuilder(String hostname, InetAddress hostAddress, HttpClient.Builder builder) {
+    private SingleHostHttpClientBuilder(String hostname, InetAddress hostAddress, int port, HttpClient.Builder builder) {
         this.hostname = hostname;
         this.hostAddress = hostAddress;
+        this.port = port;
         this.builder = builder;
     }
 
@@ -50,15 +53,29 @@ public class SingleHostHttpClientBuilder {
      * The returned java.net.http.HttpClient is wrapped to force the HTTP header <code>Host</code> with the given hostname.
      */
     public static HttpClient newHttpClient(String hostname, InetAddress hostAddress, HttpClient.Version version) {
-        final HttpClient.Builder clientBuilder = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(2L));
-        final HttpClient.Builder clientBuilderWithVersion = Optional.ofNullable(version).map(clientBuilder::version).orElse(clientBuilder);
-        return builder(hostname, hostAddress, clientBuilderWithVersion)
+        return builder(hostname, hostAddress, defaultClientBuilder(version))
                 .withTlsNameMatching()
                 .withSni()
                 .buildWithHostHeader();
     }
 
+    /**
+     * Build a single hostname client with default configuration as {@link #newHttpClient(String, InetAddress, HttpClient.Version)},
+     * the requests are sent to the port of the given socket address instead of the one of their URI, e.g. the port of a DNS SRV record.
+     */
+    public static HttpClient newHttpClient(String hostname, InetSocketAddress socketAddress, HttpClient.Version version) {
+        return builder(hostname, socketAddress, defaultClientBuilder(version))
+                .withTlsNameMatching()
+                .withSni()
+                .buildWithHostHeader();
+    }
+
+    private static HttpClient.Builder defaultClientBuilder(HttpClient.Version version) {
+        final HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2L));
+        return Optional.ofNullable(version).map(clientBuilder::version).orElse(clientBuilder);
+    }
+
     /**
      * @see SingleHostHttpClientBuilder#newHttpClient(String, InetAddress, HttpClient.Version)
      */
@@ -75,7 +92,15 @@ public class SingleHostHttpClientBuilder {
      * </ul>
      */
     public static SingleHostHttpClientBuilder builder(String hostname, InetAddress hostAddress, HttpClient.Builder builder) {
-        return new SingleHostHttpClientBuilder(hostname, hostAddress, builder);
+        return new SingleHostHttpClientBuilder(hostname, hostAddress, SingleIpHttpRequest.NO_PORT_OVERRIDE, builder);
+    }
+
+    /**
+     * Build a single hostname client builder as {@link #builder(String, InetAddress, HttpClient.Builder)} sending the requests to the port of the given socket address.
+     * The HTTP header <code>Host</code> keeps the port of the URI.
+     */
+    public static SingleHostHttpClientBuilder builder(String hostname, InetSocketAddress socketAddress, HttpClient.Builder builder) {
+        return new SingleHostHttpClientBuilder(hostname, socketAddress.getAddress(), socketAddress.getPort(), builder);
     }
 
     public SingleHostHttpClientBuilder withSni() {
@@ -132,13 +157,13 @@ public class SingleHostHttpClientBuilder {
         final int port = httpRequest.uri().getPort();
         if (port == -1) {
             // No port in the URI
-            return new SingleIpHttpRequest(httpRequest, hostAddress, hostname);
+            return new SingleIpHttpRequest(httpRequest, hostAddress, this.port, hostname);
         }
-        return new SingleIpHttpRequest(httpRequest, hostAddress, hostname + ":" + port);
+        return new SingleIpHttpRequest(httpRequest, hostAddress, this.port, hostname + ":" + port);
     }
 
     public HttpClient build() {
-        return new HttpClientWrapper(builder.build(), httpRequest -> new SingleIpHttpRequest(httpRequest, hostAddress));
+        return new HttpClientWrapper(builder.build(), httpRequest -> new SingleIpHttpRequest(httpRequest, hostAddress, port));
     }
 
     public SingleHostHttpClientBuilder withTlsNameMatching(SSLContext initialSslContext) {
@@ -15,22 +15,37 @@ import java.util.Optional;
 class SingleIpHttpRequest extends HttpRequest {
 
     static final String HOST_HEADER = "host";
+    static final int NO_PORT_OVERRIDE = -1;
 
     private final HttpRequest httpRequest;
     private final InetAddress hostAddress;
+    private final int port;
     private final HttpHeaders headers;
 
     SingleIpHttpRequest(HttpRequest httpRequest, InetAddress hostAddress, String hostHeader) {
+        this(httpRequest, hostAddress, NO_PORT_OVERRIDE, hostHeader);
+    }
+
+    /**
+     * @param port the port replacing the one of the URI, e.g. given by a SRV record, {@link #NO_PORT_OVERRIDE} to keep the one of the URI
+     */
+    SingleIpHttpRequest(HttpRequest httpRequest, InetAddress hostAddress, int port, String hostHeader) {
         this.httpRequest = httpRequest;
         this.hostAddress = hostAddress;
+        this.port = port;
         final Map<String, List<String>> headerMap = new HashMap<>(httpRequest.headers().map());
         headerMap.put(HOST_HEADER, List.of(hostHeader));
         this.headers = HttpHeaders.of(headerMap, (s, s2) -> true);
     }
 
     SingleIpHttpRequest(HttpRequest httpRequest, InetAddress hostAddress) {
+        this(httpRequest, hostAddress, NO_PORT_OVERRIDE);
+    }
+
+    SingleIpHttpRequest(HttpRequest httpRequest, InetAddress hostAddress, int port) {
         this.httpRequest = httpRequest;
         this.hostAddress = hostAddress;
+        this.port = port;
         this.headers = httpRequest.headers();
     }
 
@@ -58,12 +73,16 @@ class SingleIpHttpRequest extends HttpRequest {
     public URI uri() {
         final URI uri = httpRequest.uri();
         final var address = hostAddress.getHostAddress();
-        return newUriWithAddress(uri, address);
+        return newUriWithAddress(uri, address, port == NO_PORT_OVERRIDE ? uri.getPort() : port);
     }
 
     static URI newUriWithAddress(URI uri, String address) {
+        return newUriWithAddress(uri, address, uri.getPort());
+    }
+
+    static URI newUriWithAddress(URI uri, String address, int port) {
         try {
-            return new URI(uri.getScheme(), uri.getUserInfo(), address, uri.getPort(), uri.getPath(), uri.getQuery(), uri.getFragment());
+            return new URI(uri.getScheme(), uri.getUserInfo(), address, port, uri.getPath(), uri.getQuery(), uri.getFragment());
         } catch (URISyntaxException e) {
             throw new IllegalStateException("Cannot build uri " + uri + "with address " + address, e);
         }
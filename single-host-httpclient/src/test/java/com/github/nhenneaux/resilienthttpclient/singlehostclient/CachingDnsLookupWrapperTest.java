@@ -0,0 +1,173 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CachingDnsLookupWrapperTest {
+
+    private static final String HOSTNAME = "cached.dns.localhost";
+    private static final Duration EXPIRED_IMMEDIATELY = Duration.ofNanos(1);
+
+    @Test
+    void shouldJoinConcurrentLookups() throws UnknownHostException {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        final CompletableFuture<Set<InetAddress>> slowLookup = delegate.willAnswer(new CompletableFuture<>());
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5), mock(ScheduledExecutorService.class));
+
+        // When
+        final CompletableFuture<Set<InetAddress>> first = cache.getInetAddressesByDnsLookUpAsync(HOSTNAME);
+        final CompletableFuture<Set<InetAddress>> second = cache.getInetAddressesByDnsLookUpAsync(HOSTNAME);
+        slowLookup.complete(Set.of(address(1)));
+        final Set<InetAddress> cached = cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(Set.of(address(1)), first.join());
+        assertEquals(Set.of(address(1)), cached);
+        assertEquals(1, delegate.lookups.get());
+    }
+
+    @Test
+    void shouldServeStaleAddressesWhileRevalidating() throws UnknownHostException {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(1))));
+        final CompletableFuture<Set<InetAddress>> revalidation = delegate.willAnswer(new CompletableFuture<>());
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, EXPIRED_IMMEDIATELY, Duration.ofMinutes(1), Duration.ofSeconds(5), mock(ScheduledExecutorService.class));
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // When
+        final CompletableFuture<Set<InetAddress>> stale = cache.getInetAddressesByDnsLookUpAsync(HOSTNAME);
+        revalidation.complete(Set.of(address(2)));
+
+        // Then
+        assertEquals(Set.of(address(1)), stale.join());
+        assertEquals(2, delegate.lookups.get());
+        assertEquals(Set.of(address(2)), cache.getInetAddressesByDnsLookUpAsync(HOSTNAME).join());
+    }
+
+    @Test
+    void shouldServeStaleAddressesWhenLookupFails() throws UnknownHostException {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(1))));
+        delegate.willAnswer(CompletableFuture.failedFuture(new TimeoutException()));
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, EXPIRED_IMMEDIATELY, Duration.ofMinutes(1), Duration.ofSeconds(5), mock(ScheduledExecutorService.class));
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // When
+        final Set<InetAddress> addresses = cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // Then
+        assertEquals(Set.of(address(1)), addresses);
+        assertEquals(2, delegate.lookups.get());
+    }
+
+    @Test
+    void shouldCacheFailureNegatively() {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        delegate.willAnswer(CompletableFuture.failedFuture(new IllegalStateException(new UnknownHostException(HOSTNAME))));
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMinutes(1), mock(ScheduledExecutorService.class));
+
+        // When
+        final CompletionException first = assertThrows(CompletionException.class, () -> cache.getInetAddressesByDnsLookUpAsync(HOSTNAME).join());
+        final IllegalStateException second = assertThrows(IllegalStateException.class, () -> cache.getInetAddressesByDnsLookUp(HOSTNAME));
+
+        // Then
+        assertInstanceOf(IllegalStateException.class, first.getCause());
+        assertInstanceOf(UnknownHostException.class, second.getCause());
+        assertEquals(1, delegate.lookups.get());
+        assertTrue(cache.getRemainingTimeToLive(HOSTNAME).isEmpty());
+    }
+
+    @Test
+    void shouldNotifySubscribersOfChangedAddresses() throws UnknownHostException {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(1))));
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(1))));
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(2))));
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, EXPIRED_IMMEDIATELY, Duration.ofMinutes(1), Duration.ofSeconds(5), scheduler);
+        final List<Set<InetAddress>> notified = new CopyOnWriteArrayList<>();
+        final DnsLookupWrapper.Subscription subscription = cache.subscribe(HOSTNAME, notified::add).orElseThrow();
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // When
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+        subscription.close();
+
+        // Then the unchanged addresses are not notified and the expired name is revalidated in the background
+        assertEquals(List.of(Set.of(address(2))), notified);
+        verify(scheduler, times(3)).schedule(any(Runnable.class), eq(CachingDnsLookupWrapper.MIN_REVALIDATION_DELAY.toNanos()), eq(TimeUnit.NANOSECONDS));
+        assertEquals(0, cache.subscriberCount(HOSTNAME));
+    }
+
+    @Test
+    void shouldNotScheduleRevalidationWithoutSubscriber() throws UnknownHostException {
+        // Given
+        final ScriptedDnsLookupWrapper delegate = new ScriptedDnsLookupWrapper();
+        delegate.willAnswer(CompletableFuture.completedFuture(Set.of(address(1))));
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        final CachingDnsLookupWrapper cache = new CachingDnsLookupWrapper(delegate, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5), scheduler);
+
+        // When
+        cache.getInetAddressesByDnsLookUp(HOSTNAME);
+
+        // Then
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        final Duration remainingTimeToLive = cache.getRemainingTimeToLive(HOSTNAME).orElseThrow();
+        assertFalse(remainingTimeToLive.compareTo(Duration.ofMinutes(1)) > 0);
+    }
+
+    private static InetAddress address(int lastByte) throws UnknownHostException {
+        return InetAddress.getByAddress(HOSTNAME, new byte[]{10, 0, 0, (byte) lastByte});
+    }
+
+    private static final class ScriptedDnsLookupWrapper extends DnsLookupWrapper {
+        private final Queue<CompletableFuture<Set<InetAddress>>> answers = new ArrayDeque<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private CompletableFuture<Set<InetAddress>> willAnswer(CompletableFuture<Set<InetAddress>> answer) {
+            answers.add(answer);
+            return answer;
+        }
+
+        @Override
+        public CompletableFuture<Set<InetAddress>> getInetAddressesByDnsLookUpAsync(String hostName) {
+            lookups.incrementAndGet();
+            return answers.remove();
+        }
+    }
+}
@@ -4,9 +4,18 @@ import org.junit.jupiter.api.Test;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class DnsLookupWrapperTest {
 
@@ -20,4 +29,49 @@ class DnsLookupWrapperTest {
         // Then
         assertArrayEquals(names, inetAddressesByDnsLookUp.toArray());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldLookUpAsynchronously() throws UnknownHostException {
+        // Given
+        final DnsLookupWrapper dnsLookupWrapper = new DnsLookupWrapper();
+        // When
+        final Set<InetAddress> addresses = dnsLookupWrapper.getInetAddressesByDnsLookUpAsync("127.0.0.1").join();
+        // Then
+        assertEquals(Set.of(InetAddress.getByName("127.0.0.1")), addresses);
+    }
+
+    @Test
+    void shouldTimeOutSlowLookup() {
+        // Given
+        final CountDownLatch hangingResolver = new CountDownLatch(1);
+        final ExecutorService lookupExecutor = Executors.newSingleThreadExecutor();
+        final DnsLookupWrapper dnsLookupWrapper = new DnsLookupWrapper(Duration.ofMillis(100), lookupExecutor) {
+            @Override
+            public Set<InetAddress> getInetAddressesByDnsLookUp(String hostName) {
+                try {
+                    hangingResolver.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Set.of();
+            }
+        };
+        try {
+            // When
+            final CompletionException exception = assertThrows(CompletionException.class, () -> dnsLookupWrapper.getInetAddressesByDnsLookUpAsync("slow.dns.localhost").join());
+            // Then
+            assertInstanceOf(TimeoutException.class, exception.getCause());
+        } finally {
+            hangingResolver.countDown();
+            lookupExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotResolveServiceRecords() {
+        // When
+        final CompletionException exception = assertThrows(CompletionException.class, () -> new DnsLookupWrapper().getServiceEndpointsByDnsLookUpAsync("_https._tcp.service.example.test").join());
+        // Then
+        assertInstanceOf(UnsupportedOperationException.class, exception.getCause());
+    }
+}
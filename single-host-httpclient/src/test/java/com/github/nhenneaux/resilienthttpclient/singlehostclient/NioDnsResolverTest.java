@@ -0,0 +1,257 @@
+package com.github.nhenneaux.resilienthttpclient.singlehostclient;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(10)
+class NioDnsResolverTest {
+
+    private static final String HOSTNAME = "service.example.test";
+
+    @Test
+    void shouldResolveAddressesWithTimeToLive() throws IOException {
+        // Given
+        try (FakeDnsServer server = new FakeDnsServer(Map.of(
+                DnsMessage.TYPE_A, List.of(new FakeRecord("10.0.0.1", 60), new FakeRecord("10.0.0.2", 30)),
+                DnsMessage.TYPE_AAAA, List.of(new FakeRecord("fd00::1", 120))), 0, false);
+             NioDnsResolver resolver = new NioDnsResolver(List.of(server.address()), NioDnsResolver.DEFAULT_TIMEOUT)) {
+            // When
+            final DnsRecords records = resolver.resolve(HOSTNAME).join();
+
+            // Then
+            assertEquals(List.of(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("10.0.0.2"), InetAddress.getByName("fd00::1")), List.copyOf(records.getAddresses()));
+            assertEquals(HOSTNAME, records.getAddresses().iterator().next().getHostName());
+            assertEquals(Duration.ofSeconds(30), records.getTimeToLive().orElseThrow());
+            final Duration remainingTimeToLive = resolver.getRemainingTimeToLive(HOSTNAME).orElseThrow();
+            assertTrue(remainingTimeToLive.compareTo(Duration.ofSeconds(30)) <= 0 && remainingTimeToLive.compareTo(Duration.ofSeconds(25)) > 0, remainingTimeToLive::toString);
+            assertFalse(resolver.isCachedByJvm());
+        }
+    }
+
+    @Test
+    void shouldQueryOverTcpWhenAnswerIsTruncated() throws IOException {
+        // Given
+        try (FakeDnsServer server = new FakeDnsServer(Map.of(DnsMessage.TYPE_A, List.of(new FakeRecord("10.0.0.3", 10))), 0, true);
+             NioDnsResolver resolver = new NioDnsResolver(List.of(server.address()), NioDnsResolver.DEFAULT_TIMEOUT)) {
+            // When
+            final DnsRecords records = resolver.resolve(HOSTNAME).join();
+
+            // Then
+            assertEquals(List.of(InetAddress.getByName("10.0.0.3")), List.copyOf(records.getAddresses()));
+            assertEquals(2, server.tcpQueries.get());
+        }
+    }
+
+    @Test
+    void shouldFailWhenNameDoesNotExist() throws IOException {
+        // Given
+        try (FakeDnsServer server = new FakeDnsServer(Map.of(), DnsMessage.RESPONSE_CODE_NAME_ERROR, false);
+             NioDnsResolver resolver = new NioDnsResolver(List.of(server.address()), NioDnsResolver.DEFAULT_TIMEOUT)) {
+            // When
+            final IllegalStateException exception = assertThrows(IllegalStateException.class, () -> resolver.getInetAddressesByDnsLookUp(HOSTNAME));
+
+            // Then
+            assertInstanceOf(UnknownHostException.class, exception.getCause());
+            assertTrue(resolver.getRemainingTimeToLive(HOSTNAME).isEmpty());
+        }
+    }
+
+    @Test
+    void shouldQueryNextNameServerWhenOneDoesNotAnswer() throws IOException {
+        // Given
+        try (DatagramSocket silentServer = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+             FakeDnsServer server = new FakeDnsServer(Map.of(DnsMessage.TYPE_A, List.of(new FakeRecord("10.0.0.4", 10))), 0, false);
+             NioDnsResolver resolver = new NioDnsResolver(List.of((InetSocketAddress) silentServer.getLocalSocketAddress(), server.address()), Duration.ofMillis(200))) {
+            // When
+            final DnsRecords records = resolver.resolve(HOSTNAME).join();
+
+            // Then
+            assertEquals(List.of(InetAddress.getByName("10.0.0.4")), List.copyOf(records.getAddresses()));
+        }
+    }
+
+    @Test
+    void shouldResolveServiceRecords() throws IOException {
+        // Given
+        try (FakeDnsServer server = new FakeDnsServer(Map.of(
+                DnsMessage.TYPE_SRV, List.of(FakeRecord.service(20, 40, 9443, "backup.example.test", 300), FakeRecord.service(10, 60, 8443, "primary.example.test", 300)),
+                DnsMessage.TYPE_A, List.of(new FakeRecord("10.0.0.6", 30))), 0, false);
+             NioDnsResolver resolver = new NioDnsResolver(List.of(server.address()), NioDnsResolver.DEFAULT_TIMEOUT)) {
+            // When
+            final List<ServiceEndpoint> endpoints = resolver.getServiceEndpointsByDnsLookUpAsync("_https._tcp." + HOSTNAME).join();
+
+            // Then there is an endpoint for each port of the same address, by priority
+            final InetAddress address = InetAddress.getByName("10.0.0.6");
+            assertEquals(List.of(
+                    new ServiceEndpoint(new InetSocketAddress(address, 8443), 10, 60),
+                    new ServiceEndpoint(new InetSocketAddress(address, 9443), 20, 40)
+            ), endpoints);
+            final Duration remainingTimeToLive = resolver.getRemainingTimeToLive("_https._tcp." + HOSTNAME).orElseThrow();
+            assertTrue(remainingTimeToLive.compareTo(Duration.ofSeconds(30)) <= 0, remainingTimeToLive::toString);
+        }
+    }
+
+    @Test
+    void shouldNotQueryIpLiteral() throws IOException {
+        // Given
+        try (FakeDnsServer server = new FakeDnsServer(Map.of(), 0, false);
+             NioDnsResolver resolver = new NioDnsResolver(List.of(server.address()), NioDnsResolver.DEFAULT_TIMEOUT)) {
+            // When
+            final DnsRecords records = resolver.resolve("10.0.0.5").join();
+
+            // Then
+            assertEquals(List.of(InetAddress.getByName("10.0.0.5")), List.copyOf(records.getAddresses()));
+            assertTrue(records.getTimeToLive().isEmpty());
+            assertEquals(0, server.udpQueries.get());
+        }
+    }
+
+    private static final class FakeRecord {
+        private final byte[] data;
+        private final int ttlInSeconds;
+
+        private FakeRecord(String address, int ttlInSeconds) throws UnknownHostException {
+            this(InetAddress.getByName(address).getAddress(), ttlInSeconds);
+        }
+
+        private FakeRecord(byte[] data, int ttlInSeconds) {
+            this.data = data;
+            this.ttlInSeconds = ttlInSeconds;
+        }
+
+        private static FakeRecord service(int priority, int weight, int port, String target, int ttlInSeconds) {
+            final ByteBuffer data = ByteBuffer.allocate(6 + target.length() + 2)
+                    .putShort((short) priority)
+                    .putShort((short) weight)
+                    .putShort((short) port);
+            for (String label : target.split("\\.")) {
+                data.put((byte) label.length()).put(label.getBytes(StandardCharsets.US_ASCII));
+            }
+            return new FakeRecord(data.put((byte) 0).array(), ttlInSeconds);
+        }
+    }
+
+    /**
+     * Answer the queries over UDP and TCP on the same loopback port.
+     */
+    private static final class FakeDnsServer implements AutoCloseable {
+        private final Map<Integer, List<FakeRecord>> recordsByType;
+        private final int responseCode;
+        private final boolean truncateUdp;
+        private final DatagramSocket udp;
+        private final ServerSocket tcp;
+        private final AtomicInteger udpQueries = new AtomicInteger();
+        private final AtomicInteger tcpQueries = new AtomicInteger();
+
+        private FakeDnsServer(Map<Integer, List<FakeRecord>> recordsByType, int responseCode, boolean truncateUdp) throws IOException {
+            this.recordsByType = recordsByType;
+            this.responseCode = responseCode;
+            this.truncateUdp = truncateUdp;
+            this.udp = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            this.tcp = new ServerSocket(udp.getLocalPort(), 10, InetAddress.getLoopbackAddress());
+            start(this::serveUdp);
+            start(this::serveTcp);
+        }
+
+        private static void start(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "fake-dns-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private InetSocketAddress address() {
+            return (InetSocketAddress) udp.getLocalSocketAddress();
+        }
+
+        private void serveUdp() {
+            final byte[] buffer = new byte[512];
+            try {
+                while (true) {
+                    final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    udp.receive(packet);
+                    udpQueries.incrementAndGet();
+                    final byte[] answer = answer(Arrays.copyOf(packet.getData(), packet.getLength()), truncateUdp);
+                    udp.send(new DatagramPacket(answer, answer.length, packet.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+
+        private void serveTcp() {
+            try {
+                while (true) {
+                    try (Socket socket = tcp.accept()) {
+                        final DataInputStream input = new DataInputStream(socket.getInputStream());
+                        final byte[] query = new byte[input.readUnsignedShort()];
+                        input.readFully(query);
+                        tcpQueries.incrementAndGet();
+                        final byte[] answer = answer(query, false);
+                        final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+                        output.writeShort(answer.length);
+                        output.write(answer);
+                        output.flush();
+                    }
+                }
+            } catch (SocketException e) {
+                // Closed
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private byte[] answer(byte[] query, boolean truncated) {
+            final int type = ((query[query.length - 4] & 0xFF) << 8) | (query[query.length - 3] & 0xFF);
+            final List<FakeRecord> records = truncated ? List.of() : recordsByType.getOrDefault(type, List.of());
+            final ByteBuffer answer = ByteBuffer.allocate(512);
+            answer.put(query, 0, 2)
+                    .putShort((short) (0x8180 | (truncated ? 0x0200 : 0) | responseCode))
+                    .putShort((short) 1)
+                    .putShort((short) records.size())
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .put(query, 12, query.length - 12);
+            for (FakeRecord fakeRecord : records) {
+                // The name is a pointer to the one of the question
+                answer.putShort((short) 0xC00C)
+                        .putShort((short) type)
+                        .putShort((short) 1)
+                        .putInt(fakeRecord.ttlInSeconds)
+                        .putShort((short) fakeRecord.data.length)
+                        .put(fakeRecord.data);
+            }
+            return Arrays.copyOf(answer.array(), answer.position());
+        }
+
+        @Override
+        public void close() throws IOException {
+            udp.close();
+            tcp.close();
+        }
+    }
+}
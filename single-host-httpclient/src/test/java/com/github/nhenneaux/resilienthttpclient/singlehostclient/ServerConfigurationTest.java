@@ -3,6 +3,8 @@ package com.github.nhenneaux.resilienthttpclient.singlehostclient;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static com.github.nhenneaux.resilienthttpclient.singlehostclient.ServerConfiguration.DEFAULT_REQUEST_TRANSFORMER;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -23,6 +25,8 @@ class ServerConfigurationTest {
         Assertions.assertEquals(5000, serverConfiguration.getHealthReadTimeoutInMilliseconds());
         Assertions.assertEquals(-1, serverConfiguration.getFailureResponseCountThreshold());
         Assertions.assertEquals("https", serverConfiguration.getProtocol());
+        Assertions.assertEquals(-1L, serverConfiguration.getRequestDeadlineInMilliseconds());
+        Assertions.assertEquals(1000L, serverConfiguration.getLoadSheddingBackoffInMilliseconds());
     }
 
     @Test
@@ -56,6 +60,8 @@ class ServerConfigurationTest {
         Assertions.assertEquals(5000, serverConfiguration.getHealthReadTimeoutInMilliseconds());
         Assertions.assertEquals(-1, serverConfiguration.getFailureResponseCountThreshold());
         Assertions.assertEquals("https", serverConfiguration.getProtocol());
+        Assertions.assertEquals(-1L, serverConfiguration.getRequestDeadlineInMilliseconds());
+        Assertions.assertEquals(1000L, serverConfiguration.getLoadSheddingBackoffInMilliseconds());
     }
 
     @Test
@@ -81,8 +87,107 @@ class ServerConfigurationTest {
         Assertions.assertEquals(111L, serverConfiguration.getHealthReadTimeoutInMilliseconds());
         Assertions.assertEquals(1234, serverConfiguration.getPort());
         Assertions.assertEquals("http", serverConfiguration.getProtocol());
-        Assertions.assertEquals("ServerConfiguration{hostname='hostname', port=1234, healthPath='/health', connectionHealthCheckPeriodInSeconds=555, dnsLookupRefreshPeriodInSeconds=444, healthReadTimeoutInMilliseconds=111, failureResponseCountThreshold= 0, protocol= http}", serverConfiguration.toString());
+        Assertions.assertEquals("ServerConfiguration{hostname='hostname', port=1234, healthPath='/health', connectionHealthCheckPeriod=PT9M15S, dnsLookupRefreshPeriod=PT7M24S, healthReadTimeoutInMilliseconds=111, failureResponseCountThreshold= 0, protocol= http, requestDeadlineInMilliseconds= -1, loadSheddingBackoffInMilliseconds= 1000, adaptiveHealthCheck= false, healthCheckMode= HTTP, healthEvaluator= null}", serverConfiguration.toString());
+    }
+
+    @Test
+    void shouldReturnConfiguredRequestDeadline() {
+        // Given
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(
+                "hostname",
+                1234,
+                "/health",
+                444L,
+                555L,
+                111L,
+                0,
+                DEFAULT_REQUEST_TRANSFORMER,
+                "http"
+        ).withRequestDeadlineInMilliseconds(750L);
+
+        // When-Then
+        Assertions.assertEquals(750L, serverConfiguration.getRequestDeadlineInMilliseconds());
+        Assertions.assertEquals("http", serverConfiguration.getProtocol());
+    }
+
+    @Test
+    void shouldReturnConfiguredLoadSheddingBackoff() {
+        // Given
+        final ServerConfiguration serverConfiguration = new ServerConfiguration(
+                "hostname",
+                1234,
+                "/health",
+                444L,
+                555L,
+                111L,
+                0,
+                DEFAULT_REQUEST_TRANSFORMER,
+                "http"
+        ).withRequestDeadlineInMilliseconds(750L).withLoadSheddingBackoffInMilliseconds(-1L);
+
+        // When-Then
+        Assertions.assertEquals(-1L, serverConfiguration.getLoadSheddingBackoffInMilliseconds());
+        Assertions.assertEquals(750L, serverConfiguration.getRequestDeadlineInMilliseconds());
+    }
+
+    @Test
+    void shouldReturnSubSecondPeriods() {
+        // Given
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("hostname", 1234)
+                .withDnsLookupRefreshPeriod(Duration.ofMillis(1500))
+                .withConnectionHealthCheckPeriod(Duration.ofMillis(250))
+                .withAdaptiveHealthCheck(true);
+
+        // When-Then
+        Assertions.assertEquals(Duration.ofMillis(250), serverConfiguration.getConnectionHealthCheckPeriod());
+        Assertions.assertEquals(0L, serverConfiguration.getConnectionHealthCheckPeriodInSeconds());
+        Assertions.assertEquals(Duration.ofMillis(1500), serverConfiguration.getDnsLookupRefreshPeriod());
+        Assertions.assertEquals(1L, serverConfiguration.getDnsLookupRefreshPeriodInSeconds());
+        Assertions.assertTrue(serverConfiguration.isAdaptiveHealthCheck());
+    }
+
+    @Test
+    void shouldCopyWithHealthCheckModeAndEvaluator() {
+        // Given
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("hostname", 1234).withRequestDeadlineInMilliseconds(750L);
+        final HealthEvaluator healthEvaluator = HealthEvaluator.bodyNotContaining("DEGRADED");
+
+        // When
+        final ServerConfiguration copy = serverConfiguration
+                .withHealthCheckMode(HealthCheckMode.TCP_CONNECT)
+                .withHealthEvaluator(healthEvaluator);
+
+        // Then the other values are kept and the original is unchanged
+        Assertions.assertEquals(HealthCheckMode.TCP_CONNECT, copy.getHealthCheckMode());
+        Assertions.assertSame(healthEvaluator, copy.getHealthEvaluator());
+        Assertions.assertEquals(750L, copy.getRequestDeadlineInMilliseconds());
+        Assertions.assertEquals(1234, copy.getPort());
+        Assertions.assertEquals(HealthCheckMode.HTTP, serverConfiguration.getHealthCheckMode());
+        Assertions.assertNull(serverConfiguration.getHealthEvaluator());
     }
 
+    @Test
+    void shouldRejectCopyWithPeriodShorterThanOneMillisecond() {
+        final ServerConfiguration serverConfiguration = new ServerConfiguration("hostname");
+        final Duration period = Duration.ofNanos(10);
+        final IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class, () -> serverConfiguration.withDnsLookupRefreshPeriod(period));
+        assertEquals("The dnsLookupRefreshPeriod should be at least one millisecond but was: PT0.00000001S", illegalArgumentException.getMessage());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void shouldRejectPeriodShorterThanOneMillisecond() {
+        final IllegalArgumentException illegalArgumentException = assertThrows(IllegalArgumentException.class, () ->
+                new ServerConfiguration(
+                        "hostname",
+                        1234,
+                        "/health",
+                        444L,
+                        0L,
+                        111L,
+                        0,
+                        DEFAULT_REQUEST_TRANSFORMER,
+                        "http"
+                ));
+        assertEquals("The connectionHealthCheckPeriod should be at least one millisecond but was: PT0S", illegalArgumentException.getMessage());
+    }
+}
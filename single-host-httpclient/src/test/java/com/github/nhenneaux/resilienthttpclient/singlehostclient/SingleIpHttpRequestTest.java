@@ -63,6 +63,15 @@ class SingleIpHttpRequestTest {
         assertEquals(new URI("https://" + hostAddress.getHostAddress()), singleIpHttpRequest.uri());
     }
 
+    @Test
+    void uriWithPort() throws UnknownHostException {
+        final InetAddress hostAddress = InetAddress.getByAddress(new byte[]{10, 1, 1, 1});
+        final HttpRequest request = HttpRequest.newBuilder().uri(URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.HttpRequestWithHostHeaderTest.junit/path?query")).build();
+        final SingleIpHttpRequest singleIpHttpRequest = new SingleIpHttpRequest(request, hostAddress, 8443, "com.github.nhenneaux.resilienthttpclient.singlehostclient.HttpRequestWithHostHeaderTest.junit");
+        assertEquals(URI.create("https://10.1.1.1:8443/path?query"), singleIpHttpRequest.uri());
+        assertEquals(List.of("com.github.nhenneaux.resilienthttpclient.singlehostclient.HttpRequestWithHostHeaderTest.junit"), singleIpHttpRequest.headers().allValues(SingleIpHttpRequest.HOST_HEADER));
+    }
+
     @Test
     void uriInvalidUrl() {
         final var uri = URI.create("https://com.github.nhenneaux.resilienthttpclient.singlehostclient.HttpRequestWithHostHeaderTest.junit");